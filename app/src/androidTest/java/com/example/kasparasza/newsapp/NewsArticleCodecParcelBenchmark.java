@@ -0,0 +1,114 @@
+package com.example.kasparasza.newsapp;
+
+import android.os.Parcel;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Size and time of NewsArticleCodec compared with Parcel (the format of the saved state of the Activity),
+ * for a page, for the window of pages held by WindowedArticleList and for a long list (2,000 articles).
+ * Parcel is only available on the device, hence an instrumentation test; the results are written to logcat
+ * (tag NewsArticleCodecParcelBenchmark).
+ */
+@RunWith(AndroidJUnit4.class)
+public class NewsArticleCodecParcelBenchmark {
+
+    private static final String LOG_TAG = NewsArticleCodecParcelBenchmark.class.getSimpleName();
+    private static final int WARM_UP_RUNS = 50;
+    private static final int TIMED_RUNS = 100;
+
+    @Test
+    public void page() throws Exception {
+        compare(createArticles(NewsQuery.PAGE_SIZE));
+    }
+
+    @Test
+    public void window() throws Exception {
+        compare(createArticles(NewsQuery.PAGE_SIZE * 10));
+    }
+
+    @Test
+    public void longList() throws Exception {
+        compare(createArticles(NewsQuery.PAGE_SIZE * 100));
+    }
+
+    private static void compare(List<NewsArticle> newsArticleList) throws Exception {
+        byte[] encoded = NewsArticleCodec.encode(newsArticleList);
+        byte[] parceled = marshall(newsArticleList);
+        assertEquals(newsArticleList.size(), NewsArticleCodec.decode(encoded).size());
+        assertEquals(newsArticleList.size(), unmarshall(parceled).size());
+
+        long codecEncodeNanos = 0;
+        long codecDecodeNanos = 0;
+        long parcelEncodeNanos = 0;
+        long parcelDecodeNanos = 0;
+        int run;
+        for (run = 0; run < WARM_UP_RUNS + TIMED_RUNS; run++) {
+            long startTime = System.nanoTime();
+            NewsArticleCodec.encode(newsArticleList);
+            long encodedTime = System.nanoTime();
+            NewsArticleCodec.decode(encoded);
+            long decodedTime = System.nanoTime();
+            marshall(newsArticleList);
+            long marshalledTime = System.nanoTime();
+            unmarshall(parceled);
+            long unmarshalledTime = System.nanoTime();
+            if (run >= WARM_UP_RUNS) {
+                codecEncodeNanos += encodedTime - startTime;
+                codecDecodeNanos += decodedTime - encodedTime;
+                parcelEncodeNanos += marshalledTime - decodedTime;
+                parcelDecodeNanos += unmarshalledTime - marshalledTime;
+            }
+        }
+        Log.i(LOG_TAG, String.format("%d articles: codec %d bytes, encode %.1f us, decode %.1f us; "
+                        + "Parcel %d bytes, encode %.1f us, decode %.1f us",
+                newsArticleList.size(), encoded.length, codecEncodeNanos / 1e3 / TIMED_RUNS, codecDecodeNanos / 1e3 / TIMED_RUNS,
+                parceled.length, parcelEncodeNanos / 1e3 / TIMED_RUNS, parcelDecodeNanos / 1e3 / TIMED_RUNS));
+        assertTrue(encoded.length < parceled.length);
+    }
+
+    private static byte[] marshall(List<NewsArticle> newsArticleList) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeTypedList(newsArticleList);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static List<NewsArticle> unmarshall(byte[] bytes) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(bytes, 0, bytes.length);
+            parcel.setDataPosition(0);
+            return parcel.createTypedArrayList(NewsArticle.CREATOR);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    // articles with the values of a typical page (the sections and bylines repeat)
+    private static List<NewsArticle> createArticles(int count) {
+        String[] sections = {"World news", "UK news", "Politics", "Sport", "Opinion", "Business"};
+        String[] bylines = {"by Guardian staff", "by Agencies", "by Jane Smith", "by John Doe"};
+        List<NewsArticle> newsArticleList = new ArrayList<NewsArticle>(count);
+        int index;
+        for (index = 0; index < count; index++) {
+            newsArticleList.add(new NewsArticle("Headline of the article number " + index + " about the news of the day",
+                    bylines[index % bylines.length], "Jul 17, 23:01", 1500332463000L - index * 60000L,
+                    "Trail text of the article " + index + " with <strong>some</strong> markup and a few more words",
+                    "https://media.guim.co.uk/" + index + "/500.jpg",
+                    "https://www.theguardian.com/world/2017/jul/17/article-" + index, sections[index % sections.length]));
+        }
+        return newsArticleList;
+    }
+}
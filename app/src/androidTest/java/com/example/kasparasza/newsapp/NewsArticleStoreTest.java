@@ -0,0 +1,114 @@
+package com.example.kasparasza.newsapp;
+
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.example.kasparasza.newsapp.core.CachedResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of the pages kept by NewsArticleStore: an article received on two pages of a profile, and the trimming
+ * of the store to its size. SQLite is only available on the device, hence an instrumentation test
+ * (the store is created in memory).
+ */
+@RunWith(AndroidJUnit4.class)
+public class NewsArticleStoreTest {
+
+    private static final String PROFILE = NewsArticleStore.createProfileKey("last week", "newest", "uk");
+    private NewsArticleStore store;
+
+    @Before
+    public void createStore() {
+        store = new NewsArticleStore(InstrumentationRegistry.getTargetContext(), null);
+    }
+
+    @After
+    public void closeStore() {
+        store.close();
+    }
+
+    @Test
+    public void articleOnTwoPagesLeavesNoPageShort() {
+        List<NewsArticle> firstPage = createPage(0, NewsQuery.PAGE_SIZE, "");
+        store.writePage(PROFILE, 1, firstPage);
+        // the result set has shifted by one article: the last article of page 1 is the first one of page 2
+        store.writePage(PROFILE, 2, createPage(NewsQuery.PAGE_SIZE - 1, NewsQuery.PAGE_SIZE, " (updated)"));
+
+        List<NewsArticle> storedFirstPage = store.readPage(PROFILE, 1);
+        List<NewsArticle> storedSecondPage = store.readPage(PROFILE, 2);
+        assertEquals(NewsQuery.PAGE_SIZE, storedFirstPage.size());
+        assertEquals(NewsQuery.PAGE_SIZE, storedSecondPage.size());
+        // the copy on page 1 keeps its place, and is updated with the fields received on page 2
+        NewsArticle movedArticle = storedFirstPage.get(NewsQuery.PAGE_SIZE - 1);
+        assertEquals(storedSecondPage.get(0).getArticleLink(), movedArticle.getArticleLink());
+        assertEquals(storedSecondPage.get(0).getHeadline(), movedArticle.getHeadline());
+    }
+
+    @Test
+    public void rewrittenPagesLoseTheirValidators() {
+        store.writePage(PROFILE, 1, createPage(0, NewsQuery.PAGE_SIZE, ""));
+        store.writePage(PROFILE, 2, createPage(NewsQuery.PAGE_SIZE, NewsQuery.PAGE_SIZE, ""));
+        store.writeResponse(PROFILE, 1, new CachedResponse("url-1", "etag-1", "last-modified-1", 1000));
+        store.writeResponse(PROFILE, 2, new CachedResponse("url-2", "etag-2", "last-modified-2", 2000));
+
+        // a newer article on top shifts both pages by one article
+        store.writePages(PROFILE, createPage(-1, 2 * NewsQuery.PAGE_SIZE + 1, ""), NewsQuery.PAGE_SIZE);
+
+        int page;
+        for (page = 1; page <= 2; page++) {
+            CachedResponse cachedResponse = store.readResponse(PROFILE, page);
+            assertFalse(cachedResponse.hasValidators());
+            assertEquals(page * 1000, cachedResponse.getFetchedAtMillis());
+        }
+        assertEquals(1, store.readPage(PROFILE, 3).size());
+    }
+
+    @Test
+    public void storeIsTrimmedByWholePagesLeastRecentlyUsedFirst() {
+        int pageCount = NewsArticleStore.MAX_STORED_ARTICLES / NewsQuery.PAGE_SIZE;
+        int page;
+        // pages 1 - 3 are the oldest ones, but page 1 is revalidated after the others were written
+        for (page = 1; page <= pageCount; page++) {
+            store.writePage(PROFILE, page, createPage(page * NewsQuery.PAGE_SIZE, NewsQuery.PAGE_SIZE, ""));
+            if (page == 3) {
+                SystemClock.sleep(10);
+            }
+        }
+        SystemClock.sleep(10);
+        store.writeResponse(PROFILE, 1, new CachedResponse("url", "etag", null, System.currentTimeMillis()));
+        assertEquals(NewsQuery.PAGE_SIZE, store.readPage(PROFILE, 2).size());
+
+        store.writePage(PROFILE, pageCount + 1, createPage(0, NewsQuery.PAGE_SIZE, ""));
+
+        assertTrue(store.readAllArticles(Integer.MAX_VALUE).size() <= NewsArticleStore.TRIMMED_ARTICLES);
+        assertEquals(NewsQuery.PAGE_SIZE, store.readPage(PROFILE, 1).size());
+        assertEquals(NewsQuery.PAGE_SIZE, store.readPage(PROFILE, pageCount + 1).size());
+        assertTrue(store.readPage(PROFILE, 2).isEmpty());
+        assertTrue(store.readPage(PROFILE, 3).isEmpty());
+        for (page = 1; page <= pageCount + 1; page++) {
+            int pageSize = store.readPage(PROFILE, page).size();
+            assertTrue(pageSize == 0 || pageSize == NewsQuery.PAGE_SIZE);
+        }
+    }
+
+    private static List<NewsArticle> createPage(int firstIndex, int count, String headlineSuffix) {
+        List<NewsArticle> newsArticleList = new ArrayList<NewsArticle>(count);
+        int index;
+        for (index = firstIndex; index < firstIndex + count; index++) {
+            newsArticleList.add(new NewsArticle("Headline " + index + headlineSuffix, "by Guardian staff",
+                    "2017-08-01T10:00:00Z", 1501581600000L - index * 60000L, "Trail text " + index,
+                    null, "https://www.theguardian.com/article-" + index, "World news"));
+        }
+        return newsArticleList;
+    }
+}
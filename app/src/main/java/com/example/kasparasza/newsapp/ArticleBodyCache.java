@@ -0,0 +1,130 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local storage of the article bodies used by the offline reading mode: the HTML body of each article is kept
+ * gzip-compressed (bodies compress to roughly a quarter of their size) in a {@link DiskFileCache}, keyed by the
+ * articleLink. The total size is capped; the least recently read bodies are deleted first.
+ * The methods do disk I/O (apart from contains(), which is answered from memory once the directory of the cache
+ * has been listed in the background), so they are meant to be called on a background thread.
+ */
+
+public class ArticleBodyCache {
+
+    // String constants used:
+    private static final String LOG_TAG = ArticleBodyCache.class.getSimpleName();
+    private static final String DISK_CACHE_DIRECTORY = "article_bodies";
+    private static final long DISK_CACHE_BYTES = 10 * 1024 * 1024;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // the single instance of the cache, shared by all the components of the app
+    private static ArticleBodyCache instance;
+
+    // members of the class:
+    private DiskFileCache diskCache;
+
+    /**
+     * Returns the single instance of the cache
+     * @param context any context of the app
+     * @return ArticleBodyCache
+     */
+    static synchronized ArticleBodyCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new ArticleBodyCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ArticleBodyCache(Context context) {
+        diskCache = new DiskFileCache(new File(context.getCacheDir(), DISK_CACHE_DIRECTORY), DISK_CACHE_BYTES);
+        // the directory is listed in the background, so that contains() does not touch the disk on the UI thread
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                diskCache.loadIndex();
+            }
+        }, LOG_TAG).start();
+    }
+
+    /**
+     * @param articleLink link of the article
+     * @return true if the body of the article is stored (the names of the stored files are held in memory,
+     * so the method is cheap enough for the UI thread)
+     */
+    public boolean contains(String articleLink) {
+        return diskCache.contains(articleLink);
+    }
+
+    /**
+     * Reads the body of an article and marks it as recently used
+     * @param articleLink link of the article
+     * @return HTML body of the article, or null if it is not stored (or can not be read)
+     */
+    public String get(String articleLink) {
+        File file = diskCache.get(articleLink);
+        if (file == null) {
+            return null;
+        }
+        Reader reader = null;
+        try {
+            reader = new InputStreamReader(new GZIPInputStream(new FileInputStream(file), BUFFER_SIZE), UTF_8);
+            StringBuilder body = new StringBuilder((int) file.length() * 4);
+            char[] buffer = new char[BUFFER_SIZE];
+            int count;
+            while ((count = reader.read(buffer)) != -1) {
+                body.append(buffer, 0, count);
+            }
+            return body.toString();
+        } catch (IOException exc_01) {
+            Log.e(LOG_TAG, "Stored body of the article can not be read " + exc_01);
+            return null;
+        } finally {
+            closeQuietly(reader);
+        }
+    }
+
+    /**
+     * Compresses and stores the body of an article (it replaces the stored body, if there is one)
+     * @param articleLink link of the article
+     * @param body HTML body of the article
+     */
+    public void put(String articleLink, String body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length() / 3);
+        Writer writer = new OutputStreamWriter(new GZIPOutputStream(compressed, BUFFER_SIZE), UTF_8);
+        try {
+            writer.write(body);
+        } finally {
+            writer.close();
+        }
+        InputStream inputStream = new ByteArrayInputStream(compressed.toByteArray());
+        diskCache.put(articleLink, inputStream);
+    }
+
+    private static void closeQuietly(Reader reader) {
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (IOException exc_02) {
+            // nothing to be done - the body was read already
+        }
+    }
+}
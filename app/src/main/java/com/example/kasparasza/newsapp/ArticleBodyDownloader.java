@@ -0,0 +1,107 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Custom class that downloads the bodies of the top articles of the feed for the offline reading mode:
+ * the bodies of the first TOP_ARTICLES articles that are not stored yet are requested in a single http query
+ * and written to {@link ArticleBodyCache}, so that the articles can be opened in {@link ArticleReaderActivity}
+ * without the network.
+ * The downloads run in the background: on a thread of the downloader when the first page of the feed is shown
+ * (only on an unmetered network), or on the thread of the background sync job.
+ */
+
+public class ArticleBodyDownloader {
+
+    // String constants used:
+    private static final String LOG_TAG = ArticleBodyDownloader.class.getSimpleName();
+    // number of the top articles of the feed whose bodies are downloaded
+    static final int TOP_ARTICLES = 10;
+
+    // the single instance of the downloader, shared by all the components of the app
+    private static ArticleBodyDownloader instance;
+
+    // members of the class:
+    private Context context;
+    private ArticleBodyCache bodyCache;
+    // a single thread, so that the downloads of consecutive pages do not run (and request the same bodies) at once
+    private ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Returns the single instance of the downloader
+     * @param context any context of the app
+     * @return ArticleBodyDownloader
+     */
+    static synchronized ArticleBodyDownloader getInstance(Context context) {
+        if (instance == null) {
+            instance = new ArticleBodyDownloader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ArticleBodyDownloader(Context mContext) {
+        context = mContext;
+        bodyCache = ArticleBodyCache.getInstance(mContext);
+    }
+
+    /**
+     * Downloads the bodies of the top articles on a background thread, if the active network is not metered
+     * @param newsArticleList the first page of the feed
+     */
+    public void downloadInBackground(List<NewsArticle> newsArticleList) {
+        if (ConnectivityMonitor.getInstance(context).isMetered()) {
+            return;
+        }
+        final List<NewsArticle> topArticles = new ArrayList<NewsArticle>(
+                newsArticleList.subList(0, Math.min(TOP_ARTICLES, newsArticleList.size())));
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                download(topArticles);
+            }
+        });
+    }
+
+    /**
+     * Downloads and stores the bodies of the top articles that are not stored yet
+     * (it does network and disk I/O, so it has to be called on a background thread)
+     * @param newsArticleList the first page of the feed
+     * @return number of the bodies that were stored
+     */
+    public int download(List<NewsArticle> newsArticleList) {
+        List<String> missingLinks = new ArrayList<String>(TOP_ARTICLES);
+        for (NewsArticle newsArticle : newsArticleList) {
+            if (missingLinks.size() == TOP_ARTICLES) {
+                break;
+            }
+            String articleLink = newsArticle.getArticleLink();
+            if (!articleLink.isEmpty() && !bodyCache.contains(articleLink)) {
+                missingLinks.add(articleLink);
+            }
+        }
+        if (missingLinks.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, String> bodies = AppUtilities.getArticleBodiesFromHttp(NewsQuery.createBodiesUrlString(missingLinks));
+        int storedCount = 0;
+        for (Map.Entry<String, String> entry : bodies.entrySet()) {
+            try {
+                bodyCache.put(entry.getKey(), entry.getValue());
+                storedCount++;
+            } catch (IOException exc_01) {
+                Log.e(LOG_TAG, "Body of the article can not be stored " + exc_01);
+            }
+        }
+        Log.d(LOG_TAG, "Stored " + storedCount + " of " + missingLinks.size() + " missing article bodies");
+        return storedCount;
+    }
+}
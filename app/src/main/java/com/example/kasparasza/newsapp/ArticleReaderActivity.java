@@ -0,0 +1,128 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.v7.app.AppCompatActivity;
+import android.text.Html;
+import android.text.method.LinkMovementMethod;
+import android.util.Log;
+import android.view.ViewTreeObserver;
+import android.widget.TextView;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Activity of the offline reading mode: it renders the body of an article from {@link ArticleBodyCache},
+ * so that an article opens without the network and without a cold start of the browser.
+ * The body is read, decompressed and parsed from HTML on a background thread; the time from the tap on the row
+ * to the first frame that shows the body (open-to-render latency) is measured and logged.
+ * If the body is not stored any more (e.g. it was trimmed from the cache), the article is opened in the browser.
+ */
+
+public class ArticleReaderActivity extends AppCompatActivity {
+
+    // String constants used:
+    private static final String LOG_TAG = ArticleReaderActivity.class.getSimpleName();
+    private static final String EXTRA_ARTICLE = "ARTICLE";
+    private static final String EXTRA_OPENED_AT = "OPENED_AT";
+
+    // members of the class:
+    private NewsArticle newsArticle;
+    private TextView bodyView;
+    // uptime at which the article was opened (the tap on the row)
+    private long openedAtMillis;
+    private BodyLoadTask bodyLoadTask;
+
+    /**
+     * Creates an Intent that opens an article in the reader
+     * @param context context of the caller
+     * @param newsArticle the article; its body has to be stored in ArticleBodyCache
+     * @return Intent
+     */
+    static Intent createIntent(Context context, NewsArticle newsArticle) {
+        Intent intent = new Intent(context, ArticleReaderActivity.class);
+        intent.putExtra(EXTRA_ARTICLE, newsArticle);
+        intent.putExtra(EXTRA_OPENED_AT, SystemClock.uptimeMillis());
+        return intent;
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_article_reader);
+
+        newsArticle = getIntent().getParcelableExtra(EXTRA_ARTICLE);
+        openedAtMillis = getIntent().getLongExtra(EXTRA_OPENED_AT, SystemClock.uptimeMillis());
+
+        // the fields of the list row are shown at once, the body follows when it has been read
+        ((TextView) findViewById(R.id.reader_headline_view)).setText(newsArticle.getHeadline());
+        ((TextView) findViewById(R.id.reader_author_view)).setText(newsArticle.getAuthor());
+        ((TextView) findViewById(R.id.reader_time_view)).setText(newsArticle.getTimePublished());
+        bodyView = (TextView) findViewById(R.id.reader_body_view);
+        bodyView.setMovementMethod(LinkMovementMethod.getInstance());
+
+        bodyLoadTask = new BodyLoadTask(this);
+        bodyLoadTask.execute(newsArticle.getArticleLink());
+    }
+
+    @Override
+    protected void onDestroy() {
+        bodyLoadTask.cancel(false);
+        super.onDestroy();
+    }
+
+    // shows the body, and measures the latency once the frame with the body is drawn
+    private void showBody(CharSequence body) {
+        if (body == null) {
+            Log.d(LOG_TAG, "Body of the article is not stored, it is opened in the browser");
+            Intent openArticleInWeb = new Intent(Intent.ACTION_VIEW);
+            openArticleInWeb.setData(Uri.parse(newsArticle.getArticleLink()));
+            startActivity(openArticleInWeb);
+            finish();
+            return;
+        }
+        bodyView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                bodyView.getViewTreeObserver().removeOnPreDrawListener(this);
+                Log.d(LOG_TAG, "Open-to-render latency: " + (SystemClock.uptimeMillis() - openedAtMillis) + " ms");
+                return true;
+            }
+        });
+        bodyView.setText(body);
+    }
+
+    // reads the stored body and parses it from HTML; a weak reference is kept, so that the Activity is not leaked
+    private static class BodyLoadTask extends AsyncTask<String, Void, CharSequence> {
+
+        private WeakReference<ArticleReaderActivity> activityReference;
+        private ArticleBodyCache bodyCache;
+
+        private BodyLoadTask(ArticleReaderActivity activity) {
+            activityReference = new WeakReference<ArticleReaderActivity>(activity);
+            bodyCache = ArticleBodyCache.getInstance(activity);
+        }
+
+        @Override
+        protected CharSequence doInBackground(String... articleLinks) {
+            String body = bodyCache.get(articleLinks[0]);
+            if (body == null) {
+                return null;
+            }
+            // images of the body are not downloaded - the reader shows the text only
+            return Html.fromHtml(body);
+        }
+
+        @Override
+        protected void onPostExecute(CharSequence body) {
+            ArticleReaderActivity activity = activityReference.get();
+            if (activity != null && !activity.isFinishing()) {
+                activity.showBody(body);
+            }
+        }
+    }
+}
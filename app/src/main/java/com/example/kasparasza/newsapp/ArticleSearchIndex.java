@@ -0,0 +1,336 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * On-device full-text index of the cached NewsArticle objects: headline, trail text, author and section of each
+ * article are split into lower-case tokens (HTML tags and entities of the trail text are skipped), and each token
+ * points to the sorted list of the documents it occurs in (inverted index).
+ * - The index is filled from NewsArticleStore in the background when it is first used, and is then updated
+ *   incrementally with each page that is shown; a changed article replaces its previous copy.
+ * - Search-as-you-type: all the words of the query have to match; the last word is matched as a prefix (unless
+ *   the query ends with a space), using the sorted map of the tokens. The documents of each word are collected
+ *   into a BitSet, and the BitSets of the words are intersected.
+ * - The index holds at most MAX_DOCUMENTS articles; the ones indexed first are dropped first. Removed documents
+ *   are masked out of the results, and the index is rebuilt once they outnumber the live ones.
+ * The methods are thread-safe; a search of 10k articles takes a few milliseconds, so it can run on the UI thread.
+ */
+
+public class ArticleSearchIndex {
+
+    // String constants used:
+    private static final String LOG_TAG = ArticleSearchIndex.class.getSimpleName();
+    // the most articles held by the index
+    static final int MAX_DOCUMENTS = 10000;
+    // the most articles returned by a search
+    static final int MAX_RESULTS = 200;
+    // number of stored articles indexed at once while the index is filled (the index is locked meanwhile)
+    private static final int FILL_BATCH_SIZE = 100;
+    // upper bound of the tokens that start with a prefix
+    private static final char PREFIX_END = '\uffff';
+
+    // the single instance of the index, shared by all the components of the app
+    private static ArticleSearchIndex instance;
+
+    // members of the class:
+    // indexed articles by their document id (null once removed)
+    private List<NewsArticle> documents = new ArrayList<NewsArticle>();
+    // document ids by the articleLink of the article
+    private Map<String, Integer> documentIds = new HashMap<String, Integer>();
+    // document ids of each token, in ascending order
+    private TreeMap<String, IntList> postings = new TreeMap<String, IntList>();
+    // ids of the removed documents (they are still referenced by the postings until the index is rebuilt)
+    private BitSet removedDocuments = new BitSet();
+    // the oldest document id that may be live (documents are evicted in the order they were added)
+    private int oldestDocument;
+
+    /**
+     * Returns the single instance of the index; when it is created, the articles of NewsArticleStore are
+     * indexed on a background thread
+     * @param context any context of the app
+     * @return ArticleSearchIndex
+     */
+    static synchronized ArticleSearchIndex getInstance(Context context) {
+        if (instance == null) {
+            instance = new ArticleSearchIndex();
+            instance.fillFromStore(NewsArticleStore.getInstance(context.getApplicationContext()));
+        }
+        return instance;
+    }
+
+    // constructor of an empty index (used by the unit tests)
+    ArticleSearchIndex() {
+    }
+
+    // indexes the stored articles in the background; the articles indexed meanwhile (newer copies) are kept
+    private void fillFromStore(final NewsArticleStore store) {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long startTime = SystemClock.elapsedRealtime();
+                List<NewsArticle> storedArticles = store.readAllArticles(MAX_DOCUMENTS);
+                int start;
+                for (start = 0; start < storedArticles.size(); start += FILL_BATCH_SIZE) {
+                    addIfAbsent(storedArticles.subList(start, Math.min(start + FILL_BATCH_SIZE, storedArticles.size())));
+                }
+                Log.d(LOG_TAG, "Indexed " + getDocumentCount() + " stored articles in "
+                        + (SystemClock.elapsedRealtime() - startTime) + " ms");
+            }
+        }, LOG_TAG).start();
+    }
+
+    /**
+     * Adds the articles of a page to the index; an article that is indexed already is replaced if it has changed
+     * @param newsArticleList a list of NewsArticle objects (null items are skipped)
+     */
+    public synchronized void addArticles(List<NewsArticle> newsArticleList) {
+        for (NewsArticle newsArticle : newsArticleList) {
+            if (newsArticle == null) {
+                continue;
+            }
+            Integer documentId = documentIds.get(newsArticle.getArticleLink());
+            if (documentId != null) {
+                NewsArticle indexedArticle = documents.get(documentId);
+                if (hasSameIndexedFields(indexedArticle, newsArticle)) {
+                    // the tokens are the same - only the shown copy is updated
+                    documents.set(documentId, newsArticle);
+                    continue;
+                }
+                removeDocument(documentId);
+            }
+            addDocument(newsArticle);
+        }
+        trimToSize();
+    }
+
+    // adds the articles that are not indexed yet
+    private synchronized void addIfAbsent(List<NewsArticle> newsArticleList) {
+        for (NewsArticle newsArticle : newsArticleList) {
+            if (!documentIds.containsKey(newsArticle.getArticleLink())) {
+                addDocument(newsArticle);
+            }
+        }
+        trimToSize();
+    }
+
+    /**
+     * Finds the articles that match all the words of a query
+     * @param query text typed by the user; the last word is matched as a prefix, unless it is followed by a space
+     * @return List<NewsArticle> up to MAX_RESULTS matching articles, the newest first; empty if the query has no words
+     */
+    public synchronized List<NewsArticle> search(String query) {
+        long startTime = System.nanoTime();
+        List<String> words = new ArrayList<String>();
+        tokenize(query, false, words);
+        List<NewsArticle> results = new ArrayList<NewsArticle>();
+        if (words.isEmpty()) {
+            return results;
+        }
+        boolean lastWordIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+
+        BitSet matches = null;
+        int index;
+        for (index = 0; index < words.size(); index++) {
+            String word = words.get(index);
+            BitSet wordMatches = new BitSet(documents.size());
+            if (lastWordIsPrefix && index == words.size() - 1) {
+                for (IntList documentList : postings.subMap(word, word + PREFIX_END).values()) {
+                    documentList.setAllIn(wordMatches);
+                }
+            } else {
+                IntList documentList = postings.get(word);
+                if (documentList != null) {
+                    documentList.setAllIn(wordMatches);
+                }
+            }
+            if (matches == null) {
+                matches = wordMatches;
+            } else {
+                matches.and(wordMatches);
+            }
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        matches.andNot(removedDocuments);
+
+        int documentId;
+        for (documentId = matches.nextSetBit(0); documentId >= 0; documentId = matches.nextSetBit(documentId + 1)) {
+            results.add(documents.get(documentId));
+        }
+        Collections.sort(results, NEWEST_FIRST);
+        if (results.size() > MAX_RESULTS) {
+            results = new ArrayList<NewsArticle>(results.subList(0, MAX_RESULTS));
+        }
+        // the query typed by the user is not logged; the timing is only logged if it is enabled
+        // (adb shell setprop log.tag.ArticleSearchIndex DEBUG)
+        if (Log.isLoggable(LOG_TAG, Log.DEBUG)) {
+            Log.d(LOG_TAG, "Search of " + words.size() + " words: " + matches.cardinality() + " matches of "
+                    + getDocumentCount() + " articles in " + (System.nanoTime() - startTime) / 1000 + " us");
+        }
+        return results;
+    }
+
+    /**
+     * @return number of the articles in the index
+     */
+    public synchronized int getDocumentCount() {
+        return documentIds.size();
+    }
+
+    // adds an article under a new document id
+    private void addDocument(NewsArticle newsArticle) {
+        int documentId = documents.size();
+        documents.add(newsArticle);
+        documentIds.put(newsArticle.getArticleLink(), documentId);
+        for (String token : collectTokens(newsArticle)) {
+            IntList documentList = postings.get(token);
+            if (documentList == null) {
+                documentList = new IntList();
+                postings.put(token, documentList);
+            }
+            documentList.add(documentId);
+        }
+    }
+
+    // masks a document out of the results; its postings are dropped when the index is rebuilt
+    private void removeDocument(int documentId) {
+        NewsArticle newsArticle = documents.set(documentId, null);
+        documentIds.remove(newsArticle.getArticleLink());
+        removedDocuments.set(documentId);
+    }
+
+    // evicts the oldest documents while there are too many, and rebuilds the index if most of it is removed
+    private void trimToSize() {
+        while (documentIds.size() > MAX_DOCUMENTS) {
+            if (documents.get(oldestDocument) != null) {
+                removeDocument(oldestDocument);
+            }
+            oldestDocument++;
+        }
+        if (removedDocuments.cardinality() > documentIds.size()) {
+            rebuild();
+        }
+    }
+
+    // indexes the live documents anew, under consecutive document ids
+    private void rebuild() {
+        List<NewsArticle> liveDocuments = new ArrayList<NewsArticle>(documentIds.size());
+        for (NewsArticle newsArticle : documents) {
+            if (newsArticle != null) {
+                liveDocuments.add(newsArticle);
+            }
+        }
+        documents = new ArrayList<NewsArticle>(liveDocuments.size());
+        documentIds.clear();
+        postings.clear();
+        removedDocuments.clear();
+        oldestDocument = 0;
+        for (NewsArticle newsArticle : liveDocuments) {
+            addDocument(newsArticle);
+        }
+    }
+
+    // distinct tokens of the indexed fields of an article
+    private static Set<String> collectTokens(NewsArticle newsArticle) {
+        List<String> tokens = new ArrayList<String>();
+        tokenize(newsArticle.getHeadline(), false, tokens);
+        tokenize(newsArticle.getStartText(), true, tokens);
+        tokenize(newsArticle.getAuthor(), false, tokens);
+        tokenize(newsArticle.getSection(), false, tokens);
+        return new HashSet<String>(tokens);
+    }
+
+    /**
+     * Splits a text into lower-case tokens of letters and digits
+     * @param text the text, may be null
+     * @param html true if the text is HTML (the tags and entities are skipped)
+     * @param tokens list to which the tokens are added
+     */
+    static void tokenize(String text, boolean html, List<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int tokenStart = -1;
+        int index;
+        for (index = 0; index <= length; index++) {
+            char current = index < length ? text.charAt(index) : ' ';
+            if (Character.isLetterOrDigit(current)) {
+                if (tokenStart < 0) {
+                    tokenStart = index;
+                }
+                continue;
+            }
+            if (tokenStart >= 0) {
+                tokens.add(text.substring(tokenStart, index).toLowerCase(Locale.ROOT));
+                tokenStart = -1;
+            }
+            if (html && (current == '<' || current == '&')) {
+                // the tag or the entity is skipped (an unterminated one is treated as text)
+                int end = text.indexOf(current == '<' ? '>' : ';', index);
+                if (end > 0 && (current == '<' || end - index <= 10)) {
+                    index = end;
+                }
+            }
+        }
+    }
+
+    // two copies of an article have the same tokens if their indexed fields are equal
+    private static boolean hasSameIndexedFields(NewsArticle article1, NewsArticle article2) {
+        return equalOrBothNull(article1.getHeadline(), article2.getHeadline())
+                && equalOrBothNull(article1.getStartText(), article2.getStartText())
+                && equalOrBothNull(article1.getAuthor(), article2.getAuthor())
+                && equalOrBothNull(article1.getSection(), article2.getSection());
+    }
+
+    private static boolean equalOrBothNull(String value1, String value2) {
+        return value1 == null ? value2 == null : value1.equals(value2);
+    }
+
+    // results are sorted by their publishing time (articles with an unknown time go last)
+    private static final Comparator<NewsArticle> NEWEST_FIRST = new Comparator<NewsArticle>() {
+        @Override
+        public int compare(NewsArticle article1, NewsArticle article2) {
+            long time1 = article1.getTimePublishedMillis();
+            long time2 = article2.getTimePublishedMillis();
+            return time1 > time2 ? -1 : (time1 == time2 ? 0 : 1);
+        }
+    };
+
+    // growable list of ints (the document ids of a token), without the boxing of List<Integer>
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            if (size == values.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+            values[size++] = value;
+        }
+
+        private void setAllIn(BitSet bitSet) {
+            int index;
+            for (index = 0; index < size; index++) {
+                bitSet.set(values[index]);
+            }
+        }
+    }
+}
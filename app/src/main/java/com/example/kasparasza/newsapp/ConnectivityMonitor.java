@@ -0,0 +1,161 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.support.v4.net.ConnectivityManagerCompat;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process-wide monitor of the network connection. ConnectivityManager is only queried when the system announces
+ * a change of connectivity (CONNECTIVITY_ACTION broadcast); the result is cached in an immutable snapshot that is
+ * published through a volatile field, so reading the state (e.g. on each scroll event) costs no Binder IPC.
+ * The snapshot holds whether there is a connection, whether it is metered and its transport type.
+ * Listeners are informed on the UI thread when the state changes (e.g. to resume work once the network is back).
+ */
+
+public class ConnectivityMonitor {
+
+    // String constants used:
+    private static final String LOG_TAG = ConnectivityMonitor.class.getSimpleName();
+    // transport type reported when there is no connection
+    public static final int TYPE_NONE = -1;
+
+    /**
+     * Interface that is used to inform about a change of the connection
+     */
+    public interface Listener {
+        void onConnectivityChanged(ConnectivityMonitor monitor);
+    }
+
+    // the single instance of the monitor, shared by all the components of the app
+    private static ConnectivityMonitor instance;
+
+    // members of the class:
+    private ConnectivityManager connectivityManager;
+    // the last known state; replaced as a whole, so that its fields are always read consistently
+    private volatile State state;
+    // listeners are added, removed and called on the UI thread
+    private List<Listener> listeners = new ArrayList<Listener>();
+
+    /**
+     * Returns the single instance of the monitor; it is registered for the connectivity broadcasts
+     * for as long as the process lives
+     * @param context any context of the app
+     * @return ConnectivityMonitor
+     */
+    static synchronized ConnectivityMonitor getInstance(Context context) {
+        if (instance == null) {
+            instance = new ConnectivityMonitor(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ConnectivityMonitor(Context context) {
+        connectivityManager = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        state = queryState();
+        // the receiver is called on the UI thread; a sticky broadcast is delivered at once - it only refreshes the state
+        context.registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                onConnectivityBroadcast();
+            }
+        }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    /**
+     * @return true if there is a network connection
+     */
+    public boolean isConnected() {
+        return state.connected;
+    }
+
+    /**
+     * @return true if the connection is metered (or if there is no connection); large downloads
+     * (e.g. prefetching of the article bodies) should wait for an unmetered one
+     */
+    public boolean isMetered() {
+        return state.metered;
+    }
+
+    /**
+     * @return transport type of the connection (one of ConnectivityManager.TYPE_* constants), or TYPE_NONE
+     */
+    public int getTransportType() {
+        return state.transportType;
+    }
+
+    /**
+     * Adds a listener that is informed about the changes of the connection (on the UI thread)
+     * @param listener Listener
+     */
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) {
+            listeners.add(listener);
+        }
+    }
+
+    /**
+     * @param listener Listener added before
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // re-reads the state after a change has been announced, and informs the listeners if it has really changed
+    private void onConnectivityBroadcast() {
+        State newState = queryState();
+        State oldState = state;
+        state = newState;
+        if (newState.equals(oldState)) {
+            return;
+        }
+        Log.d(LOG_TAG, "Connection changed: connected " + newState.connected + ", metered " + newState.metered
+                + ", transport type " + newState.transportType);
+        for (Listener listener : new ArrayList<Listener>(listeners)) {
+            listener.onConnectivityChanged(this);
+        }
+    }
+
+    // the only place where ConnectivityManager is queried
+    private State queryState() {
+        NetworkInfo activeNetwork = connectivityManager.getActiveNetworkInfo();
+        boolean connected = activeNetwork != null && activeNetwork.isConnected();
+        return new State(connected,
+                !connected || ConnectivityManagerCompat.isActiveNetworkMetered(connectivityManager),
+                connected ? activeNetwork.getType() : TYPE_NONE);
+    }
+
+    // immutable snapshot of the state of the connection
+    private static class State {
+        private final boolean connected;
+        private final boolean metered;
+        private final int transportType;
+
+        private State(boolean mConnected, boolean mMetered, int mTransportType) {
+            connected = mConnected;
+            metered = mMetered;
+            transportType = mTransportType;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            if (!(object instanceof State)) {
+                return false;
+            }
+            State other = (State) object;
+            return connected == other.connected && metered == other.metered && transportType == other.transportType;
+        }
+
+        @Override
+        public int hashCode() {
+            return (connected ? 1 : 0) + (metered ? 2 : 0) + 4 * transportType;
+        }
+    }
+}
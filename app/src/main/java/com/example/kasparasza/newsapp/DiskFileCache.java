@@ -0,0 +1,212 @@
+package com.example.kasparasza.newsapp;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Disk cache of downloaded content (e.g. the encoded thumbnails, as received over the network): each entry is
+ * kept as a file in a directory of the app cache, named by the digest of its key (the link of the content).
+ * The total size of the files is capped; when the cap is exceeded, the least recently used files are deleted
+ * (the last-modified time of a file is updated each time it is read).
+ * The names of the cached files are also held in memory, once the directory has been listed (see loadIndex()),
+ * so that contains() neither waits for the lock of the cache nor touches the disk.
+ * The methods are thread-safe.
+ */
+
+public class DiskFileCache {
+
+    // String constants used:
+    private static final String LOG_TAG = DiskFileCache.class.getSimpleName();
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // members of the class:
+    private File directory;
+    private long maxBytes;
+    // total size of the files in the directory (-1 until it is measured)
+    private long sizeBytes = -1;
+    // names of the cached files (complete from the time the directory is listed, see measureSize())
+    private final Set<String> fileNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private volatile boolean indexed;
+
+    // constructor
+    public DiskFileCache(File mDirectory, long mMaxBytes) {
+        directory = mDirectory;
+        maxBytes = mMaxBytes;
+    }
+
+    /**
+     * Returns the cached file of an entry and marks it as recently used
+     * @param url link of the content
+     * @return File or null if the content is not cached
+     */
+    synchronized File get(String url) {
+        String fileName = createFileName(url);
+        File file = new File(directory, fileName);
+        if (!file.isFile()) {
+            // the file may have been deleted by the system (e.g. the app cache was cleared)
+            fileNames.remove(fileName);
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Checks whether an entry is cached; once the directory has been listed, only the names held in memory are
+     * checked (so the method is cheap enough for the UI thread), otherwise the presence of the file is checked.
+     * A file deleted by the system may still be reported as cached, so get() can return null afterwards.
+     * @param url link of the content
+     * @return true if the content is cached (the entry is not marked as recently used)
+     */
+    boolean contains(String url) {
+        String fileName = createFileName(url);
+        if (indexed) {
+            return fileNames.contains(fileName);
+        }
+        return new File(directory, fileName).isFile();
+    }
+
+    /**
+     * Lists the directory, so that contains() can be answered from memory (e.g. called on a background thread
+     * when the cache is created); it is done at the latest when the cache is written to for the first time
+     */
+    synchronized void loadIndex() {
+        measureSize();
+    }
+
+    /**
+     * Writes an entry to the cache; the file only becomes visible to get() once it is complete
+     * @param url link of the content
+     * @param inputStream the content (it is read to its end, but not closed)
+     * @return the cached File
+     */
+    File put(String url, InputStream inputStream) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cache directory can not be created: " + directory);
+        }
+        String fileName = createFileName(url);
+        File tempFile = new File(directory, fileName + "." + Thread.currentThread().getId() + TEMP_FILE_SUFFIX);
+        OutputStream outputStream = new FileOutputStream(tempFile);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+        } catch (IOException exc_01) {
+            outputStream.close();
+            tempFile.delete();
+            throw exc_01;
+        }
+        outputStream.close();
+
+        synchronized (this) {
+            File file = new File(directory, fileName);
+            long replacedBytes = file.length();
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                throw new IOException("Entry can not be written to the cache: " + file);
+            }
+            if (sizeBytes >= 0) {
+                sizeBytes += file.length() - replacedBytes;
+            }
+            fileNames.add(fileName);
+            trimToSize();
+            return file;
+        }
+    }
+
+    /**
+     * @return total size of the cached files in bytes
+     */
+    synchronized long getSizeBytes() {
+        measureSize();
+        return sizeBytes;
+    }
+
+    // deletes the least recently used files while the cap is exceeded
+    private void trimToSize() {
+        measureSize();
+        if (sizeBytes <= maxBytes) {
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                long lastModified1 = file1.lastModified();
+                long lastModified2 = file2.lastModified();
+                return lastModified1 < lastModified2 ? -1 : (lastModified1 == lastModified2 ? 0 : 1);
+            }
+        });
+        for (File file : files) {
+            if (sizeBytes <= maxBytes) {
+                break;
+            }
+            // files that are still being written are skipped
+            if (file.getName().endsWith(TEMP_FILE_SUFFIX)) {
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                sizeBytes -= length;
+                fileNames.remove(file.getName());
+            }
+        }
+        Log.d(LOG_TAG, "Trimmed to " + sizeBytes + " bytes");
+    }
+
+    // the size of the directory is measured once, the first time it is needed; the names of the files are
+    // recorded at the same time
+    private void measureSize() {
+        if (sizeBytes >= 0) {
+            return;
+        }
+        sizeBytes = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                sizeBytes += file.length();
+                if (!file.getName().endsWith(TEMP_FILE_SUFFIX)) {
+                    fileNames.add(file.getName());
+                }
+            }
+        }
+        indexed = true;
+    }
+
+    // name of the file of an entry: hex digest of its link
+    private static String createFileName(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(url.getBytes("UTF-8"));
+            StringBuilder fileName = new StringBuilder(digest.length * 2);
+            for (byte digestByte : digest) {
+                fileName.append(Character.forDigit((digestByte >> 4) & 0xF, 16));
+                fileName.append(Character.forDigit(digestByte & 0xF, 16));
+            }
+            return fileName.toString();
+        } catch (NoSuchAlgorithmException exc_02) {
+            // MD5 is always available on Android; the hash code is a fallback only
+            return Integer.toHexString(url.hashCode());
+        } catch (UnsupportedEncodingException exc_03) {
+            return Integer.toHexString(url.hashCode());
+        }
+    }
+}
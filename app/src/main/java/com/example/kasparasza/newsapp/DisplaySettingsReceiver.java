@@ -0,0 +1,25 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+import com.example.kasparasza.newsapp.core.TimestampCodec;
+
+/**
+ * Receiver of the changes of the time zone and of the locale of the device: the publishing times are formatted
+ * for display with the time zone and the locale that TimestampCodec keeps, so it is told to read them again.
+ * The articles loaded afterwards (and the stored articles, whose times are formatted when they are read)
+ * are displayed with the new settings.
+ */
+
+public class DisplaySettingsReceiver extends BroadcastReceiver {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        if (Intent.ACTION_TIMEZONE_CHANGED.equals(intent.getAction())
+                || Intent.ACTION_LOCALE_CHANGED.equals(intent.getAction())) {
+            TimestampCodec.onDisplaySettingsChanged();
+        }
+    }
+}
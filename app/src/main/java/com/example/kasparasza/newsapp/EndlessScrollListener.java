@@ -2,19 +2,18 @@ package com.example.kasparasza.newsapp;
 
 import android.app.Application;
 import android.content.Context;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
-import android.widget.AbsListView;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.widget.Toast;
 
 /**
- * An abstract class that will be implemented by our ListView.
+ * An abstract class that will be implemented by our RecyclerView (with a LinearLayoutManager).
  * It will load automatically more items as the user scrolls through the items (aka infinite scroll).
  * This is done by triggering a request for more data once the user crosses a threshold of remaining items before they've hit the end.
  * Source: https://github.com/codepath/android_guides/wiki/Endless-Scrolling-with-AdapterViews-and-RecyclerView
  */
 
-public abstract class EndlessScrollListener implements AbsListView.OnScrollListener {
+public abstract class EndlessScrollListener extends RecyclerView.OnScrollListener {
     // The minimum number of items to have below your current scroll position
     // before loading more.
     private int visibleThreshold = 5;
@@ -26,11 +25,14 @@ public abstract class EndlessScrollListener implements AbsListView.OnScrollListe
     private boolean loading = true;
     // Sets the starting page index
     private int startingPageIndex = 0;
-    // context will be needed in order to access SystemService - CONNECTIVITY_SERVICE
-    private Context context;
+    // cached state of the network connection (no Binder IPC is made on the scroll events);
+    // obtained from the context, or from the RecyclerView on the first scroll event
+    private ConnectivityMonitor connectivityMonitor;
+    // while paused, the scroll events are ignored (e.g. the RecyclerView shows search results instead of the feed)
+    private boolean paused;
 
     public EndlessScrollListener(Context mContext) {
-        context = mContext;
+        connectivityMonitor = ConnectivityMonitor.getInstance(mContext);
     }
 
     public EndlessScrollListener(int visibleThreshold) {
@@ -47,36 +49,37 @@ public abstract class EndlessScrollListener implements AbsListView.OnScrollListe
     public EndlessScrollListener(int startPage, Context mContext) {
         this.startingPageIndex = startPage;
         this.currentPage = startPage;
-        context = mContext;
-    }
-
-    /**
-     * Method that checks whether there is a network connection
-     * @return boolean that is true is there is a connection
-     */
-    private boolean checkNetworkConnection() {
-        ConnectivityManager cm =
-                (ConnectivityManager) this.context.getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
-        boolean isConnected = activeNetwork != null &&
-                activeNetwork.isConnected();
-        return isConnected;
+        connectivityMonitor = ConnectivityMonitor.getInstance(mContext);
     }
 
 
     @Override
-    public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount)
+    public void onScrolled(RecyclerView view, int dx, int dy)
     {
+        if (paused) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) view.getLayoutManager();
+        int firstVisibleItem = layoutManager.findFirstVisibleItemPosition();
+        int visibleItemCount = view.getChildCount();
+        int totalItemCount = layoutManager.getItemCount();
+
+        // the scroll position is reported regardless of the network state (e.g. used to measure the scroll velocity)
+        onScrollPositionChanged(firstVisibleItem, visibleItemCount, totalItemCount);
+
         // actions are being performed only if there is a Network Connection present
         // without this check a network request might be initiated (even if there is no network connection),
         // and the value of currentPage would increase
-        if(checkNetworkConnection()){
-            // If the total item count is zero and the previous isn't, assume the
-            // list is invalidated and should be reset back to initial state
+        if (connectivityMonitor == null) {
+            connectivityMonitor = ConnectivityMonitor.getInstance(view.getContext());
+        }
+        if(connectivityMonitor.isConnected()){
+            // The item count also shrinks when a shown page is replaced with fewer items (e.g. it was refreshed,
+            // and some of its articles are shown on other pages - see WindowedArticleList), so a smaller count
+            // does not mean that the list was invalidated:
+            // the count is taken as the new baseline and the page count is kept (it is only reset by resetState())
             if (totalItemCount < previousTotalItemCount) {
-                this.currentPage = this.startingPageIndex;
                 this.previousTotalItemCount = totalItemCount;
-                if (totalItemCount == 0) { this.loading = true; }
             }
 
 
@@ -102,9 +105,34 @@ public abstract class EndlessScrollListener implements AbsListView.OnScrollListe
     // Returns true if more data is being loaded; returns false if there is no more data to load.
     public abstract boolean onLoadMore(int page, int totalItemsCount);
 
+    /**
+     * Starts counting the pages from the beginning (e.g. the list has been emptied for another query);
+     * the first page loaded after the reset is taken as page 1
+     */
+    public void resetState() {
+        this.currentPage = 0;
+        this.startingPageIndex = 0;
+        this.previousTotalItemCount = 0;
+        this.loading = true;
+    }
+
+    /**
+     * Pauses or resumes the listener; the count of the items is kept, so the feed has to be shown again
+     * before the listener is resumed
+     * @param mPaused true if the scroll events are to be ignored
+     */
+    public void setPaused(boolean mPaused) {
+        paused = mPaused;
+    }
+
+    // Called on every scroll event with the current scroll position; does nothing unless overridden
+    public void onScrollPositionChanged(int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+    }
+
+    // thumbnail requests are paused while the list is flinging, and resumed when it slows down
     @Override
-    public void onScrollStateChanged(AbsListView view, int scrollState) {
-        // Don't take any action on changed
+    public void onScrollStateChanged(RecyclerView view, int scrollState) {
+        ThumbnailLoader.getInstance(view.getContext()).onScrollStateChanged(scrollState);
     }
 
 }
@@ -0,0 +1,78 @@
+package com.example.kasparasza.newsapp;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * JobService that keeps the feed warm: it refreshes the first page of the feed (for the current preferences
+ * of the user) into the local NewsArticleStore, so that the app renders fresh content as soon as it is opened.
+ * The refresh is a conditional http query, therefore an unchanged page costs no more than a 304 response.
+ * The job is scheduled by {@link FeedSyncScheduler}; if the server can not be reached, the job is rescheduled
+ * with exponential backoff. After a sync, the bodies of the top articles are downloaded for the offline reading mode,
+ * and the pages whose query failed in the app (see {@link PageRetryQueue}) are fetched into the store.
+ */
+
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class FeedSyncJobService extends JobService {
+
+    // String constants used:
+    private static final String LOG_TAG = FeedSyncJobService.class.getSimpleName();
+
+    // thread on which the sync runs (JobService callbacks are called on the UI thread)
+    private Thread syncThread;
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        syncThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                NewsQuery query = NewsQuery.fromPreferences(FeedSyncJobService.this, 1);
+                boolean synced = NewsPageRepository.syncPage(NewsArticleStore.getInstance(FeedSyncJobService.this), query);
+                Log.d(LOG_TAG, "Sync of " + query.getProfileKey() + (synced ? " finished" : " failed, it will be retried"));
+                if (synced && !Thread.currentThread().isInterrupted()) {
+                    // the bodies of the top articles are stored for the offline reading mode
+                    // (the job only runs on an unmetered network)
+                    List<NewsArticle> firstPage = NewsArticleStore.getInstance(FeedSyncJobService.this)
+                            .readPage(query.getProfileKey(), query.getPage());
+                    ArticleBodyDownloader.getInstance(FeedSyncJobService.this).download(firstPage);
+                    syncPendingPages(query);
+                }
+                if (!Thread.currentThread().isInterrupted()) {
+                    // a failed sync is rescheduled according to the backoff criteria of the job
+                    jobFinished(params, !synced);
+                }
+            }
+        }, LOG_TAG);
+        syncThread.start();
+        // the job goes on until jobFinished() is called
+        return true;
+    }
+
+    // fetches the pending pages of the profile into the store (a page that fails again stays pending)
+    private void syncPendingPages(NewsQuery query) {
+        NewsArticleStore store = NewsArticleStore.getInstance(this);
+        for (Integer page : store.readPendingPages(query.getProfileKey())) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            if (NewsPageRepository.syncPage(store, query.forPage(page))) {
+                store.deletePendingPage(query.getProfileKey(), page);
+            }
+        }
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // the conditions of the job are not met any more (e.g. the charger was unplugged)
+        if (syncThread != null) {
+            syncThread.interrupt();
+        }
+        // the job is retried later
+        return true;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.kasparasza.newsapp;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.os.Build;
+
+/**
+ * Custom class that schedules the background sync of the feed (see {@link FeedSyncJobService}).
+ * The sync runs periodically, but only while the device is on an unmetered network and charging,
+ * so that it costs the user neither mobile data nor battery. A failed sync is retried with exponential backoff.
+ * JobScheduler is available from API 21; on the older devices the feed is only refreshed while the app is open.
+ */
+
+public class FeedSyncScheduler {
+
+    // id of the sync job (unique within the app)
+    private static final int SYNC_JOB_ID = 1001;
+    private static final long SYNC_INTERVAL_MILLIS = 30 * 60 * 1000L;
+    // delay of the first retry; it doubles with each failed attempt
+    private static final long INITIAL_BACKOFF_MILLIS = 30 * 1000L;
+
+    /**
+     * Create a private constructor because no one should ever create a {@link FeedSyncScheduler} object.
+     */
+    private FeedSyncScheduler() {
+    }
+
+    /**
+     * Schedules the periodic sync, unless it is already scheduled (the schedule survives reboots)
+     * @param context any context of the app
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+        scheduleJob(context.getApplicationContext());
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void scheduleJob(Context context) {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        for (JobInfo pendingJob : jobScheduler.getAllPendingJobs()) {
+            if (pendingJob.getId() == SYNC_JOB_ID) {
+                return;
+            }
+        }
+        JobInfo syncJob = new JobInfo.Builder(SYNC_JOB_ID, new ComponentName(context, FeedSyncJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setRequiresCharging(true)
+                .setPeriodic(SYNC_INTERVAL_MILLIS)
+                .setBackoffCriteria(INITIAL_BACKOFF_MILLIS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true)
+                .build();
+        jobScheduler.schedule(syncJob);
+    }
+}
@@ -1,46 +1,49 @@
 package com.example.kasparasza.newsapp;
 
-import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
 import android.net.Uri;
 import android.preference.PreferenceManager;
 import android.support.v4.app.LoaderManager;
 import android.support.v4.content.Loader;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.os.Bundle;
+import android.os.Parcelable;
+import android.support.v4.view.MenuItemCompat;
+import android.support.v7.widget.SearchView;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
 import android.widget.ImageView;
-import android.widget.ListView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-public class MainActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<List<NewsArticle>> {
+public class MainActivity extends AppCompatActivity implements LoaderManager.LoaderCallbacks<List<NewsArticle>>,
+        PagePrefetcher.Listener, PageRetryQueue.Listener, NewsArticleListAdapter.OnItemClickListener,
+        SharedPreferences.OnSharedPreferenceChangeListener {
 
     // String constants used:
     private static final String LOG_TAG = AppUtilities.class.getSimpleName();
     private static final String LIST_VIEW_ITEM_INDEX = "LIST_VIEW_ITEM_INDEX";
     private static final String LIST_VIEW_TOP = "LIST_VIEW_TOP";
     private static final String EMPTY_VIEW_STATE = "EMPTY_VIEW_STATE";
-    private static final String NEWS_ARTICLE_PARCELABLE_LIST = "NEWS_ARTICLE_PARCELABLE_LIST";
+    private static final String PAGE_NUMBERS_IN_LIST = "PAGE_NUMBERS_IN_LIST";
+    private static final String PAGE_ITEM_COUNTS = "PAGE_ITEM_COUNTS";
+    private static final String GAP_PAGES_IN_LIST = "GAP_PAGES_IN_LIST";
     private static final String PAGE_NUMBER_IN_QUERY = "PAGE_NUMBER_IN_QUERY";
-    // the initial static url query
-    public static final String URL_STRING_BASE_PART_1 = "http://content.guardianapis.com/search?";
-    public static final String URL_STRING_BASE_PART_2 = "&show-fields=trailText%2Cbyline%2Cthumbnail";
-    public static final String URL_STRING_BASE_PART_3 = "&page-size=20&api-key=test";
+    private static final String SEARCH_QUERY = "SEARCH_QUERY";
 
     // declaration of layout views
-    private ListView newsArticlesListView;
+    private RecyclerView newsArticlesListView;
     private TextView headlineView;
     private TextView authorView;
     private TextView startTextView;
@@ -50,12 +53,43 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
     private TextView noArticlesView;
     private ProgressBar progressBar;
     private ImageView noNetworkConnection;
+    private TextView metricsOverlayView;
 
     // declaration of class members:
-    // ArrayList that will store NewsArticle objects
-    private ArrayList<NewsArticle> newsArticleList = new ArrayList<NewsArticle>();
+    // adapter which populates the RecyclerView with data on NewsArticle objects (and holds the list of them)
+    private NewsArticleListAdapter listAdapter;
+    private LinearLayoutManager layoutManager;
     // integer that stores page number for the URL query parameters;
     int pageNumberInQuery;
+    // model of the list, which keeps only the pages around the viewport in memory
+    private WindowedArticleList windowedArticleList;
+    // component that prefetches the thumbnails of the rows just below the viewport
+    private ThumbnailPrefetcher thumbnailPrefetcher;
+    // component that fetches the next pages in the background, before they are requested by OnScrollListener
+    private PagePrefetcher pagePrefetcher;
+    // component that retries the pages whose query failed, until they are recovered
+    private PageRetryQueue pageRetryQueue;
+    // listener that loads the next pages when the user scrolls to the end of the list
+    // (it does nothing while there is no network, and waits for the pages that are being retried)
+    private EndlessScrollListener endlessScrollListener;
+    // full-text index of the cached articles, and the adapter that shows the search results in the RecyclerView
+    private ArticleSearchIndex searchIndex;
+    private NewsArticleListAdapter searchAdapter;
+    // scroll position of the feed, recorded while the search results are shown
+    private Parcelable feedStateBeforeSearch;
+    // index and top position of the first visible item of the feed, recorded while the search results are shown
+    // (they are saved in place of the position of the search results)
+    private int feedIndexBeforeSearch;
+    private int feedTopBeforeSearch;
+    // query of the search results that are shown (null while the feed is shown)
+    private String searchQuery;
+    // query of the search that was shown when the state of the Activity was saved; it is restored once the
+    // options menu (with its SearchView) is created
+    private String restoredSearchQuery;
+    // true if the preferences of the feed have been changed (in SettingsActivity) since the feed was loaded
+    private boolean feedPreferencesChanged;
+    // debug overlay of the metrics of the pipeline (its menu items are only shown in debug builds)
+    private MetricsOverlay metricsOverlay;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -63,7 +97,7 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         setContentView(R.layout.activity_main);
 
         // initialisation of Views;
-        newsArticlesListView = (ListView) findViewById(R.id.news_articles_list_view);
+        newsArticlesListView = (RecyclerView) findViewById(R.id.news_articles_list_view);
         headlineView = (TextView) findViewById(R.id.headline_view);
         authorView = (TextView) findViewById(R.id.author_view);
         startTextView = (TextView) findViewById(R.id.start_text_view);
@@ -73,9 +107,42 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         noArticlesView = (TextView) findViewById(R.id.empty_state_text);
         progressBar = (ProgressBar) findViewById(R.id.progress_bar);
         noNetworkConnection = (ImageView) findViewById(R.id.no_connection_image);
+        metricsOverlayView = (TextView) findViewById(R.id.metrics_overlay);
+        metricsOverlay = new MetricsOverlay(metricsOverlayView);
+
+        // the RecyclerView is set up with a layout manager and an (empty) adapter right away
+        layoutManager = new LinearLayoutManager(this);
+        newsArticlesListView.setLayoutManager(layoutManager);
+        listAdapter = new NewsArticleListAdapter(this, this);
+        newsArticlesListView.setAdapter(listAdapter);
+        windowedArticleList = new WindowedArticleList(this, listAdapter, getResources().getInteger(R.integer.pages_kept_in_memory));
+        thumbnailPrefetcher = new ThumbnailPrefetcher(this, listAdapter);
+        // the window of the pages held in memory, and the range of the prefetched thumbnails follow the viewport
+        newsArticlesListView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                // the positions of the search results are not positions of the feed
+                if (recyclerView.getAdapter() != listAdapter) {
+                    return;
+                }
+                windowedArticleList.onViewportChanged(layoutManager.findFirstVisibleItemPosition());
+                thumbnailPrefetcher.onViewportChanged(layoutManager.findLastVisibleItemPosition(), false);
+            }
+        });
+
+        pagePrefetcher = new PagePrefetcher(this, this);
+        pageRetryQueue = new PageRetryQueue(this, this);
+        searchIndex = ArticleSearchIndex.getInstance(this);
+        searchAdapter = new NewsArticleListAdapter(this, this);
+
+        // the first page of the feed is kept fresh in the local store in the background
+        FeedSyncScheduler.schedule(this);
+
+        // the feed follows the changes of the preferences without a restart of the Activity
+        PreferenceManager.getDefaultSharedPreferences(this).registerOnSharedPreferenceChangeListener(this);
 
         // if the activity is not being recreated (that is we have clean start with no savedInstance state),
-        // we: 1) set OnScrollListener to the ListView; 2) set the initial value for the page number for the URL query.
+        // we: 1) set OnScrollListener to the RecyclerView; 2) set the initial value for the page number for the URL query.
         // Otherwise: 1) we already have the OnScrollListener - no action; 2) we get the relevant page number for the URL query from the Bundle
 
         // setting of OnScrollListener:
@@ -85,83 +152,159 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
 
             // get the relevant page number for the URL query from the Bundle
             pageNumberInQuery = savedInstanceState.getInt(PAGE_NUMBER_IN_QUERY, 0);
+            // the search results are shown again once the options menu is created
+            restoredSearchQuery = savedInstanceState.getString(SEARCH_QUERY);
 
-            // the listener is attached if we have a network connection
-            if (checkNetworkConnection()){
+            // the listener is attached regardless of the network connection: it only loads more data while
+            // there is one, so the list goes on once the connection comes back
 
-                // Attach the onScrollListener to the ListView
-                // the Listener will trigger additional NewsArticles to be loaded,
-                // when we scroll down to the bottom of the ListView
-                // @param: pageNumber for the startPage; context
-                newsArticlesListView.setOnScrollListener(new EndlessScrollListener(pageNumberInQuery - 1, this) {
+            // Attach the onScrollListener to the RecyclerView
+            // the Listener will trigger additional NewsArticles to be loaded,
+            // when we scroll down to the bottom of the RecyclerView
+            // @param: pageNumber for the startPage; context
+            endlessScrollListener = new EndlessScrollListener(pageNumberInQuery - 1, this) {
 
-                    // Required implementation of an abstract method onLoadMore
-                    @Override
-                    public boolean onLoadMore(int page, int totalItemsCount) {
+                // Required implementation of an abstract method onLoadMore
+                @Override
+                public boolean onLoadMore(int page, int totalItemsCount) {
 
-                        // we let the pageNumberInQuery to be controlled by the Listener
-                        pageNumberInQuery = page;
+                    // the next page waits until the failed pages are recovered (no gaps pile up on a flaky connection)
+                    if (pageRetryQueue.hasPendingPages()) {
+                        return false;
+                    }
 
-                        // Triggered only when new data needs to be appended to the list
-                        loadNextDataFromApi(page);
+                    // we let the pageNumberInQuery to be controlled by the Listener
+                    pageNumberInQuery = page;
 
-                        return true; // ONLY if more data is actually being loaded; false otherwise.
-                    }
-                });
-            }
+                    // Triggered only when new data needs to be appended to the list
+                    loadNextDataFromApi(page);
+
+                    return true; // ONLY if more data is actually being loaded; false otherwise.
+                }
+
+                // the scroll position is used by PagePrefetcher to measure the scroll velocity
+                @Override
+                public void onScrollPositionChanged(int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                    pagePrefetcher.onScrollSample(firstVisibleItem);
+                }
+            };
+            newsArticlesListView.addOnScrollListener(endlessScrollListener);
         } else {
             // if the activity is not being recreated: 1) set the initial value for the page number for the URL query,
-            // set OnScrollListener to the ListView.
+            // set OnScrollListener to the RecyclerView.
 
             // set the initial value for the page number for the URL query
             pageNumberInQuery = 1;
 
-            // the listener is attached if we have a network connection
-            if (checkNetworkConnection()){
+            // the listener is attached regardless of the network connection: it only loads more data while
+            // there is one, so the list goes on once the connection comes back
 
-                // Attach the onScrollListener to the ListView,
-                // the Listener will trigger additional NewsArticles to be loaded,
-                // when we scroll down to the bottom of the ListView
-                newsArticlesListView.setOnScrollListener(new EndlessScrollListener(this) {
+            // Attach the onScrollListener to the RecyclerView,
+            // the Listener will trigger additional NewsArticles to be loaded,
+            // when we scroll down to the bottom of the RecyclerView
+            endlessScrollListener = new EndlessScrollListener(this) {
 
-                    // Required implementation of an abstract method onLoadMore
-                    @Override
-                    public boolean onLoadMore(int page, int totalItemsCount) {
+                // Required implementation of an abstract method onLoadMore
+                @Override
+                public boolean onLoadMore(int page, int totalItemsCount) {
 
-                        // in the initial run both values are equal to "1",
-                        // in further runs we let the pageNumberInQuery to be controlled by the Listener
-                        pageNumberInQuery = page;
+                    // the next page waits until the failed pages are recovered (no gaps pile up on a flaky connection)
+                    if (pageRetryQueue.hasPendingPages()) {
+                        return false;
+                    }
 
-                        // Triggered only when new data needs to be appended to the list
-                        loadNextDataFromApi(page);
+                    // in the initial run both values are equal to "1",
+                    // in further runs we let the pageNumberInQuery to be controlled by the Listener
+                    pageNumberInQuery = page;
+
+                    // Triggered only when new data needs to be appended to the list
+                    loadNextDataFromApi(page);
+
+                    return true; // ONLY if more data is actually being loaded; false otherwise.
+                }
+
+                // the scroll position is used by PagePrefetcher to measure the scroll velocity
+                @Override
+                public void onScrollPositionChanged(int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                    pagePrefetcher.onScrollSample(firstVisibleItem);
+                }
+            };
+            newsArticlesListView.addOnScrollListener(endlessScrollListener);
+
+            // a Loader is initialised with a query for initial content;
+            // the content available in the local store is shown even if there is no network connection
+            // (if there is nothing in the store either, the User is informed about it in onLoadFinished)
+            initiateLoader(pageNumberInQuery);
+            // while the query is ongoing - a progress bar is shown
+            progressBar.setVisibility(View.VISIBLE);
+        }
+    }
 
-                        return true; // ONLY if more data is actually being loaded; false otherwise.
-                    }
-                });
+    // implementation of the method required by NewsArticleListAdapter.OnItemClickListener:
+    // the article is opened in a web browser
+    @Override
+    public void onItemClick(NewsArticle newsArticle, int position) {
+        String articleUrlLink = newsArticle.getArticleLink();
+        // articles whose body is stored are read in the app (offline reading mode), the others in the browser
+        if (ArticleBodyCache.getInstance(this).contains(articleUrlLink)) {
+            startActivity(ArticleReaderActivity.createIntent(this, newsArticle));
+            return;
+        }
+        Intent openArticleInWeb = new Intent(Intent.ACTION_VIEW);
+        openArticleInWeb.setData(Uri.parse(articleUrlLink));
+        startActivity(openArticleInWeb);
+    }
 
-                // a Loader is initialised with a query for initial content
-                initiateLoader(pageNumberInQuery);
-                // while the query is ongoing - a progress bar is shown
-                progressBar.setVisibility(View.VISIBLE);
-            } else {
-                // if there is no network connection at the time of initial onCreate, call a method that informs the user
-                // Note: this check is for initial onCreate only; onRestore state is implemented separately
-                informAboutNoNetworkConnection();
-                progressBar.setVisibility(View.GONE);
-            }
+    // the feed is reloaded when the user comes back from SettingsActivity with changed preferences
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (feedPreferencesChanged) {
+            feedPreferencesChanged = false;
+            reloadFeed();
         }
+    }
 
-        newsArticlesListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
-            @Override
-            public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
-                String articleUrlLink = newsArticleList.get(position).getArticleLink();
-                Intent openArticleInWeb = new Intent(Intent.ACTION_VIEW);
-                openArticleInWeb.setData(Uri.parse(articleUrlLink));
-                startActivity(openArticleInWeb);
-            }
-        });
+    // implementation of the method required by SharedPreferences.OnSharedPreferenceChangeListener
+    @Override
+    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+        if (getString(R.string.settings_from_date_key).equals(key)
+                || getString(R.string.settings_order_by_key).equals(key)
+                || getString(R.string.settings_production_office_key).equals(key)) {
+            feedPreferencesChanged = true;
+        }
+    }
 
+    /**
+     * Replaces the feed with the first page of the current preferences, without a restart of the Activity.
+     * If the pages of the new preferences can be derived from the stored pages of the previous ones
+     * (e.g. only the order has changed), they are shown without network I/O (see NewsPageRepository);
+     * otherwise they are fetched as usual.
+     */
+    private void reloadFeed() {
+        showFeed();
+        pagePrefetcher.reset();
+        pageRetryQueue.reset();
+        thumbnailPrefetcher.release();
+        windowedArticleList.reset(NewsQuery.fromPreferences(this, 1));
+        endlessScrollListener.resetState();
+        pageNumberInQuery = 1;
+        updateEmptyView(false);
+        initiateLoader(pageNumberInQuery);
+        progressBar.setVisibility(View.VISIBLE);
+    }
 
+    @Override
+    protected void onDestroy() {
+        PreferenceManager.getDefaultSharedPreferences(this).unregisterOnSharedPreferenceChangeListener(this);
+        pagePrefetcher.release();
+        pageRetryQueue.release();
+        windowedArticleList.release();
+        thumbnailPrefetcher.release();
+        listAdapter.release();
+        searchAdapter.release();
+        metricsOverlay.release();
+        super.onDestroy();
     }
 
     ////
@@ -169,12 +312,43 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
     ////
 
     /**
-     * Method that sends out a network request / initiates a Loader
+     * Method that sends out a network request
+     * If the page has already been prefetched, it is shown at once; otherwise it is shown as soon as it
+     * is fetched (see onPrefetchedPageReady). The pages that follow the initial one are fetched by
+     * PageFetchScheduler (through PagePrefetcher), which runs several page queries at once and delivers
+     * them in order; the Loader is only used for the initial page.
      * @param offset is a "page" parameter (page number) that will be used in the URL query
      * the parameter is controlled by OnScrollListener
      */
     public void loadNextDataFromApi(int offset) {
-        initiateLoader(offset);
+        NewsQuery query = NewsQuery.fromPreferences(this, offset);
+        List<NewsArticle> prefetchedPage = pagePrefetcher.takePage(query);
+        if (prefetchedPage != null) {
+            displayPage(query, prefetchedPage, false);
+        }
+    }
+
+    // implementation of the method required by PagePrefetcher.Listener:
+    // the page that has been requested by OnScrollListener while it was still being fetched is shown
+    @Override
+    public void onPrefetchedPageReady(NewsQuery query, List<NewsArticle> newsArticleList) {
+        displayPage(query, newsArticleList, false);
+    }
+
+    // implementation of the method required by PagePrefetcher.Listener:
+    // the page that has been requested by OnScrollListener could not be fetched
+    @Override
+    public void onPrefetchedPageFailed(NewsQuery query) {
+        displayFailedPage(query);
+    }
+
+    // implementation of the method required by PageRetryQueue.Listener:
+    // a page whose query failed has been recovered - it fills its gap (or the empty list)
+    @Override
+    public void onPageRecovered(NewsQuery query, List<NewsArticle> newsArticleList) {
+        if (!windowedArticleList.isPageShown(query.getPage())) {
+            displayPage(query, newsArticleList, false);
+        }
     }
 
 
@@ -206,85 +380,91 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
     @Override
     public Loader<List<NewsArticle>> onCreateLoader(int id, Bundle args) {
 
-        // first we read users preferences made in the SettingsActivity
-        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
-
-        // preference of articles to be show from date
-        String fromDate = sharedPrefs.getString(
-                getString(R.string.settings_from_date_key),
-                getString(R.string.settings_from_date_default)
-        );
-        fromDate = AppUtilities.prepare_From_Date_Parameter(fromDate);
-
-        // preference of sort order
-        String orderBy = sharedPrefs.getString(
-                getString(R.string.settings_order_by_key),
-                getString(R.string.settings_order_by_default)
-        );
-
-        // preference of production office order
-        String productionOffice = sharedPrefs.getString(
-                getString(R.string.settings_production_office_key),
-                getString(R.string.settings_production_office_default)
-        );
-
         // we obtain "page" parameter to be used in the URL
         int page = args.getInt(PAGE_NUMBER_IN_QUERY, 1);
-        String pageString = String.valueOf(page);
-
-        // using the preferences, we create a request URL
-        Uri baseUri = Uri.parse(URL_STRING_BASE_PART_1);
-        Uri.Builder uriBuilder = baseUri.buildUpon();
-        uriBuilder.appendQueryParameter("production-office", productionOffice);
-        uriBuilder.appendQueryParameter("from-date", fromDate);
-        uriBuilder.appendQueryParameter("order-by", orderBy);
-        baseUri = Uri.parse(uriBuilder.toString() + URL_STRING_BASE_PART_2);
-        uriBuilder = baseUri.buildUpon();
-        uriBuilder.appendQueryParameter("page", pageString);
-        String fullUrlQuery = uriBuilder.toString() + URL_STRING_BASE_PART_3;
-
-        // finally, having the URL request, we initiate a Loader
-        return new NewsArticleLoader(this, fullUrlQuery);
+
+        // using the preferences made in the SettingsActivity, we create a query for the page
+        NewsQuery query = NewsQuery.fromPreferences(this, page);
+
+        // finally, having the query, we initiate a Loader
+        return new NewsArticleLoader(this, query);
     }
 
     // #2) onLoadFinished - populate UI with the data obtained from http query
     @Override
     public void onLoadFinished(Loader<List<NewsArticle>> loader, List<NewsArticle> data) {
+        NewsArticleLoader newsArticleLoader = (NewsArticleLoader) loader;
+        // the Loader loads a failed page again when the Activity is started again; the page may have been
+        // recovered by PageRetryQueue in the meantime
+        if (!newsArticleLoader.isRefreshOfStoredPage() && windowedArticleList.isPageShown(newsArticleLoader.getPage())) {
+            return;
+        }
+        displayPage(newsArticleLoader.getQuery(), data, newsArticleLoader.isRefreshOfStoredPage());
+    }
+
+    /**
+     * Method that populates UI with a page of NewsArticle objects (delivered by the Loader or by PagePrefetcher)
+     * @param query query of the page
+     * @param data a page of NewsArticle objects; null if the query of the page failed
+     * @param replacesStoredPage true if the data is a network refresh of the stored copy of the page shown before
+     */
+    private void displayPage(NewsQuery query, List<NewsArticle> data, boolean replacesStoredPage) {
+        if (data == null) {
+            displayFailedPage(query);
+            return;
+        }
         // when the query is finalized - the progress bar is hidden
         progressBar.setVisibility(View.GONE);
+        // the page does not have to be retried any more (e.g. it has been loaded again by the Loader)
+        pageRetryQueue.cancel(query);
 
-        // if the ListView to be populated has no adapter attached - we create and attach one
-        // (this is the case e.g. when there was no orientation change, or change in
-        // shared preferences)
-        if (newsArticlesListView.getAdapter() == null) {
-
-            // set the data to the ArrayList defined previously
-            newsArticleList = (ArrayList<NewsArticle>) data;
-
-            // create an instance of an adapter which will populate the layout with data on NewsArticle objects
-            NewsArticleListAdapter listAdapter = new NewsArticleListAdapter(this, 0, newsArticleList);
-
-            // connect the adapter with the root List layout & with the ArrayList data
-            newsArticlesListView.setAdapter(listAdapter);
+        // the page is set as the content of an empty list, replaces its stored copy, or is appended to the list
+        // (the pages far from the viewport are dropped from memory by WindowedArticleList)
+        windowedArticleList.addPage(query, data, replacesStoredPage);
+        // the articles of the page can be found by the search
+        searchIndex.addArticles(data);
+        // the thumbnails of the rows just below the viewport are prefetched, so that the rows appear with their images
+        thumbnailPrefetcher.onViewportChanged(layoutManager.findLastVisibleItemPosition(), true);
 
+        // if input List is empty, we have zero NewsArticles to display; an appropriate message is displayed
+        // (or the User is informed that there is no network, as nothing was available in the local store either)
+        if (listAdapter.getItemCount() == 0 && !checkNetworkConnection()) {
+            informAboutNoNetworkConnection();
         } else {
-            // there is already an adapter attached
-            // we append the new data objects to the existing set of items inside the ArrayList
-            // notify the adapter about the new items added
-
-            // we get the adapter
-            NewsArticleListAdapter adapter = (NewsArticleListAdapter) newsArticlesListView.getAdapter();
+            // the list is shown again if it was hidden for the lack of network (e.g. the first page has been recovered)
+            newsArticlesListView.setVisibility(View.VISIBLE);
+            noNetworkConnection.setImageDrawable(null);
+            noArticlesView.setText(R.string.no_articles_message);
+            updateEmptyView(listAdapter.getItemCount() == 0);
+        }
 
-            // append the data
-            newsArticleList.addAll(data);
+        // the following pages are prefetched, so that they are ready before the user scrolls down to them
+        if (!data.isEmpty()) {
+            pagePrefetcher.onPageDelivered(query);
+        }
 
-            // notify the adapter
-            adapter.notifyDataSetChanged();
+        // the bodies of the top articles are stored for the offline reading mode
+        if (query.getPage() == 1 && !data.isEmpty()) {
+            ArticleBodyDownloader.getInstance(this).downloadInBackground(data);
         }
+    }
 
-        // if input List is empty, we have zero NewsArticles to display; an appropriate message is displayed
-        newsArticlesListView.setEmptyView(noArticlesView);
-        noArticlesView.setText(R.string.no_articles_message);
+    /**
+     * Method that handles a page whose query failed: the page is retried by PageRetryQueue until it is recovered,
+     * and a gap is shown in its place meanwhile (if the list is empty, the User is informed as before)
+     * @param query query of the page
+     */
+    private void displayFailedPage(NewsQuery query) {
+        progressBar.setVisibility(View.GONE);
+        pageRetryQueue.enqueue(query);
+        if (listAdapter.getItemCount() > 0) {
+            windowedArticleList.addGap(query);
+        } else if (!checkNetworkConnection()) {
+            informAboutNoNetworkConnection();
+        } else {
+            noArticlesView.setText(R.string.no_articles_message);
+            updateEmptyView(true);
+        }
     }
 
     // #3) onLoaderReset - clear data on reset
@@ -300,16 +480,20 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
 
     /**
      * Method that checks whether there is a network connection
+     * (the state cached by ConnectivityMonitor is read - no call to ConnectivityManager is made)
      *
      * @return boolean that is true is there is a connection
      */
     public boolean checkNetworkConnection() {
-        ConnectivityManager cm =
-                (ConnectivityManager) this.getSystemService(Context.CONNECTIVITY_SERVICE);
-        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
-        boolean isConnected = activeNetwork != null &&
-                activeNetwork.isConnected();
-        return isConnected;
+        return ConnectivityMonitor.getInstance(this).isConnected();
+    }
+
+    /**
+     * Method that shows the empty view instead of the RecyclerView (RecyclerView has no empty view of its own)
+     * @param listIsEmpty true if there are no items to display
+     */
+    private void updateEmptyView(boolean listIsEmpty) {
+        noArticlesView.setVisibility(listIsEmpty ? View.VISIBLE : View.GONE);
     }
 
     /**
@@ -317,7 +501,7 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
      */
     public void informAboutNoNetworkConnection() {
         // if there is no ArrayList of NewsArticles in the memory - show an ImageView with no connectivity message
-        if (newsArticleList.size() < 1) {
+        if (listAdapter.getItemCount() < 1) {
             newsArticlesListView.setVisibility(View.GONE);
             noNetworkConnection.setImageResource(R.drawable.no_network_image);
             Toast.makeText(this, R.string.no_internet_connection_message, Toast.LENGTH_SHORT).show();
@@ -337,9 +521,93 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main, menu);
+
+        // search-as-you-type: the results are looked up in the local index with each change of the text
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        final SearchView searchView = (SearchView) MenuItemCompat.getActionView(searchItem);
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                // the results are shown already - only the keyboard is hidden
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                showSearchResults(newText);
+                return true;
+            }
+        });
+        MenuItemCompat.setOnActionExpandListener(searchItem, new MenuItemCompat.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                showFeed();
+                return true;
+            }
+        });
+
+        // the search that was shown before the Activity was recreated is shown again (the query is set after the
+        // SearchView is expanded, as the expansion clears it); the keyboard is not shown
+        if (restoredSearchQuery != null) {
+            String query = restoredSearchQuery;
+            restoredSearchQuery = null;
+            MenuItemCompat.expandActionView(searchItem);
+            searchView.setQuery(query, false);
+            searchView.clearFocus();
+        }
+
+        // the metrics of the pipeline are a tool for the developers
+        menu.findItem(R.id.action_metrics).setVisible(BuildConfig.DEBUG);
+        menu.findItem(R.id.action_dump_metrics).setVisible(BuildConfig.DEBUG);
         return true;
     }
 
+    /**
+     * Shows the cached articles that match a search query in place of the feed
+     * (the feed is shown again if the query is empty)
+     * @param query text typed by the user
+     */
+    private void showSearchResults(String query) {
+        if (query.trim().isEmpty()) {
+            showFeed();
+            return;
+        }
+        if (newsArticlesListView.getAdapter() != searchAdapter) {
+            feedStateBeforeSearch = layoutManager.onSaveInstanceState();
+            feedIndexBeforeSearch = layoutManager.findFirstVisibleItemPosition();
+            feedTopBeforeSearch = getTopOfItem(feedIndexBeforeSearch);
+            newsArticlesListView.setAdapter(searchAdapter);
+            endlessScrollListener.setPaused(true);
+        }
+        searchQuery = query;
+        List<NewsArticle> results = searchIndex.search(query);
+        searchAdapter.submitItems(results);
+        noArticlesView.setText(R.string.no_search_results_message);
+        updateEmptyView(results.isEmpty());
+    }
+
+    /**
+     * Shows the feed again in place of the search results, at the position it was left at
+     */
+    private void showFeed() {
+        if (newsArticlesListView.getAdapter() == listAdapter) {
+            return;
+        }
+        searchQuery = null;
+        newsArticlesListView.setAdapter(listAdapter);
+        layoutManager.onRestoreInstanceState(feedStateBeforeSearch);
+        endlessScrollListener.setPaused(false);
+        searchAdapter.submitItems(new ArrayList<NewsArticle>());
+        noArticlesView.setText(R.string.no_articles_message);
+        updateEmptyView(listAdapter.getItemCount() == 0);
+    }
+
 
     // method that starts SettingsActivity after the user selects any option item
     @Override
@@ -351,13 +619,29 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
             startActivity(settingsIntent);
             return true;
         }
-        // Restarts MainActivity == reloads the ListView and resets all other members,
-        // use: to update the ListView with new articles
+        // Restarts MainActivity == reloads the RecyclerView and resets all other members,
+        // use: to update the RecyclerView with new articles
         if (id == R.id.action_restart) {
             Intent restartActivity = new Intent(this, MainActivity.class);
             this.finish();
             startActivity(restartActivity);
         }
+        // shows / hides the debug overlay of the metrics
+        if (id == R.id.action_metrics) {
+            metricsOverlay.toggle();
+            return true;
+        }
+        // writes the metrics to a file, so that they can be pulled from the device
+        if (id == R.id.action_dump_metrics) {
+            try {
+                File file = MetricsOverlay.dumpToFile(this);
+                Toast.makeText(this, getString(R.string.metrics_dumped_message, file.getPath()), Toast.LENGTH_LONG).show();
+            } catch (IOException exc_01) {
+                Log.e(LOG_TAG, "Metrics could not be written " + exc_01);
+                Toast.makeText(this, R.string.metrics_dump_failed_message, Toast.LENGTH_SHORT).show();
+            }
+            return true;
+        }
         return super.onOptionsItemSelected(item);
     }
 
@@ -370,13 +654,20 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
      */
     @Override
     protected void onSaveInstanceState(Bundle outState) {
-        // record the state of the ListView
-        // get index and top positions of the ListView
+        // record the state of the RecyclerView
+        // get index and top positions of the RecyclerView
         // index - returns the top visible list item
-        int index = newsArticlesListView.getFirstVisiblePosition();
-        View view = newsArticlesListView.getChildAt(0);
-        // returns relative offset from the top of the list
-        int top = (view == null) ? 0 : (view.getTop() - newsArticlesListView.getPaddingTop());
+        int index;
+        int top;
+        if (searchQuery != null) {
+            // the search results are shown: the query is saved, and the position of the feed below them
+            outState.putString(SEARCH_QUERY, searchQuery);
+            index = feedIndexBeforeSearch;
+            top = feedTopBeforeSearch;
+        } else {
+            index = layoutManager.findFirstVisibleItemPosition();
+            top = getTopOfItem(index);
+        }
 
         // get visibility state of noArticlesView(empty == false)
         boolean emptyViewState = noArticlesView.getText().toString().equals("");
@@ -385,13 +676,22 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         outState.putInt(LIST_VIEW_ITEM_INDEX, index);
         outState.putInt(LIST_VIEW_TOP, top);
         outState.putBoolean(EMPTY_VIEW_STATE, emptyViewState);
-        outState.putParcelableArrayList(NEWS_ARTICLE_PARCELABLE_LIST, newsArticleList);
+        // only the layout of the pages is saved (not the articles), as they are reloaded from the local store
+        outState.putIntArray(PAGE_NUMBERS_IN_LIST, windowedArticleList.getPageNumbers());
+        outState.putIntArray(PAGE_ITEM_COUNTS, windowedArticleList.getItemCounts());
+        outState.putIntArray(GAP_PAGES_IN_LIST, windowedArticleList.getGapPages());
         outState.putInt(PAGE_NUMBER_IN_QUERY, pageNumberInQuery);
 
         // Always call the superclass so it can save the view hierarchy state
         super.onSaveInstanceState(outState);
     }
 
+    // returns relative offset of an item from the top of the list
+    private int getTopOfItem(int index) {
+        View view = layoutManager.findViewByPosition(index);
+        return (view == null) ? 0 : (view.getTop() - newsArticlesListView.getPaddingTop());
+    }
+
     /**
      * Method that restores the state of the Activity after a configuration change
      */
@@ -402,31 +702,42 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
 
         // get information form the Bundle
         if (savedInstanceState != null) {
-            // data about the state of the ListView
-            // index and top positions of the ListView
+            // data about the state of the RecyclerView
+            // index and top positions of the RecyclerView
             int index = savedInstanceState.getInt(LIST_VIEW_ITEM_INDEX, 0);
             int top = savedInstanceState.getInt(LIST_VIEW_TOP, 0);
 
-            // the ListView itself is being recreated
-            newsArticleList = savedInstanceState.getParcelableArrayList(NEWS_ARTICLE_PARCELABLE_LIST);
-            NewsArticleListAdapter adapter = new NewsArticleListAdapter(this, 0, newsArticleList);
-            newsArticlesListView.setAdapter(adapter);
+            // the layout of the list is being recreated; the pages around the restored position
+            // are reloaded from the local store
+            int[] pageNumbers = savedInstanceState.getIntArray(PAGE_NUMBERS_IN_LIST);
+            int[] itemCounts = savedInstanceState.getIntArray(PAGE_ITEM_COUNTS);
+            int[] gapPages = savedInstanceState.getIntArray(GAP_PAGES_IN_LIST);
+            if (gapPages == null) {
+                gapPages = new int[0];
+            }
+            if (pageNumbers != null && itemCounts != null) {
+                windowedArticleList.restore(NewsQuery.fromPreferences(this, 1), pageNumbers, itemCounts, gapPages, Math.max(index, 0));
+                // the pages shown as gaps are retried again
+                for (int gapPage : gapPages) {
+                    pageRetryQueue.enqueue(NewsQuery.fromPreferences(this, gapPage));
+                }
+            }
 
-            // set / restore the position of the ListView
-            newsArticlesListView.setSelectionFromTop(index, top);
+            // set / restore the position of the list
+            layoutManager.scrollToPositionWithOffset(Math.max(index, 0), top);
 
 
             //// calibration of progressBarr and noArticlesView:
 
             // get state of the noArticlesView (empty == false)
             boolean emptyViewState = savedInstanceState.getBoolean(EMPTY_VIEW_STATE);
-            // if 1) it is empty and 2) ListView is empty -> set empty view  is called
-            if (newsArticleList.size() == 0 && !emptyViewState) {
-                newsArticlesListView.setEmptyView(noArticlesView);
+            // if 1) it is empty and 2) RecyclerView is empty -> set empty view  is called
+            if (listAdapter.getItemCount() == 0 && !emptyViewState) {
                 noArticlesView.setText(R.string.no_articles_message);
+                updateEmptyView(true);
                 progressBar.setVisibility(View.GONE);
-            } else if (newsArticleList.size() == 0 && checkNetworkConnection() && emptyViewState){
-                // if 1) it is not empty, 2) there is network connection and 3) ListView is empty -> progress bar is shown
+            } else if (listAdapter.getItemCount() == 0 && checkNetworkConnection() && emptyViewState){
+                // if 1) it is not empty, 2) there is network connection and 3) RecyclerView is empty -> progress bar is shown
                 // that is we assume that the previuos query is yet to finnish
                 progressBar.setVisibility(View.VISIBLE);
             }
@@ -435,13 +746,14 @@ public class MainActivity extends AppCompatActivity implements LoaderManager.Loa
         //// calibration of progressBarr and noArticlesView (continued):
 
         // set visibility of the ProgressBar and inform the User if there is no network
-        // depending on the state of the network and whether the ListView is empty or not
+        // depending on the state of the network and whether the RecyclerView is empty or not
 
-        // if ListView is not empty - progress bar is not shown
-        if (newsArticleList.size() > 0) {
+        // if RecyclerView is not empty - progress bar is not shown
+        if (listAdapter.getItemCount() > 0) {
             progressBar.setVisibility(View.GONE);
-        } else if (newsArticleList.size() == 0 && !checkNetworkConnection()){
-            // if 1) ListView is empty, and 2) there is no network connection - progress bar is not shown
+            updateEmptyView(false);
+        } else if (listAdapter.getItemCount() == 0 && !checkNetworkConnection()){
+            // if 1) RecyclerView is empty, and 2) there is no network connection - progress bar is not shown
             // this also means that noArticlesView (empty != false)
             informAboutNoNetworkConnection();
             progressBar.setVisibility(View.GONE);
@@ -0,0 +1,111 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.Context;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+import android.widget.TextView;
+
+import com.example.kasparasza.newsapp.core.MetricsRegistry;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Debug overlay of the MetricsRegistry: a panel over the list that shows the latency histograms and the counters of
+ * the fetch -> decode -> deliver -> bind pipeline, refreshed every REFRESH_INTERVAL_MILLIS. The metrics can also be
+ * written to a file, so that the breakdown of a slow page can be looked at later.
+ * While the overlay is shown, the allocations of the loading threads are counted as well (the allocation counting
+ * of the runtime slows it down, so it is only on for as long as somebody looks at the numbers).
+ * The methods are meant to be called on the UI thread.
+ */
+
+public class MetricsOverlay {
+
+    // String constants used:
+    private static final long REFRESH_INTERVAL_MILLIS = 1000;
+    private static final String DUMP_FILE_PREFIX = "metrics-";
+    private static final String DUMP_FILE_SUFFIX = ".txt";
+
+    // true while the allocations are counted (read by the loading threads)
+    private static volatile boolean allocationCounting;
+
+    // members of the class:
+    private TextView overlayView;
+    private Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Runnable refreshTask = new Runnable() {
+        @Override
+        public void run() {
+            overlayView.setText(MetricsRegistry.getInstance().dump());
+            mainHandler.postDelayed(this, REFRESH_INTERVAL_MILLIS);
+        }
+    };
+
+    // constructor
+    public MetricsOverlay(TextView mOverlayView) {
+        overlayView = mOverlayView;
+    }
+
+    /**
+     * Shows the overlay if it is hidden, and hides it otherwise
+     */
+    public void toggle() {
+        if (overlayView.getVisibility() == View.VISIBLE) {
+            hide();
+        } else {
+            show();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private void show() {
+        overlayView.setVisibility(View.VISIBLE);
+        if (!allocationCounting) {
+            Debug.startAllocCounting();
+            allocationCounting = true;
+        }
+        mainHandler.removeCallbacks(refreshTask);
+        refreshTask.run();
+    }
+
+    @SuppressWarnings("deprecation")
+    private void hide() {
+        overlayView.setVisibility(View.GONE);
+        mainHandler.removeCallbacks(refreshTask);
+        if (allocationCounting) {
+            allocationCounting = false;
+            Debug.stopAllocCounting();
+        }
+    }
+
+    /**
+     * Hides the overlay (e.g. when its activity is destroyed)
+     */
+    public void release() {
+        hide();
+    }
+
+    /**
+     * @return true if the allocations of the loading threads are to be counted
+     */
+    static boolean isAllocationCounting() {
+        return allocationCounting;
+    }
+
+    /**
+     * Writes the metrics to a new file in the external files directory of the app (the internal one, if there is
+     * no external storage); the file can be pulled from the device with adb
+     * @param context any context of the app
+     * @return the file
+     */
+    static File dumpToFile(Context context) throws IOException {
+        File directory = context.getExternalFilesDir(null);
+        if (directory == null) {
+            directory = context.getFilesDir();
+        }
+        File file = new File(directory, DUMP_FILE_PREFIX + System.currentTimeMillis() + DUMP_FILE_SUFFIX);
+        MetricsRegistry.getInstance().dumpToFile(file);
+        return file;
+    }
+}
@@ -3,90 +3,71 @@ package com.example.kasparasza.newsapp;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import com.example.kasparasza.newsapp.core.Article;
+import com.example.kasparasza.newsapp.core.ArticleFactory;
+
 /**
  * A class where each member of the class is a NewsArticle
+ * (the fields are held by Article of the core module; the class adds what the app needs on the device)
  */
 
-public class NewsArticle implements Parcelable{
+public class NewsArticle extends Article implements Parcelable{
 
-    // private members of the class
-    private String headline;
-    private String author;
-    private String timePublished;
-    private String startText;
-    private String imageLink;
-    private String articleLink;
-    private String section;
+    // trail text rendered from Html (see TrailTextRenderer); it is not parceled, as it can be rendered again
+    private volatile CharSequence renderedStartText;
 
     // declaration of String constants used by the class
     protected static final String NEWS_ARTICLE = "NEWS ARTICLE";
-    protected static final String NO_HEADLINE_STRING = "no headline";
-    protected static final String NO_AUTHOR_STRING  = "author not given";
-    protected static final String NO_SECTION_STRING  = "general";
-
-
-    // constructors of the class
-    public NewsArticle (String mHeadline, String mAuthor, String mTimePublished, String mStartText, String mImageLink,
-                        String mArticleLink, String mSection){
-        headline = mHeadline;
-        author = mAuthor;
-        timePublished = mTimePublished;
-        startText = mStartText;
-        imageLink = mImageLink;
-        articleLink = mArticleLink;
-        section = mSection;
-    }
-
-    // implementation of getter methods
-    public String getHeadline() {
-        return headline;
-    }
-
-    public String getAuthor() {
-        return author;
-    }
 
-    public String getTimePublished() {
-        return timePublished;
-    }
+    // factory used by the decoder of the core module to create NewsArticle objects
+    public static final ArticleFactory<NewsArticle> FACTORY = new ArticleFactory<NewsArticle>() {
+        @Override
+        public NewsArticle create(String headline, String author, String timePublished, long timePublishedMillis,
+                                  String startText, String imageLink, String articleLink, String section) {
+            return new NewsArticle(headline, author, timePublished, timePublishedMillis,
+                    startText, imageLink, articleLink, section);
+        }
+    };
 
-    public String getStartText() {
-        return startText;
-    }
 
-    public String getImageLink() {
-        return imageLink;
+    // constructors of the class
+    public NewsArticle (String mHeadline, String mAuthor, String mTimePublished, long mTimePublishedMillis,
+                        String mStartText, String mImageLink, String mArticleLink, String mSection){
+        super(mHeadline, mAuthor, mTimePublished, mTimePublishedMillis, mStartText, mImageLink, mArticleLink, mSection);
     }
 
-    public String getArticleLink() {
-        return articleLink;
+    /**
+     * @return trail text rendered from Html; if it has not been prerendered on the loading thread
+     * (e.g. after the object was restored from a Parcel), it is rendered now
+     */
+    public CharSequence getRenderedStartText() {
+        if (renderedStartText == null) {
+            renderedStartText = TrailTextRenderer.render(getStartText());
+        }
+        return renderedStartText;
     }
 
-    public String getSection() {
-        return section;
+    void setRenderedStartText(CharSequence mRenderedStartText) {
+        renderedStartText = mRenderedStartText;
     }
 
     //// implementation of Parcelable methods:
 
     private NewsArticle(Parcel in) {
         // The order must match the order in writeToParcel()
-        headline = in.readString();
-        author = in.readString();
-        timePublished = in.readString();
-        startText = in.readString();
-        imageLink = in.readString();
-        articleLink = in.readString();
-        section = in.readString();
+        this(in.readString(), in.readString(), in.readString(), in.readLong(),
+                in.readString(), in.readString(), in.readString(), in.readString());
     }
 
     public void writeToParcel(Parcel out, int flags) {
-        out.writeString(headline);
-        out.writeString(author);
-        out.writeString(timePublished);
-        out.writeString(startText);
-        out.writeString(imageLink);
-        out.writeString(articleLink);
-        out.writeString(section);
+        out.writeString(getHeadline());
+        out.writeString(getAuthor());
+        out.writeString(getTimePublished());
+        out.writeLong(getTimePublishedMillis());
+        out.writeString(getStartText());
+        out.writeString(getImageLink());
+        out.writeString(getArticleLink());
+        out.writeString(getSection());
     }
 
     // method required to be implemented by Parcelable
@@ -107,4 +88,3 @@ public class NewsArticle implements Parcelable{
 
 
 }
-
@@ -0,0 +1,228 @@
+package com.example.kasparasza.newsapp;
+
+import com.example.kasparasza.newsapp.core.StringInternPool;
+import com.example.kasparasza.newsapp.core.TimestampCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Compact, versioned binary format of a list of NewsArticle objects.
+ * Layout: format version (1 byte), number of articles (varint), then the fields of each article.
+ * - Numbers are written as varints (7 bits per byte), so small values take a single byte.
+ * - The publishing time is written as the difference to the previous article (zigzag varint); the articles of a
+ *   page are sorted by time, so the difference usually takes 3-4 bytes instead of 8.
+ * - Fields with few distinct values (author, section, displayed time) are interned: the first occurrence of a
+ *   value is written in full, each repetition as a reference to it (usually a single byte).
+ * - Other Strings are written as UTF-8 bytes preceded by their length.
+ * A String is written as a varint tag: 0 - null; 1 - a new value follows; n > 1 - reference to interned value n - 2.
+ * The format is used where article lists are kept outside of the object graph (e.g. snapshots of evicted pages).
+ * The methods are thread-safe.
+ */
+
+public class NewsArticleCodec {
+
+    // version of the format; to be incremented with any change of the layout
+    private static final int FORMAT_VERSION = 1;
+    private static final String CHARSET = "UTF-8";
+
+    // String tags
+    private static final int TAG_NULL = 0;
+    private static final int TAG_NEW_VALUE = 1;
+    private static final int TAG_FIRST_REFERENCE = 2;
+    // the fewest bytes taken by an article: a tag of each of its 7 Strings and of its publishing time
+    private static final int MIN_ARTICLE_BYTES = 8;
+
+    /**
+     * Create a private constructor because no one should ever create a {@link NewsArticleCodec} object.
+     */
+    private NewsArticleCodec() {
+    }
+
+    /**
+     * Encodes a list of NewsArticle objects
+     * @param newsArticleList a list of NewsArticle objects
+     * @return encoded bytes
+     */
+    public static byte[] encode(List<NewsArticle> newsArticleList) {
+        Encoder encoder = new Encoder();
+        encoder.writeVarLong(FORMAT_VERSION);
+        encoder.writeVarLong(newsArticleList.size());
+        long previousTimeMillis = 0;
+        for (NewsArticle newsArticle : newsArticleList) {
+            encoder.writeString(newsArticle.getHeadline(), false);
+            encoder.writeString(newsArticle.getAuthor(), true);
+            encoder.writeString(newsArticle.getTimePublished(), true);
+            long timeMillis = newsArticle.getTimePublishedMillis();
+            if (timeMillis == TimestampCodec.UNKNOWN_TIME) {
+                encoder.writeVarLong(0);
+            } else {
+                encoder.writeVarLong(zigzag(timeMillis - previousTimeMillis) + 1);
+                previousTimeMillis = timeMillis;
+            }
+            encoder.writeString(newsArticle.getStartText(), false);
+            encoder.writeString(newsArticle.getImageLink(), false);
+            encoder.writeString(newsArticle.getArticleLink(), false);
+            encoder.writeString(newsArticle.getSection(), true);
+        }
+        return encoder.toByteArray();
+    }
+
+    /**
+     * Decodes a list of NewsArticle objects
+     * @param bytes bytes created by encode()
+     * @return List<NewsArticle> a list of NewsArticle objects
+     * @throws IOException if the bytes are not valid, or were written in an unknown version of the format
+     */
+    public static List<NewsArticle> decode(byte[] bytes) throws IOException {
+        Decoder decoder = new Decoder(bytes);
+        long version = decoder.readVarLong();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unknown version of the format: " + version);
+        }
+        // the number of articles is bounded by the bytes left, so that corrupt data does not allocate a huge list
+        long count = decoder.readVarLong();
+        if (count < 0 || count > decoder.remaining() / MIN_ARTICLE_BYTES) {
+            throw new IOException("Invalid number of articles: " + count);
+        }
+        List<NewsArticle> newsArticleList = new ArrayList<NewsArticle>((int) count);
+        long previousTimeMillis = 0;
+        int index;
+        for (index = 0; index < count; index++) {
+            String headline = decoder.readString(false);
+            String author = decoder.readString(true);
+            String timePublished = decoder.readString(true);
+            long timeTag = decoder.readVarLong();
+            long timeMillis = TimestampCodec.UNKNOWN_TIME;
+            if (timeTag != 0) {
+                timeMillis = previousTimeMillis + unzigzag(timeTag - 1);
+                previousTimeMillis = timeMillis;
+            }
+            String startText = decoder.readString(false);
+            String imageLink = decoder.readString(false);
+            String articleLink = decoder.readString(false);
+            String section = decoder.readString(true);
+            newsArticleList.add(new NewsArticle(headline, author, timePublished, timeMillis,
+                    startText, imageLink, articleLink, section));
+        }
+        return newsArticleList;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // writes the encoded bytes into a growing buffer
+    private static class Encoder {
+        private ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        // interned values by their String
+        private HashMap<String, Integer> internedValues = new HashMap<String, Integer>();
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        private void writeString(String value, boolean intern) {
+            if (value == null) {
+                writeVarLong(TAG_NULL);
+                return;
+            }
+            if (intern) {
+                Integer reference = internedValues.get(value);
+                if (reference != null) {
+                    writeVarLong(TAG_FIRST_REFERENCE + reference);
+                    return;
+                }
+                internedValues.put(value, internedValues.size());
+            }
+            writeVarLong(TAG_NEW_VALUE);
+            byte[] bytes = toUtf8(value);
+            writeVarLong(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        private byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    // reads the encoded bytes from a buffer
+    private static class Decoder {
+        private byte[] bytes;
+        private int position;
+        // values in the order they were interned by the Encoder
+        private List<String> internedValues = new ArrayList<String>();
+
+        private Decoder(byte[] mBytes) {
+            bytes = mBytes;
+        }
+
+        // number of the bytes that have not been read
+        private int remaining() {
+            return bytes.length - position;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            int shift;
+            for (shift = 0; shift < 64; shift += 7) {
+                if (position >= bytes.length) {
+                    throw new IOException("Unexpected end of the data");
+                }
+                byte current = bytes[position++];
+                value |= (long) (current & 0x7F) << shift;
+                if ((current & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private String readString(boolean intern) throws IOException {
+            long tag = readVarLong();
+            if (tag == TAG_NULL) {
+                return null;
+            }
+            if (tag >= TAG_FIRST_REFERENCE) {
+                long reference = tag - TAG_FIRST_REFERENCE;
+                if (reference >= internedValues.size()) {
+                    throw new IOException("Unknown reference: " + reference);
+                }
+                return internedValues.get((int) reference);
+            }
+            long length = readVarLong();
+            if (length < 0 || length > remaining()) {
+                throw new IOException("Unexpected end of the data");
+            }
+            String value = new String(bytes, position, (int) length, CHARSET);
+            position += (int) length;
+            if (intern) {
+                // the interned fields are also shared with the articles decoded before (see StringInternPool)
+                value = StringInternPool.intern(value);
+                internedValues.add(value);
+            }
+            return value;
+        }
+    }
+
+    private static byte[] toUtf8(String value) {
+        try {
+            return value.getBytes(CHARSET);
+        } catch (UnsupportedEncodingException exc_01) {
+            // UTF-8 is always supported
+            throw new IllegalStateException(exc_01);
+        }
+    }
+}
@@ -1,83 +1,428 @@
 package com.example.kasparasza.newsapp;
 
 import android.content.Context;
-import android.support.annotation.NonNull;
-import android.support.annotation.Nullable;
-import android.text.Html;
-import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.squareup.picasso.Picasso;
+import com.example.kasparasza.newsapp.core.LatencyHistogram;
+import com.example.kasparasza.newsapp.core.MetricsRegistry;
+import com.example.kasparasza.newsapp.core.TimestampCodec;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * Implementation of a custom List adapter which will populate a layout with data on Book objects
+ * Implementation of a custom RecyclerView adapter which will populate a layout with data on NewsArticle objects.
+ * Appended pages are announced with ranged notifications; refreshed content is diffed against the
+ * existing list on a background thread (by articleLink identity), so that only the rows that actually
+ * changed are rebound. An item may be null: it is a placeholder of an article that has been dropped from memory
+ * (see WindowedArticleList), and it is shown as an empty row until the article is reloaded.
+ * An item may also be GAP_ITEM: it stands for a page whose query failed, and it is shown as a single row with
+ * a message until the page is recovered (see PageRetryQueue).
+ * The binding of each article row is timed into MetricsRegistry.
+ * All the public methods are meant to be called on the UI thread.
  */
 
-// constructor of the adapter
-public class NewsArticleListAdapter extends ArrayAdapter<NewsArticle> {
-    public NewsArticleListAdapter(Context context, int resource, List<NewsArticle> newsArticles) {
-        super(context, 0, newsArticles);
+public class NewsArticleListAdapter extends RecyclerView.Adapter<NewsArticleListAdapter.NewsArticleViewHolder> {
+
+    /**
+     * Interface that is used to inform about a click on a list item
+     */
+    public interface OnItemClickListener {
+        void onItemClick(NewsArticle newsArticle, int position);
+    }
+
+    // item that stands for a page whose query failed (it is recognised by its identity)
+    static final NewsArticle GAP_ITEM = new NewsArticle("", "", "", TimestampCodec.UNKNOWN_TIME, "", "", "", "");
+    // types of the rows
+    private static final int VIEW_TYPE_ARTICLE = 0;
+    private static final int VIEW_TYPE_GAP = 1;
+    // time of binding an article row (see MetricsRegistry)
+    private static final LatencyHistogram BIND_TIME = MetricsRegistry.getInstance().histogram(MetricsRegistry.STAGE_BIND);
+
+    // members of the class:
+    private Context context;
+    private OnItemClickListener onItemClickListener;
+    private ThumbnailLoader thumbnailLoader;
+    // size of the thumbnails in pixels (resolved once, and not each time an item is bound)
+    private int thumbnailWidth;
+    private int thumbnailHeight;
+    // the items that are shown by the RecyclerView
+    private List<NewsArticle> newsArticles = new ArrayList<NewsArticle>();
+    // the list that is being diffed against the shown items (null if there is no diff in progress)
+    private List<NewsArticle> pendingNewsArticles;
+    // incremented with every diff, so that the results of outdated diffs are discarded
+    private int diffGeneration;
+    private ExecutorService diffExecutor = Executors.newSingleThreadExecutor();
+    private Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // constructor of the adapter
+    public NewsArticleListAdapter(Context mContext, OnItemClickListener mOnItemClickListener) {
+        context = mContext;
+        onItemClickListener = mOnItemClickListener;
+        thumbnailLoader = ThumbnailLoader.getInstance(mContext);
+        thumbnailWidth = mContext.getResources().getDimensionPixelSize(R.dimen.width_of_article_image);
+        thumbnailHeight = mContext.getResources().getDimensionPixelSize(R.dimen.height_of_article_image);
+    }
+
+    // ViewHolder that keeps the references to the views of a list item, so that findViewById is only called
+    // when the item is created (and not each time it is bound)
+    static class NewsArticleViewHolder extends RecyclerView.ViewHolder {
+        private TextView headlineView;
+        private TextView authorView;
+        private TextView startTextView;
+        private TextView publishingTimeView;
+        private TextView sectionView;
+        private ImageView imageView;
+
+        NewsArticleViewHolder(View listViewItem) {
+            super(listViewItem);
+            headlineView = (TextView) listViewItem.findViewById(R.id.headline_view);
+            authorView = (TextView) listViewItem.findViewById(R.id.author_view);
+            startTextView = (TextView) listViewItem.findViewById(R.id.start_text_view);
+            publishingTimeView = (TextView) listViewItem.findViewById(R.id.publishing_time_view);
+            sectionView = (TextView) listViewItem.findViewById(R.id.section_view);
+            imageView = (ImageView) listViewItem.findViewById(R.id.image_view);
+        }
+    }
+
+    // a gap is shown with a layout of its own
+    @Override
+    public int getItemViewType(int position) {
+        return newsArticles.get(position) == GAP_ITEM ? VIEW_TYPE_GAP : VIEW_TYPE_ARTICLE;
+    }
+
+    // overriding onCreateViewHolder method that will create list items
+    @Override
+    public NewsArticleViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        // the row of a gap only holds its message (the views of an article are null), and it can not be clicked
+        if (viewType == VIEW_TYPE_GAP) {
+            return new NewsArticleViewHolder(LayoutInflater.from(context).inflate(R.layout.page_gap_item_in_list_view, parent, false));
+        }
+        View listViewItem = LayoutInflater.from(context).inflate(R.layout.news_article_item_in_list_view, parent, false);
+        final NewsArticleViewHolder viewHolder = new NewsArticleViewHolder(listViewItem);
+        listViewItem.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                int position = viewHolder.getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION && onItemClickListener != null && newsArticles.get(position) != null) {
+                    onItemClickListener.onItemClick(newsArticles.get(position), position);
+                }
+            }
+        });
+        return viewHolder;
+    }
+
+    // overriding onBindViewHolder method that will populate list items with data
+    @Override
+    public void onBindViewHolder(NewsArticleViewHolder viewHolder, int position) {
+
+        // get each item from the List
+        NewsArticle currentListItem = newsArticles.get(position);
+
+        // the message of a gap is set in its layout
+        if (currentListItem == GAP_ITEM) {
+            return;
+        }
+
+        // a placeholder is shown as an empty row
+        if (currentListItem == null) {
+            viewHolder.headlineView.setText("");
+            viewHolder.authorView.setText("");
+            viewHolder.startTextView.setText("");
+            viewHolder.publishingTimeView.setText("");
+            viewHolder.sectionView.setText("");
+            thumbnailLoader.cancel(viewHolder.imageView);
+            viewHolder.imageView.setImageResource(R.drawable.image_placeholder);
+            return;
+        }
+
+        // populate the views with data
+        long startTime = System.nanoTime();
+        viewHolder.headlineView.setText(currentListItem.getHeadline());
+        viewHolder.authorView.setText(currentListItem.getAuthor());
+        viewHolder.startTextView.setText(currentListItem.getRenderedStartText()); // the Html text has been rendered on the loading thread
+        viewHolder.publishingTimeView.setText(currentListItem.getTimePublished());
+        viewHolder.sectionView.setText(currentListItem.getSection());
+        // the thumbnail is set by the image pipeline of the app (an empty image link is handled there too)
+        thumbnailLoader.load(currentListItem.getImageLink(), viewHolder.imageView, thumbnailWidth, thumbnailHeight);
+        BIND_TIME.recordSince(startTime);
     }
 
-    // overriding getView method that will create ListView items
-    @NonNull
+    // the thumbnail request of a row that has scrolled out of the list is cancelled
     @Override
-    public View getView(int position, @Nullable View convertView, @NonNull ViewGroup parent) {
-
-        // instruct the method to reuse the views
-        View listViewItem = convertView;
-        if (listViewItem == null) {
-            listViewItem = LayoutInflater.from(getContext()).inflate(R.layout.news_article_item_in_list_view, parent, false);
-        }
-
-        // initialise the views that will be populated with data
-        TextView headlineView = (TextView) listViewItem.findViewById(R.id.headline_view);
-        TextView authorView = (TextView) listViewItem.findViewById(R.id.author_view);
-        TextView startTextView = (TextView) listViewItem.findViewById(R.id.start_text_view);
-        TextView publishingTimeView = (TextView) listViewItem.findViewById(R.id.publishing_time_view);
-        TextView sectionView = (TextView) listViewItem.findViewById(R.id.section_view);
-        ImageView imageView = (ImageView) listViewItem.findViewById(R.id.image_view);
-
-
-        // before getting items from the list, we want to make sure that the position we request is within the size of the list
-        if (position < getCount()) {
-
-            // get each item from the List
-            NewsArticle currentListItem = getItem(position);
-
-            // populate the views with data
-            headlineView.setText(currentListItem.getHeadline());
-            authorView.setText(currentListItem.getAuthor());
-            startTextView.setText(Html.fromHtml(currentListItem.getStartText())); // Html.fromHtml() formats the TextView to use Html tags
-            publishingTimeView.setText(currentListItem.getTimePublished());
-            sectionView.setText(currentListItem.getSection());
-            // use of Picasso library to set ImageView
-            // at first we check, whether the String with image link is not empty
-            if (!currentListItem.getImageLink().matches("")) {
-                Picasso.with(getContext())
-                        .load(currentListItem.getImageLink())
-                        .resize((int) getContext().getResources().getDimension(R.dimen.width_of_article_image), (int) getContext().getResources().getDimension(R.dimen.height_of_article_image))
-                        .placeholder(R.drawable.image_placeholder)
-                        .error(R.drawable.no_image_to_download)
-                        .centerCrop()
-                        .into(imageView);
-            } else {
-                Picasso.with(getContext())
-                        .load(R.drawable.no_image_to_download)
-                        .resize((int) getContext().getResources().getDimension(R.dimen.width_of_article_image), (int) getContext().getResources().getDimension(R.dimen.height_of_article_image))
-                        .centerCrop()
-                        .into(imageView);
+    public void onViewRecycled(NewsArticleViewHolder viewHolder) {
+        if (viewHolder.imageView == null) {
+            return;
+        }
+        thumbnailLoader.cancel(viewHolder.imageView);
+    }
+
+    @Override
+    public int getItemCount() {
+        return newsArticles.size();
+    }
+
+    /**
+     * @param position position of the item
+     * @return NewsArticle shown at the position, null if it is a placeholder, or GAP_ITEM
+     */
+    public NewsArticle getItem(int position) {
+        return newsArticles.get(position);
+    }
+
+    /**
+     * @param positionStart position of the first item of the range
+     * @param itemCount number of items in the range
+     * @return a copy of a range of the items (including a diff in progress, if there is one)
+     */
+    public List<NewsArticle> getRange(int positionStart, int itemCount) {
+        List<NewsArticle> items = pendingNewsArticles != null ? pendingNewsArticles : newsArticles;
+        int positionEnd = Math.min(positionStart + itemCount, items.size());
+        return new ArrayList<NewsArticle>(items.subList(Math.min(positionStart, positionEnd), positionEnd));
+    }
+
+    /**
+     * Replaces items with their updated copies; the rows are only rebound if their content has changed.
+     * A placeholder is not replaced (the article is not held in memory). All the updates are applied at once,
+     * so that a diff in progress is submitted again only once.
+     * @param items updated NewsArticle objects by their positions
+     */
+    public void updateItems(Map<Integer, NewsArticle> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        if (pendingNewsArticles != null) {
+            // the updates are applied on top of the diff in progress
+            boolean updated = false;
+            for (Map.Entry<Integer, NewsArticle> item : items.entrySet()) {
+                int position = item.getKey();
+                if (position < pendingNewsArticles.size() && pendingNewsArticles.get(position) != null) {
+                    pendingNewsArticles.set(position, item.getValue());
+                    updated = true;
+                }
+            }
+            if (updated) {
+                submitItems(pendingNewsArticles);
+            }
+            return;
+        }
+        for (Map.Entry<Integer, NewsArticle> item : items.entrySet()) {
+            int position = item.getKey();
+            if (position >= newsArticles.size() || newsArticles.get(position) == null) {
+                continue;
+            }
+            NewsArticle previousItem = newsArticles.set(position, item.getValue());
+            if (!haveSameContents(previousItem, item.getValue())) {
+                notifyItemChanged(position);
+            }
+        }
+    }
+
+    /**
+     * @return width of the thumbnails in pixels
+     */
+    public int getThumbnailWidth() {
+        return thumbnailWidth;
+    }
+
+    /**
+     * @return height of the thumbnails in pixels
+     */
+    public int getThumbnailHeight() {
+        return thumbnailHeight;
+    }
+
+    /**
+     * @return true while the difference to a new list is being computed (the positions of the items may change)
+     */
+    public boolean isDiffPending() {
+        return pendingNewsArticles != null;
+    }
+
+    /**
+     * Replaces the shown items at once, without diffing (e.g. when the list is restored)
+     * @param items NewsArticle objects to show
+     */
+    public void setItems(List<NewsArticle> items) {
+        diffGeneration++;
+        pendingNewsArticles = null;
+        newsArticles = new ArrayList<NewsArticle>(items);
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Appends a page of NewsArticle objects to the end of the list
+     * @param items NewsArticle objects to append
+     */
+    public void appendItems(List<NewsArticle> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        int positionStart = newsArticles.size();
+        newsArticles.addAll(items);
+        notifyItemRangeInserted(positionStart, items.size());
+        // a diff in progress was computed without the appended items - it is computed again with them
+        if (pendingNewsArticles != null) {
+            pendingNewsArticles.addAll(items);
+            submitItems(pendingNewsArticles);
+        }
+    }
+
+    /**
+     * Replaces a range of the list (e.g. the stored copy of a page with its network refresh);
+     * only the rows that actually changed are rebound
+     * @param positionStart position of the first item of the range
+     * @param itemCount number of items in the range
+     * @param items NewsArticle objects that replace the range
+     */
+    public void replaceRange(int positionStart, int itemCount, List<NewsArticle> items) {
+        List<NewsArticle> base = pendingNewsArticles != null ? pendingNewsArticles : newsArticles;
+        List<NewsArticle> newItems = new ArrayList<NewsArticle>(base.size() - itemCount + items.size());
+        newItems.addAll(base.subList(0, positionStart));
+        newItems.addAll(items);
+        newItems.addAll(base.subList(positionStart + itemCount, base.size()));
+        submitItems(newItems);
+    }
+
+    /**
+     * Drops the items of a range from memory: they are replaced with placeholders. The rows are not rebound,
+     * as the range is expected to be out of the viewport. Does nothing while a diff is in progress.
+     * @param positionStart position of the first item of the range
+     * @param itemCount number of items in the range
+     */
+    public void evictRange(int positionStart, int itemCount) {
+        if (pendingNewsArticles != null) {
+            return;
+        }
+        int position;
+        for (position = positionStart; position < positionStart + itemCount && position < newsArticles.size(); position++) {
+            newsArticles.set(position, null);
+        }
+    }
+
+    /**
+     * Fills a range of placeholders with reloaded items; if the number of the items has changed in the meantime
+     * (or a diff is in progress), the range is replaced as in replaceRange()
+     * @param positionStart position of the first item of the range
+     * @param itemCount number of items in the range
+     * @param items NewsArticle objects that fill the range
+     */
+    public void fillRange(int positionStart, int itemCount, List<NewsArticle> items) {
+        if (pendingNewsArticles != null || items.size() != itemCount || positionStart + itemCount > newsArticles.size()) {
+            replaceRange(positionStart, itemCount, items);
+            return;
+        }
+        int index;
+        for (index = 0; index < itemCount; index++) {
+            newsArticles.set(positionStart + index, items.get(index));
+        }
+        notifyItemRangeChanged(positionStart, itemCount);
+    }
+
+    /**
+     * Replaces the shown items with a new list; the difference between the lists is computed on a background
+     * thread, and only the rows that actually changed are rebound
+     * @param items NewsArticle objects to show
+     */
+    public void submitItems(List<NewsArticle> items) {
+        final int generation = ++diffGeneration;
+        final List<NewsArticle> oldItems = new ArrayList<NewsArticle>(newsArticles);
+        final List<NewsArticle> newItems = new ArrayList<NewsArticle>(items);
+        if (oldItems.isEmpty()) {
+            // there is nothing to diff against
+            pendingNewsArticles = null;
+            newsArticles = newItems;
+            notifyItemRangeInserted(0, newItems.size());
+            return;
+        }
+        pendingNewsArticles = newItems;
+        diffExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new NewsArticleDiffCallback(oldItems, newItems));
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // the result is only applied if no other change has been made in the meantime
+                        if (generation != diffGeneration) {
+                            return;
+                        }
+                        pendingNewsArticles = null;
+                        newsArticles = newItems;
+                        diffResult.dispatchUpdatesTo(NewsArticleListAdapter.this);
+                    }
+                });
             }
+        });
+    }
+
+    /**
+     * Stops the background thread used for diffing; to be called when the adapter is not used any more
+     */
+    public void release() {
+        diffGeneration++;
+        diffExecutor.shutdownNow();
+    }
+
+    // DiffUtil.Callback that identifies the items by their articleLink
+    private static class NewsArticleDiffCallback extends DiffUtil.Callback {
+        private List<NewsArticle> oldItems;
+        private List<NewsArticle> newItems;
+
+        NewsArticleDiffCallback(List<NewsArticle> mOldItems, List<NewsArticle> mNewItems) {
+            oldItems = mOldItems;
+            newItems = mNewItems;
         }
 
-        // returns an inflated ListView Item
-        return listViewItem;
+        @Override
+        public int getOldListSize() {
+            return oldItems.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newItems.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            NewsArticle oldItem = oldItems.get(oldItemPosition);
+            NewsArticle newItem = newItems.get(newItemPosition);
+            // placeholders are only the same as other placeholders
+            if (oldItem == null || newItem == null) {
+                return oldItem == newItem;
+            }
+            return TextUtils.equals(oldItem.getArticleLink(), newItem.getArticleLink());
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return haveSameContents(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+        }
+    }
+
+    // compares the shown fields of two items (placeholders are only the same as other placeholders)
+    private static boolean haveSameContents(NewsArticle oldItem, NewsArticle newItem) {
+        if (oldItem == null || newItem == null) {
+            return oldItem == newItem;
+        }
+        return TextUtils.equals(oldItem.getHeadline(), newItem.getHeadline())
+                && TextUtils.equals(oldItem.getAuthor(), newItem.getAuthor())
+                && TextUtils.equals(oldItem.getTimePublished(), newItem.getTimePublished())
+                && TextUtils.equals(oldItem.getStartText(), newItem.getStartText())
+                && TextUtils.equals(oldItem.getImageLink(), newItem.getImageLink())
+                && TextUtils.equals(oldItem.getSection(), newItem.getSection());
     }
 }
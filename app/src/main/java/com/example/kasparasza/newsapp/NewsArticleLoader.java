@@ -1,28 +1,51 @@
 package com.example.kasparasza.newsapp;
 
 import android.content.Context;
+import android.os.Debug;
 import android.support.v4.content.AsyncTaskLoader;
-import android.util.Log;
+
+import com.example.kasparasza.newsapp.core.LatencyHistogram;
+import com.example.kasparasza.newsapp.core.MetricsRegistry;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * NewsArticleLoader class that extends AsyncTaskLoader
+ * If the requested page is available in the local NewsArticleStore, it is delivered right away,
+ * and a refresh of the page over the network is started behind it. The refresh is skipped while the
+ * stored page is fresh (see {@link ResponseFreshnessPolicy}), otherwise it is a conditional http query.
+ * If the page is not stored and its query fails, null is delivered (see NewsPageRepository.refreshPage).
+ * The delivery of each result is timed into MetricsRegistry (and the allocations of the loading, while they are
+ * counted - see MetricsOverlay).
  */
 
 public class NewsArticleLoader extends AsyncTaskLoader<List<NewsArticle>> {
     private static final String LOG_TAG = AppUtilities.class.getSimpleName();
+    // metrics of the loader (see MetricsRegistry)
+    private static final LatencyHistogram DELIVER_TIME =
+            MetricsRegistry.getInstance().histogram(MetricsRegistry.STAGE_DELIVER);
+    private static final AtomicLong ALLOCATED_OBJECTS =
+            MetricsRegistry.getInstance().counter(MetricsRegistry.COUNT_ALLOCATED_OBJECTS);
+    private static final AtomicLong ALLOCATED_BYTES =
+            MetricsRegistry.getInstance().counter(MetricsRegistry.COUNT_ALLOCATED_BYTES);
     // members of the class:
-    // String array with url resources from which query data will be fetched
-    private String urlString;
+    // query of the page from which data will be fetched
+    private NewsQuery query;
     // List with the data, held in cache memory of the loader
     private List<NewsArticle> listInCacheMemory;
+    // true once the stored copy of the page has been delivered; the next load goes to the network
+    private boolean storedPageDelivered;
+    // true if the stored copy of the page was received within the freshness period - no refresh is needed
+    private boolean storedPageFresh;
+    // true if the last delivered data is a network refresh of the previously delivered stored copy
+    private boolean refreshOfStoredPage;
 
 
     // constructor
-    public NewsArticleLoader(Context context, String mUrlString) {
+    public NewsArticleLoader(Context context, NewsQuery mQuery) {
         super(context);
-        urlString = mUrlString;
+        query = mQuery;
     }
 
     // before any actual load activity is started, we check whether the data
@@ -38,24 +61,83 @@ public class NewsArticleLoader extends AsyncTaskLoader<List<NewsArticle>> {
     }
 
     // implementation of otherwise abstract loadInBackground() method
-    // the method calls an AsyncTask / http query to be performed
+    // the allocations of the loading thread are counted while MetricsOverlay is shown
     @Override
+    @SuppressWarnings("deprecation")
     public List<NewsArticle> loadInBackground() {
-        // Check if input Url string is not null or empty.
+        if (!MetricsOverlay.isAllocationCounting()) {
+            return loadPage();
+        }
+        int objectsBefore = Debug.getThreadAllocCount();
+        int bytesBefore = Debug.getThreadAllocSize();
+        List<NewsArticle> newsArticleList = loadPage();
+        ALLOCATED_OBJECTS.addAndGet(Debug.getThreadAllocCount() - objectsBefore);
+        ALLOCATED_BYTES.addAndGet(Debug.getThreadAllocSize() - bytesBefore);
+        return newsArticleList;
+    }
+
+    // the method reads the page from the local store first, and calls an http query afterwards
+    private List<NewsArticle> loadPage() {
+        // Check if input query is not null.
         // If that is the case, AsyncTask returns null
-        if (urlString == null) {
+        if (query == null) {
             return null;
         }
-        List<NewsArticle> newsArticleList = AppUtilities.getDataFromHttp(urlString);
+        NewsArticleStore store = NewsArticleStore.getInstance(getContext());
+
+        // the first load serves the stored copy of the page (if there is one)
+        if (!storedPageDelivered) {
+            // (a page of new preferences may be derived from the pages stored for the previous ones)
+            List<NewsArticle> storedList = NewsPageRepository.readOrDeriveStoredPage(store, query);
+            if (!storedList.isEmpty()) {
+                storedPageFresh = NewsPageRepository.isStoredPageFresh(store, query);
+                storedPageDelivered = true;
+                refreshOfStoredPage = false;
+                return storedList;
+            }
+        }
+
+        // the page is refreshed over the network (conditionally, if the stored copy was delivered before)
+        List<NewsArticle> newsArticleList = NewsPageRepository.refreshPage(store, query,
+                storedPageDelivered ? listInCacheMemory : null);
+        refreshOfStoredPage = storedPageDelivered;
         return newsArticleList;
     }
 
     // results of load method are saved for later use
     @Override
     public void deliverResult(List<NewsArticle> data) {
+        long startTime = System.nanoTime();
+        boolean refreshNeeded = storedPageDelivered && !storedPageFresh && !refreshOfStoredPage && data != listInCacheMemory;
         listInCacheMemory = data;
         // We can do any pre-processing we want here
         // Just remember this is on the UI thread so nothing lengthy!
         super.deliverResult(data);
+        // the stored copy of the page has just been delivered - refresh it over the network
+        if (refreshNeeded && isStarted()) {
+            forceLoad();
+        }
+        DELIVER_TIME.recordSince(startTime);
+    }
+
+    /**
+     * @return query of the page loaded by the Loader
+     */
+    public NewsQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * @return "page" parameter of the query performed by the Loader
+     */
+    public int getPage() {
+        return query.getPage();
+    }
+
+    /**
+     * @return true if the last delivered data replaces the stored copy of the same page delivered before it
+     */
+    public boolean isRefreshOfStoredPage() {
+        return refreshOfStoredPage;
     }
 }
@@ -0,0 +1,500 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.kasparasza.newsapp.core.CachedResponse;
+import com.example.kasparasza.newsapp.core.StringInternPool;
+import com.example.kasparasza.newsapp.core.TimestampCodec;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Local persistent store of NewsArticle objects.
+ * Articles are kept in an SQLite table grouped the same way as they were received from the http query:
+ * by query profile (user preferences) and "page" parameter. This allows the content of any page to be shown
+ * without waiting for the network. Each page is stored as it was received: the result set shifts between the
+ * queries, so the same article may be stored on two pages of a profile (when a page is written, the other stored
+ * copies of its articles are updated with the fields received). The duplicates are dropped when the pages are
+ * merged into the list (see ArticleMergeIndex), so that no stored page is left short.
+ * The store is bounded: once it holds more than MAX_STORED_ARTICLES, whole pages are trimmed, starting with those
+ * received (or revalidated) the longest time ago.
+ * Validators of the http response of each stored page are kept in a separate table (see {@link CachedResponse}),
+ * as well as the publishing time of the newest article of each query profile (used by the incremental sync)
+ * and the number of the last page of its result set, once it is known (used to derive other profiles locally).
+ * Pages whose query failed are recorded as pending (see {@link PageRetryQueue}), so that they are fetched
+ * by the background sync even if the app is closed before they are recovered.
+ */
+
+public class NewsArticleStore extends SQLiteOpenHelper {
+
+    // String constants used:
+    private static final String DATABASE_NAME = "news_articles.db";
+    private static final int DATABASE_VERSION = 7;
+    // the most articles kept in the store (of all the profiles); the store is trimmed to TRIMMED_ARTICLES,
+    // so that it is not trimmed again by every page written
+    static final int MAX_STORED_ARTICLES = 10000;
+    static final int TRIMMED_ARTICLES = 9000;
+
+    private static final String TABLE_ARTICLES = "articles";
+    private static final String COLUMN_ARTICLE_LINK = "article_link";
+    private static final String COLUMN_PROFILE = "profile";
+    private static final String COLUMN_PAGE = "page";
+    private static final String COLUMN_POSITION = "position";
+    private static final String COLUMN_HEADLINE = "headline";
+    private static final String COLUMN_AUTHOR = "author";
+    private static final String COLUMN_TIME_PUBLISHED = "time_published";
+    private static final String COLUMN_TIME_PUBLISHED_MILLIS = "time_published_millis";
+    private static final String COLUMN_START_TEXT = "start_text";
+    private static final String COLUMN_IMAGE_LINK = "image_link";
+    private static final String COLUMN_SECTION = "section";
+    private static final String COLUMN_USED_AT = "used_at";
+
+    private static final String TABLE_RESPONSES = "responses";
+    private static final String COLUMN_URL = "url";
+    private static final String COLUMN_ETAG = "etag";
+    private static final String COLUMN_LAST_MODIFIED = "last_modified";
+    private static final String COLUMN_FETCHED_AT = "fetched_at";
+
+    private static final String TABLE_PROFILES = "profiles";
+    private static final String COLUMN_NEWEST_PUBLISHED = "newest_published";
+    private static final String COLUMN_LAST_PAGE = "last_page";
+
+    private static final String TABLE_PENDING_PAGES = "pending_pages";
+
+    // the same article may be returned for several query profiles, and on two pages of a profile
+    // (the result set shifts between the queries), hence the compound primary key
+    private static final String SQL_CREATE_ARTICLES = "CREATE TABLE " + TABLE_ARTICLES + " ("
+            + COLUMN_ARTICLE_LINK + " TEXT NOT NULL, "
+            + COLUMN_PROFILE + " TEXT NOT NULL, "
+            + COLUMN_PAGE + " INTEGER NOT NULL, "
+            + COLUMN_POSITION + " INTEGER NOT NULL, "
+            + COLUMN_HEADLINE + " TEXT, "
+            + COLUMN_AUTHOR + " TEXT, "
+            + COLUMN_TIME_PUBLISHED + " TEXT, "
+            + COLUMN_TIME_PUBLISHED_MILLIS + " INTEGER NOT NULL, "
+            + COLUMN_START_TEXT + " TEXT, "
+            + COLUMN_IMAGE_LINK + " TEXT, "
+            + COLUMN_SECTION + " TEXT, "
+            + COLUMN_USED_AT + " INTEGER NOT NULL, "
+            + "PRIMARY KEY (" + COLUMN_ARTICLE_LINK + ", " + COLUMN_PROFILE + ", " + COLUMN_PAGE + "))";
+
+    private static final String SQL_CREATE_PAGE_INDEX = "CREATE INDEX articles_by_page ON " + TABLE_ARTICLES
+            + " (" + COLUMN_PROFILE + ", " + COLUMN_PAGE + ", " + COLUMN_POSITION + ")";
+
+    private static final String SQL_CREATE_RESPONSES = "CREATE TABLE " + TABLE_RESPONSES + " ("
+            + COLUMN_PROFILE + " TEXT NOT NULL, "
+            + COLUMN_PAGE + " INTEGER NOT NULL, "
+            + COLUMN_URL + " TEXT NOT NULL, "
+            + COLUMN_ETAG + " TEXT, "
+            + COLUMN_LAST_MODIFIED + " TEXT, "
+            + COLUMN_FETCHED_AT + " INTEGER NOT NULL, "
+            + "PRIMARY KEY (" + COLUMN_PROFILE + ", " + COLUMN_PAGE + "))";
+
+    // a profile row may carry either of the values only (a missing newest_published is NULL, an unknown last_page 0)
+    private static final String SQL_CREATE_PROFILES = "CREATE TABLE " + TABLE_PROFILES + " ("
+            + COLUMN_PROFILE + " TEXT PRIMARY KEY, "
+            + COLUMN_NEWEST_PUBLISHED + " INTEGER, "
+            + COLUMN_LAST_PAGE + " INTEGER NOT NULL DEFAULT 0)";
+
+    private static final String SQL_CREATE_PENDING_PAGES = "CREATE TABLE " + TABLE_PENDING_PAGES + " ("
+            + COLUMN_PROFILE + " TEXT NOT NULL, "
+            + COLUMN_PAGE + " INTEGER NOT NULL, "
+            + "PRIMARY KEY (" + COLUMN_PROFILE + ", " + COLUMN_PAGE + "))";
+
+    // the single instance of the store, shared by all the components of the app
+    private static NewsArticleStore instance;
+
+    /**
+     * Returns the single instance of the store; the application context is used,
+     * so that no Activity is leaked by the store
+     * @param context any context of the app
+     * @return NewsArticleStore
+     */
+    static synchronized NewsArticleStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new NewsArticleStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private NewsArticleStore(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    // constructor of a store in another database (used by the tests; null is an in-memory database)
+    NewsArticleStore(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(SQL_CREATE_ARTICLES);
+        db.execSQL(SQL_CREATE_PAGE_INDEX);
+        db.execSQL(SQL_CREATE_RESPONSES);
+        db.execSQL(SQL_CREATE_PROFILES);
+        db.execSQL(SQL_CREATE_PENDING_PAGES);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // the store only holds a copy of the data available online, so it is simply recreated
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_ARTICLES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_RESPONSES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_PROFILES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_PENDING_PAGES);
+        onCreate(db);
+    }
+
+    /**
+     * Reads a page of NewsArticle objects in the order they were received from the http query
+     * @param profile key of the query profile (see {@link #createProfileKey})
+     * @param page "page" parameter of the query
+     * @return List<NewsArticle> a list of NewsArticle objects; empty if the page has not been stored yet
+     */
+    List<NewsArticle> readPage(String profile, int page) {
+        Cursor cursor = getReadableDatabase().query(TABLE_ARTICLES, null,
+                COLUMN_PROFILE + " = ? AND " + COLUMN_PAGE + " = ?",
+                new String[]{profile, String.valueOf(page)},
+                null, null, COLUMN_POSITION + " ASC");
+        return readArticles(cursor);
+    }
+
+    /**
+     * Reads the stored NewsArticle objects of all the query profiles, the newest first
+     * (an article stored for several profiles, or on two pages of a profile, is read once for each copy)
+     * @param limit the most articles that are read
+     * @return List<NewsArticle> a list of NewsArticle objects
+     */
+    List<NewsArticle> readAllArticles(int limit) {
+        Cursor cursor = getReadableDatabase().query(TABLE_ARTICLES, null, null, null,
+                null, null, COLUMN_TIME_PUBLISHED_MILLIS + " DESC", String.valueOf(limit));
+        return readArticles(cursor);
+    }
+
+    // reads the rows of a cursor into NewsArticle objects, and closes the cursor
+    private static List<NewsArticle> readArticles(Cursor cursor) {
+        List<NewsArticle> newsArticleList = new ArrayList<NewsArticle>(cursor.getCount());
+        try {
+            int headlineIndex = cursor.getColumnIndexOrThrow(COLUMN_HEADLINE);
+            int authorIndex = cursor.getColumnIndexOrThrow(COLUMN_AUTHOR);
+            int timePublishedIndex = cursor.getColumnIndexOrThrow(COLUMN_TIME_PUBLISHED);
+            int timePublishedMillisIndex = cursor.getColumnIndexOrThrow(COLUMN_TIME_PUBLISHED_MILLIS);
+            int startTextIndex = cursor.getColumnIndexOrThrow(COLUMN_START_TEXT);
+            int imageLinkIndex = cursor.getColumnIndexOrThrow(COLUMN_IMAGE_LINK);
+            int articleLinkIndex = cursor.getColumnIndexOrThrow(COLUMN_ARTICLE_LINK);
+            int sectionIndex = cursor.getColumnIndexOrThrow(COLUMN_SECTION);
+            while (cursor.moveToNext()) {
+                // the displayed time is formatted again, so that it follows the time zone and the locale of the device
+                long timePublishedMillis = cursor.getLong(timePublishedMillisIndex);
+                String timePublished = timePublishedMillis != TimestampCodec.UNKNOWN_TIME
+                        ? TimestampCodec.formatForDisplay(timePublishedMillis)
+                        : StringInternPool.intern(cursor.getString(timePublishedIndex));
+                newsArticleList.add(new NewsArticle(
+                        cursor.getString(headlineIndex),
+                        StringInternPool.intern(cursor.getString(authorIndex)),
+                        timePublished,
+                        timePublishedMillis,
+                        cursor.getString(startTextIndex),
+                        cursor.getString(imageLinkIndex),
+                        cursor.getString(articleLinkIndex),
+                        StringInternPool.intern(cursor.getString(sectionIndex))));
+            }
+        } finally {
+            cursor.close();
+        }
+        return newsArticleList;
+    }
+
+    /**
+     * Replaces the stored content of a page with a freshly received list of NewsArticle objects;
+     * the copies of its articles stored on the other pages of the profile are updated with the fields received
+     * @param profile key of the query profile (see {@link #createProfileKey})
+     * @param page "page" parameter of the query
+     * @param newsArticleList a list of NewsArticle objects received from the http query
+     */
+    void writePage(String profile, int page, List<NewsArticle> newsArticleList) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_ARTICLES, COLUMN_PROFILE + " = ? AND " + COLUMN_PAGE + " = ?",
+                    new String[]{profile, String.valueOf(page)});
+            insertPage(db, profile, page, newsArticleList, true);
+            trimToSize(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Replaces the stored content of a query profile with a merged list of NewsArticle objects,
+     * which is split into pages 1, 2, ... (e.g. after newer articles were added to the top of the list).
+     * The validators of the pages of the profile are cleared, as the rewritten pages no longer match the responses
+     * they were recorded for (the time of the responses is kept); the next refresh of each page is a full query.
+     * @param profile key of the query profile (see {@link #createProfileKey})
+     * @param newsArticleList merged list of NewsArticle objects (without duplicates), in the order of the query
+     * @param pageSize number of NewsArticle objects in a page
+     */
+    void writePages(String profile, List<NewsArticle> newsArticleList, int pageSize) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.delete(TABLE_ARTICLES, COLUMN_PROFILE + " = ?", new String[]{profile});
+            ContentValues validatorValues = new ContentValues();
+            validatorValues.putNull(COLUMN_ETAG);
+            validatorValues.putNull(COLUMN_LAST_MODIFIED);
+            db.update(TABLE_RESPONSES, validatorValues, COLUMN_PROFILE + " = ?", new String[]{profile});
+            int pageStart;
+            for (pageStart = 0; pageStart < newsArticleList.size(); pageStart += pageSize) {
+                insertPage(db, profile, pageStart / pageSize + 1,
+                        newsArticleList.subList(pageStart, Math.min(pageStart + pageSize, newsArticleList.size())), false);
+            }
+            trimToSize(db);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // inserts the rows of a page (the page has been deleted before); if the articles may be stored on other pages
+    // of the profile, those copies are updated with the fields received (their position is kept)
+    private static void insertPage(SQLiteDatabase db, String profile, int page, List<NewsArticle> newsArticleList,
+                                   boolean updateOtherPages) {
+        long usedAt = System.currentTimeMillis();
+        String pageString = String.valueOf(page);
+        ContentValues values = new ContentValues();
+        int position;
+        for (position = 0; position < newsArticleList.size(); position++) {
+            NewsArticle newsArticle = newsArticleList.get(position);
+            values.clear();
+            values.put(COLUMN_HEADLINE, newsArticle.getHeadline());
+            values.put(COLUMN_AUTHOR, newsArticle.getAuthor());
+            values.put(COLUMN_TIME_PUBLISHED, newsArticle.getTimePublished());
+            values.put(COLUMN_TIME_PUBLISHED_MILLIS, newsArticle.getTimePublishedMillis());
+            values.put(COLUMN_START_TEXT, newsArticle.getStartText());
+            values.put(COLUMN_IMAGE_LINK, newsArticle.getImageLink());
+            values.put(COLUMN_SECTION, newsArticle.getSection());
+            if (updateOtherPages) {
+                db.update(TABLE_ARTICLES, values,
+                        COLUMN_ARTICLE_LINK + " = ? AND " + COLUMN_PROFILE + " = ? AND " + COLUMN_PAGE + " != ?",
+                        new String[]{newsArticle.getArticleLink(), profile, pageString});
+            }
+            values.put(COLUMN_ARTICLE_LINK, newsArticle.getArticleLink());
+            values.put(COLUMN_PROFILE, profile);
+            values.put(COLUMN_PAGE, page);
+            values.put(COLUMN_POSITION, position);
+            values.put(COLUMN_USED_AT, usedAt);
+            // an article returned twice on the same page is stored once (in its first position)
+            db.insertWithOnConflict(TABLE_ARTICLES, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        }
+    }
+
+    // removes whole pages, the least recently used first, while the store holds more than MAX_STORED_ARTICLES;
+    // the validators of a removed page are removed with it (the page is fetched in full the next time)
+    private static void trimToSize(SQLiteDatabase db) {
+        long articleCount = DatabaseUtils.queryNumEntries(db, TABLE_ARTICLES);
+        if (articleCount <= MAX_STORED_ARTICLES) {
+            return;
+        }
+        Cursor cursor = db.query(TABLE_ARTICLES, new String[]{COLUMN_PROFILE, COLUMN_PAGE, "COUNT(*)"},
+                null, null, COLUMN_PROFILE + ", " + COLUMN_PAGE, null,
+                "MAX(" + COLUMN_USED_AT + ") ASC, " + COLUMN_PAGE + " DESC");
+        try {
+            while (articleCount > TRIMMED_ARTICLES && cursor.moveToNext()) {
+                String[] pageArgs = new String[]{cursor.getString(0), String.valueOf(cursor.getInt(1))};
+                db.delete(TABLE_ARTICLES, COLUMN_PROFILE + " = ? AND " + COLUMN_PAGE + " = ?", pageArgs);
+                db.delete(TABLE_RESPONSES, COLUMN_PROFILE + " = ? AND " + COLUMN_PAGE + " = ?", pageArgs);
+                articleCount -= cursor.getInt(2);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Reads the publishing time of the newest article received for a query profile
+     * @param profile key of the query profile (see {@link #createProfileKey})
+     * @return epoch milliseconds, or TimestampCodec.UNKNOWN_TIME if nothing is recorded for the profile
+     */
+    long readNewestPublished(String profile) {
+        Cursor cursor = getReadableDatabase().query(TABLE_PROFILES, new String[]{COLUMN_NEWEST_PUBLISHED},
+                COLUMN_PROFILE + " = ?", new String[]{profile}, null, null, null);
+        try {
+            return cursor.moveToFirst() && !cursor.isNull(0) ? cursor.getLong(0) : TimestampCodec.UNKNOWN_TIME;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Records the publishing time of the newest article received for a query profile
+     * @param profile key of the query profile (see {@link #createProfileKey})
+     * @param newestPublishedMillis epoch milliseconds
+     */
+    void writeNewestPublished(String profile, long newestPublishedMillis) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_NEWEST_PUBLISHED, newestPublishedMillis);
+        updateProfile(profile, values);
+    }
+
+    /**
+     * Reads the number of the last page of the result set of a query profile
+     * @param profile key of the query profile (see {@link #createProfileKey})
+     * @return page number, or 0 if the last page is not known
+     */
+    int readLastPage(String profile) {
+        Cursor cursor = getReadableDatabase().query(TABLE_PROFILES, new String[]{COLUMN_LAST_PAGE},
+                COLUMN_PROFILE + " = ?", new String[]{profile}, null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Records the number of the last page of the result set of a query profile
+     * @param profile key of the query profile (see {@link #createProfileKey})
+     * @param lastPage page number, or 0 if the last page is not known any more
+     */
+    void writeLastPage(String profile, int lastPage) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_LAST_PAGE, lastPage);
+        updateProfile(profile, values);
+    }
+
+    // sets the given values of a profile row (the row is created if there is none; its other values are kept)
+    private void updateProfile(String profile, ContentValues values) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues keyValues = new ContentValues();
+            keyValues.put(COLUMN_PROFILE, profile);
+            db.insertWithOnConflict(TABLE_PROFILES, null, keyValues, SQLiteDatabase.CONFLICT_IGNORE);
+            db.update(TABLE_PROFILES, values, COLUMN_PROFILE + " = ?", new String[]{profile});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Reads the pages of a query profile whose query failed and that have not been recovered yet
+     * @param profile key of the query profile (see {@link #createProfileKey})
+     * @return List<Integer> "page" parameters of the pending pages, in ascending order
+     */
+    List<Integer> readPendingPages(String profile) {
+        Cursor cursor = getReadableDatabase().query(TABLE_PENDING_PAGES, new String[]{COLUMN_PAGE},
+                COLUMN_PROFILE + " = ?", new String[]{profile}, null, null, COLUMN_PAGE + " ASC");
+        List<Integer> pages = new ArrayList<Integer>(cursor.getCount());
+        try {
+            while (cursor.moveToNext()) {
+                pages.add(cursor.getInt(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return pages;
+    }
+
+    /**
+     * Records a page whose query failed as pending
+     * @param profile key of the query profile (see {@link #createProfileKey})
+     * @param page "page" parameter of the query
+     */
+    void writePendingPage(String profile, int page) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_PROFILE, profile);
+        values.put(COLUMN_PAGE, page);
+        getWritableDatabase().insertWithOnConflict(TABLE_PENDING_PAGES, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+    }
+
+    /**
+     * Removes a page from the pending pages (e.g. it has been recovered)
+     * @param profile key of the query profile (see {@link #createProfileKey})
+     * @param page "page" parameter of the query
+     */
+    void deletePendingPage(String profile, int page) {
+        getWritableDatabase().delete(TABLE_PENDING_PAGES, COLUMN_PROFILE + " = ? AND " + COLUMN_PAGE + " = ?",
+                new String[]{profile, String.valueOf(page)});
+    }
+
+    /**
+     * Removes all the pending pages of a query profile (e.g. the feed has been switched to another profile)
+     * @param profile key of the query profile (see {@link #createProfileKey})
+     */
+    void deletePendingPages(String profile) {
+        getWritableDatabase().delete(TABLE_PENDING_PAGES, COLUMN_PROFILE + " = ?", new String[]{profile});
+    }
+
+    /**
+     * Reads validators of the http response, from which the stored copy of a page was created
+     * @param profile key of the query profile (see {@link #createProfileKey})
+     * @param page "page" parameter of the query
+     * @return CachedResponse or null, if nothing is recorded for the page
+     */
+    CachedResponse readResponse(String profile, int page) {
+        Cursor cursor = getReadableDatabase().query(TABLE_RESPONSES,
+                new String[]{COLUMN_URL, COLUMN_ETAG, COLUMN_LAST_MODIFIED, COLUMN_FETCHED_AT},
+                COLUMN_PROFILE + " = ? AND " + COLUMN_PAGE + " = ?",
+                new String[]{profile, String.valueOf(page)},
+                null, null, null);
+        try {
+            if (cursor.moveToFirst()) {
+                return new CachedResponse(cursor.getString(0), cursor.getString(1), cursor.getString(2), cursor.getLong(3));
+            }
+            return null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Records validators of the http response, from which the stored copy of a page was created
+     * (or by which the stored copy was revalidated)
+     * @param profile key of the query profile (see {@link #createProfileKey})
+     * @param page "page" parameter of the query
+     * @param cachedResponse validators of the response and the time it was received
+     */
+    void writeResponse(String profile, int page, CachedResponse cachedResponse) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_PROFILE, profile);
+        values.put(COLUMN_PAGE, page);
+        values.put(COLUMN_URL, cachedResponse.getUrl());
+        values.put(COLUMN_ETAG, cachedResponse.getETag());
+        values.put(COLUMN_LAST_MODIFIED, cachedResponse.getLastModified());
+        values.put(COLUMN_FETCHED_AT, cachedResponse.getFetchedAtMillis());
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.insertWithOnConflict(TABLE_RESPONSES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            // a revalidated page counts as used (it is not trimmed before the pages that were not revalidated)
+            ContentValues usedValues = new ContentValues();
+            usedValues.put(COLUMN_USED_AT, System.currentTimeMillis());
+            db.update(TABLE_ARTICLES, usedValues, COLUMN_PROFILE + " = ? AND " + COLUMN_PAGE + " = ?",
+                    new String[]{profile, String.valueOf(page)});
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Creates a key that identifies a query profile, i.e. a combination of the user preferences
+     * made in the SettingsActivity. The preference value (e.g. "last week") is used instead of the
+     * actual from-date, so that the stored pages stay valid on the following days.
+     * @param fromDate preference of articles to be show from date
+     * @param orderBy preference of sort order
+     * @param productionOffice preference of production office
+     * @return String key of the query profile
+     */
+    static String createProfileKey(String fromDate, String orderBy, String productionOffice) {
+        return fromDate + "|" + orderBy + "|" + productionOffice;
+    }
+}
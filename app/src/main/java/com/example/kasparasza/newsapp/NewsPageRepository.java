@@ -0,0 +1,395 @@
+package com.example.kasparasza.newsapp;
+
+import android.util.Log;
+
+import com.example.kasparasza.newsapp.core.CachedResponse;
+import com.example.kasparasza.newsapp.core.FeedMerger;
+import com.example.kasparasza.newsapp.core.PageResponse;
+import com.example.kasparasza.newsapp.core.TimestampCodec;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Custom class that holds static methods, which obtain pages of NewsArticle objects either from the local
+ * NewsArticleStore or over the network. Used by NewsArticleLoader and by the components that load pages
+ * in the background (e.g. PagePrefetcher). The methods are called on background threads; the pages they
+ * return are ready to be bound (e.g. the trail text is already rendered).
+ */
+
+public class NewsPageRepository {
+
+    // String constants used:
+    private static final String LOG_TAG = NewsPageRepository.class.getSimpleName();
+    // the most pages of newer articles requested by an incremental sync; if there are more of them,
+    // the whole page is refreshed instead
+    private static final int MAX_INCREMENTAL_PAGES = 3;
+    // the most stored pages of a profile read to derive another profile from them
+    private static final int MAX_DERIVED_PAGES = 25;
+
+    /**
+     * Create a private constructor because no one should ever create a {@link NewsPageRepository} object.
+     */
+    private NewsPageRepository() {
+    }
+
+    /**
+     * Reads the stored copy of a page
+     * @param store local store of NewsArticle objects
+     * @param query query of the page
+     * @return List<NewsArticle> a list of NewsArticle objects; empty if the page has not been stored yet
+     */
+    static List<NewsArticle> readStoredPage(NewsArticleStore store, NewsQuery query) {
+        return TrailTextRenderer.prerender(store.readPage(query.getProfileKey(), query.getPage()));
+    }
+
+    /**
+     * Reads the stored copy of a page; if nothing is stored for the profile of the query yet, its pages are derived
+     * from the stored pages of another profile first, if possible (see deriveStoredPages)
+     * @param store local store of NewsArticle objects
+     * @param query query of the page
+     * @return List<NewsArticle> a list of NewsArticle objects; empty if the page is neither stored nor derivable
+     */
+    static List<NewsArticle> readOrDeriveStoredPage(NewsArticleStore store, NewsQuery query) {
+        List<NewsArticle> storedList = readStoredPage(store, query);
+        if (storedList.isEmpty() && store.readPage(query.getProfileKey(), 1).isEmpty()
+                && deriveStoredPages(store, query)) {
+            storedList = readStoredPage(store, query);
+        }
+        return storedList;
+    }
+
+    /**
+     * Checks whether the stored copy of a page was received (or revalidated) within the freshness period of the query
+     * @param store local store of NewsArticle objects
+     * @param query query of the page
+     * @return true if the stored copy can be served without any network I/O
+     */
+    static boolean isStoredPageFresh(NewsArticleStore store, NewsQuery query) {
+        CachedResponse cachedResponse = store.readResponse(query.getProfileKey(), query.getPage());
+        return cachedResponse != null
+                && cachedResponse.isFresh(query.getUrlString(), query.getTtlMillis(), System.currentTimeMillis());
+    }
+
+    /**
+     * Refreshes a page over the network and writes the result to the local store.
+     * If there is a stored copy of the page, the query is conditional and the stored copy is returned on 304.
+     * @param store local store of NewsArticle objects
+     * @param query query of the page
+     * @param storedList stored copy of the page that was delivered before, or null if there is none
+     * @return List<NewsArticle> fresh list of NewsArticle objects; the stored copy if it is still valid
+     * or if the query did not bring any data; null if the query failed and there is no stored copy
+     * (the page is missing, which is not the same as an empty page at the end of the result set)
+     */
+    static List<NewsArticle> refreshPage(NewsArticleStore store, NewsQuery query, List<NewsArticle> storedList) {
+        boolean hasStoredList = storedList != null && !storedList.isEmpty();
+        // only the articles published since the last fetch are requested, if possible
+        if (hasStoredList && canSyncIncrementally(store, query)) {
+            List<NewsArticle> mergedList = syncIncrementally(store, query);
+            if (mergedList != null) {
+                return TrailTextRenderer.prerender(mergedList);
+            }
+        }
+        PageResponse<NewsArticle> pageResponse = fetchAndStorePage(store, query, hasStoredList);
+        if (pageResponse.isNotModified() && hasStoredList) {
+            // the stored copy of the page is still valid
+            return storedList;
+        }
+        if (pageResponse.isFailed()) {
+            // the server could not be reached or returned an error - the stored copy is kept, if there is one
+            Log.e(LOG_TAG, "Query of page " + query.getPage() + " failed with response code " + pageResponse.getResponseCode());
+            return hasStoredList ? storedList : null;
+        }
+        // the trail text is rendered here, on the loading thread, and not when a list item is bound
+        List<NewsArticle> newsArticleList = TrailTextRenderer.prerender(pageResponse.getArticleList());
+        if (newsArticleList.isEmpty() && hasStoredList) {
+            // the refresh did not bring any data - the stored copy is kept
+            Log.e(LOG_TAG, "Refresh of the stored page " + query.getPage() + " did not return any data");
+            return storedList;
+        }
+        return newsArticleList;
+    }
+
+    /**
+     * Brings the stored copy of a page up to date without delivering it anywhere (e.g. in a background sync).
+     * Nothing is done while the stored copy is fresh; otherwise the page is refreshed with a conditional query.
+     * @param store local store of NewsArticle objects
+     * @param query query of the page
+     * @return true if the stored copy is up to date; false if the server could not be reached or returned an error
+     */
+    static boolean syncPage(NewsArticleStore store, NewsQuery query) {
+        boolean hasStoredPage = !store.readPage(query.getProfileKey(), query.getPage()).isEmpty();
+        if (hasStoredPage && isStoredPageFresh(store, query)) {
+            return true;
+        }
+        if (hasStoredPage && canSyncIncrementally(store, query) && syncIncrementally(store, query) != null) {
+            return true;
+        }
+        PageResponse<NewsArticle> pageResponse = fetchAndStorePage(store, query, hasStoredPage);
+        return !pageResponse.isFailed();
+    }
+
+    // performs the http query of a page (conditional, if there is a stored copy of it)
+    // and records the result in the local store
+    private static PageResponse<NewsArticle> fetchAndStorePage(NewsArticleStore store, NewsQuery query, boolean hasStoredPage) {
+        String profileKey = query.getProfileKey();
+        int page = query.getPage();
+        String urlString = query.getUrlString();
+
+        // the validators are only used if there is a stored copy of the page that can be served on 304
+        CachedResponse cachedResponse = null;
+        if (hasStoredPage) {
+            cachedResponse = store.readResponse(profileKey, page);
+            if (cachedResponse != null && (!cachedResponse.getUrl().equals(urlString) || !cachedResponse.hasValidators())) {
+                cachedResponse = null;
+            }
+        }
+        PageResponse<NewsArticle> pageResponse = AppUtilities.getPageFromHttp(urlString, cachedResponse);
+        if (pageResponse.isNotModified() && cachedResponse != null) {
+            // the stored copy of the page is still valid: only the time of revalidation is recorded
+            store.writeResponse(profileKey, page, new CachedResponse(urlString,
+                    pageResponse.getETag() != null ? pageResponse.getETag() : cachedResponse.getETag(),
+                    pageResponse.getLastModified() != null ? pageResponse.getLastModified() : cachedResponse.getLastModified(),
+                    System.currentTimeMillis()));
+        } else if (!pageResponse.getArticleList().isEmpty()) {
+            store.writePage(profileKey, page, pageResponse.getArticleList());
+            store.writeResponse(profileKey, page, new CachedResponse(urlString,
+                    pageResponse.getETag(), pageResponse.getLastModified(), System.currentTimeMillis()));
+            // the first page of a query sorted newest first holds the newest article of the profile
+            if (page == 1 && query.isNewestFirst()) {
+                recordNewestPublished(store, profileKey, pageResponse.getArticleList());
+            }
+            recordLastPage(store, profileKey, page, pageResponse.getArticleList().size());
+        }
+        return pageResponse;
+    }
+
+    // a page that is not full is the last page of the result set; a full page at (or after) the recorded
+    // last page means that the result set has grown, so its last page is not known any more
+    private static void recordLastPage(NewsArticleStore store, String profileKey, int page, int pageItemCount) {
+        int lastPage = store.readLastPage(profileKey);
+        if (pageItemCount < NewsQuery.PAGE_SIZE && lastPage != page) {
+            store.writeLastPage(profileKey, page);
+        } else if (pageItemCount >= NewsQuery.PAGE_SIZE && lastPage != 0 && page >= lastPage) {
+            store.writeLastPage(profileKey, 0);
+        }
+    }
+
+    /**
+     * Checks whether the first page of a query can be refreshed incrementally: the query sorts the newest articles
+     * first, and the publishing time of the newest article of the profile is known
+     * @param store local store of NewsArticle objects
+     * @param query query of the page
+     * @return true if syncIncrementally() can be used
+     */
+    static boolean canSyncIncrementally(NewsArticleStore store, NewsQuery query) {
+        return query.getPage() == 1 && query.isNewestFirst()
+                && store.readNewestPublished(query.getProfileKey()) != TimestampCodec.UNKNOWN_TIME;
+    }
+
+    /**
+     * Refreshes the stored pages of a profile incrementally: only the articles published after the newest article
+     * known are requested (instead of the whole "from-date" window), and they are merged on top of the stored pages.
+     * An article that is received again replaces its stored copy (by articleLink), so there are no duplicates;
+     * stored articles that have fallen out of the "from-date" window are dropped.
+     * @param store local store of NewsArticle objects
+     * @param query query of the first page
+     * @return List<NewsArticle> the merged first page; null if the server could not be reached, or if there are
+     * too many newer articles (the whole page has to be refreshed then)
+     */
+    static List<NewsArticle> syncIncrementally(NewsArticleStore store, NewsQuery query) {
+        String profileKey = query.getProfileKey();
+        long newestPublishedMillis = store.readNewestPublished(profileKey);
+
+        // the newer articles are requested page by page, until a page that is not full
+        List<NewsArticle> newerList = new ArrayList<NewsArticle>();
+        int page;
+        for (page = 1; ; page++) {
+            if (page > MAX_INCREMENTAL_PAGES) {
+                Log.d(LOG_TAG, "Too many newer articles for an incremental sync of " + profileKey);
+                return null;
+            }
+            PageResponse<NewsArticle> pageResponse = AppUtilities.getPageFromHttp(
+                    query.forNewerThan(newestPublishedMillis, page).getUrlString(), null);
+            if (pageResponse.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                return null;
+            }
+            newerList.addAll(pageResponse.getArticleList());
+            if (pageResponse.getArticleList().size() < NewsQuery.PAGE_SIZE) {
+                break;
+            }
+        }
+
+        // the stored pages of the profile (from the first one, for as long as they follow each other)
+        List<NewsArticle> storedList = new ArrayList<NewsArticle>();
+        List<NewsArticle> storedPage;
+        for (page = 1; !(storedPage = store.readPage(profileKey, page)).isEmpty(); page++) {
+            storedList.addAll(storedPage);
+        }
+        // the stored pages hold the whole result set if they reach its last page
+        int lastPage = store.readLastPage(profileKey);
+        boolean storedCompletely = lastPage != 0 && page - 1 == lastPage;
+
+        List<NewsArticle> mergedList;
+        if (newerList.isEmpty()) {
+            // nothing new has been published - the stored pages are up to date
+            mergedList = storedList;
+        } else {
+            // the newer articles go on top; the articles are de-duplicated by articleLink (the newest copy is kept)
+            mergedList = FeedMerger.mergeNewer(newerList, storedList, query.getFromDateMillis());
+            store.writePages(profileKey, mergedList, NewsQuery.PAGE_SIZE);
+            recordNewestPublished(store, profileKey, newerList);
+            store.writeLastPage(profileKey, storedCompletely ? countPages(mergedList.size()) : 0);
+            Log.d(LOG_TAG, "Incremental sync of " + profileKey + " merged " + newerList.size() + " newer articles");
+        }
+
+        // the first page counts as revalidated; its validators are only kept if the pages were not rewritten
+        // (writePages clears the validators of the rewritten pages, so that a 304 can not confirm a page
+        // that differs from the response the validators came with)
+        CachedResponse cachedResponse = store.readResponse(profileKey, 1);
+        store.writeResponse(profileKey, 1, new CachedResponse(query.getUrlString(),
+                cachedResponse != null ? cachedResponse.getETag() : null,
+                cachedResponse != null ? cachedResponse.getLastModified() : null,
+                System.currentTimeMillis()));
+        return new ArrayList<NewsArticle>(mergedList.subList(0, Math.min(NewsQuery.PAGE_SIZE, mergedList.size())));
+    }
+
+    /**
+     * Derives the stored pages of a query from the stored pages of another profile of the same production office,
+     * so that a change of the preferences can be served without network I/O. The result set of a profile only
+     * depends on its production office and its "from-date"; the order is a sort of the set. Therefore:
+     * - the other order of the same period: the source has to be stored completely (up to its last page);
+     * - a shorter period in the same order: the articles older than "from-date" are dropped; if the articles
+     *   are sorted newest first, it is enough that the stored pages reach past "from-date";
+     * - a shorter period in the other order: both of the above apply.
+     * The production office is not known for the stored articles, so it can not be changed locally.
+     * The derived pages are stored under the profile of the query, and are as fresh as the pages they were
+     * derived from (they have no validators, so the next refresh is a full query).
+     * @param store local store of NewsArticle objects
+     * @param query query of any page of the profile
+     * @return true if the pages were derived
+     */
+    static boolean deriveStoredPages(NewsArticleStore store, NewsQuery query) {
+        long fromDateMillis = query.getFromDateMillis();
+        // the shortest period is tried first (the fewest articles are read); the same order goes first within it
+        String[] orders = query.isNewestFirst()
+                ? new String[]{NewsQuery.ORDER_BY_NEWEST, NewsQuery.ORDER_BY_OLDEST}
+                : new String[]{query.getOrderBy(), NewsQuery.ORDER_BY_NEWEST};
+        for (String fromDateSetting : NewsQuery.FROM_DATE_SETTINGS) {
+            for (String orderBy : orders) {
+                NewsQuery source = new NewsQuery(fromDateSetting, orderBy, query.getProductionOffice(), 1);
+                if (source.getProfileKey().equals(query.getProfileKey()) || source.getFromDateMillis() > fromDateMillis) {
+                    continue;
+                }
+                if (deriveStoredPages(store, source, query)) {
+                    Log.d(LOG_TAG, "Pages of " + query.getProfileKey() + " derived from " + source.getProfileKey());
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // derives the pages of the target profile from the stored pages of the source profile, if they suffice
+    private static boolean deriveStoredPages(NewsArticleStore store, NewsQuery source, NewsQuery target) {
+        String sourceKey = source.getProfileKey();
+        List<NewsArticle> sourceList = new ArrayList<NewsArticle>();
+        long fetchedAtMillis = Long.MAX_VALUE;
+        int page;
+        for (page = 1; page <= MAX_DERIVED_PAGES; page++) {
+            List<NewsArticle> storedPage = store.readPage(sourceKey, page);
+            if (storedPage.isEmpty()) {
+                break;
+            }
+            sourceList.addAll(storedPage);
+            CachedResponse cachedResponse = store.readResponse(sourceKey, page);
+            fetchedAtMillis = Math.min(fetchedAtMillis, cachedResponse != null ? cachedResponse.getFetchedAtMillis() : 0);
+        }
+        if (sourceList.isEmpty()) {
+            return false;
+        }
+        int lastPage = store.readLastPage(sourceKey);
+        boolean storedCompletely = lastPage != 0 && page - 1 == lastPage;
+
+        // the articles of the period of the target; an article stored on two pages of the source is taken once
+        // (in its first place)
+        long fromDateMillis = target.getFromDateMillis();
+        List<NewsArticle> targetList = new ArrayList<NewsArticle>(sourceList.size());
+        Set<String> targetLinks = new HashSet<String>();
+        boolean reachesPastFromDate = false;
+        for (NewsArticle newsArticle : sourceList) {
+            if (!FeedMerger.isInWindow(newsArticle, fromDateMillis)) {
+                reachesPastFromDate = true;
+            } else if (targetLinks.add(newsArticle.getArticleLink())) {
+                targetList.add(newsArticle);
+            }
+        }
+
+        if (source.getOrderBy().equals(target.getOrderBy())) {
+            if (!storedCompletely && !(source.isNewestFirst() && reachesPastFromDate)) {
+                return false;
+            }
+        } else {
+            if (!storedCompletely) {
+                return false;
+            }
+            Collections.sort(targetList, target.isNewestFirst() ? FeedMerger.NEWEST_FIRST : Collections.reverseOrder(FeedMerger.NEWEST_FIRST));
+        }
+        if (targetList.isEmpty()) {
+            // an empty result set is left for the network to confirm
+            return false;
+        }
+
+        String targetKey = target.getProfileKey();
+        store.writePages(targetKey, targetList, NewsQuery.PAGE_SIZE);
+        int pageCount = countPages(targetList.size());
+        for (page = 1; page <= pageCount; page++) {
+            store.writeResponse(targetKey, page,
+                    new CachedResponse(target.forPage(page).getUrlString(), null, null, fetchedAtMillis));
+        }
+        store.writeLastPage(targetKey, pageCount);
+        if (target.isNewestFirst()) {
+            recordNewestPublished(store, targetKey, targetList);
+        }
+        return true;
+    }
+
+    // number of the pages of a list of the given size
+    private static int countPages(int itemCount) {
+        return FeedMerger.countPages(itemCount, NewsQuery.PAGE_SIZE);
+    }
+
+    // records the publishing time of the newest article of a list, if it is newer than the one recorded
+    private static void recordNewestPublished(NewsArticleStore store, String profileKey, List<NewsArticle> newsArticleList) {
+        long newestPublishedMillis = store.readNewestPublished(profileKey);
+        long recordedMillis = newestPublishedMillis;
+        for (NewsArticle newsArticle : newsArticleList) {
+            if (newsArticle.getTimePublishedMillis() != TimestampCodec.UNKNOWN_TIME
+                    && (newestPublishedMillis == TimestampCodec.UNKNOWN_TIME || newsArticle.getTimePublishedMillis() > newestPublishedMillis)) {
+                newestPublishedMillis = newsArticle.getTimePublishedMillis();
+            }
+        }
+        if (newestPublishedMillis != recordedMillis) {
+            store.writeNewestPublished(profileKey, newestPublishedMillis);
+        }
+    }
+
+    /**
+     * Obtains a page the fastest way possible: the stored copy is returned if it is fresh,
+     * otherwise the page is refreshed over the network
+     * @param store local store of NewsArticle objects
+     * @param query query of the page
+     * @return List<NewsArticle> a list of NewsArticle objects; null if the page is not stored and its query failed
+     */
+    static List<NewsArticle> loadPage(NewsArticleStore store, NewsQuery query) {
+        List<NewsArticle> storedList = readOrDeriveStoredPage(store, query);
+        if (!storedList.isEmpty() && isStoredPageFresh(store, query)) {
+            return storedList;
+        }
+        return refreshPage(store, query, storedList);
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+import com.example.kasparasza.newsapp.core.GuardianQueryBuilder;
+import com.example.kasparasza.newsapp.core.QueryBuilder;
+import com.example.kasparasza.newsapp.core.TimestampCodec;
+
+import java.util.List;
+
+/**
+ * A class that describes the http query for a single page of NewsArticle objects:
+ * the URL itself, the query profile (user preferences made in the SettingsActivity) and the "page" parameter.
+ * The URL is created by the QueryBuilder of the core module.
+ */
+
+public class NewsQuery {
+
+    // builder of the URL queries of the Guardian API
+    private static final QueryBuilder QUERY_BUILDER = new GuardianQueryBuilder(BuildConfig.GUARDIAN_BASE_URL);
+    // number of NewsArticle objects in a page ("page-size" parameter of the queries)
+    public static final int PAGE_SIZE = GuardianQueryBuilder.PAGE_SIZE;
+    // values of "order-by" parameter that sort the newest / the oldest articles first
+    public static final String ORDER_BY_NEWEST = GuardianQueryBuilder.ORDER_BY_NEWEST;
+    public static final String ORDER_BY_OLDEST = GuardianQueryBuilder.ORDER_BY_OLDEST;
+    // values of the "from-date" preference (see GuardianQueryBuilder.prepareFromDateParameter), the shortest period first
+    public static final String[] FROM_DATE_SETTINGS = GuardianQueryBuilder.FROM_DATE_SETTINGS;
+
+    // private members of the class
+    private String urlString;
+    private String fromDateSetting;
+    private String orderBy;
+    private String productionOffice;
+    private int page;
+
+    // constructor of the class
+    public NewsQuery(String mFromDateSetting, String mOrderBy, String mProductionOffice, int mPage) {
+        this(mFromDateSetting, mOrderBy, mProductionOffice, mPage, GuardianQueryBuilder.prepareFromDateParameter(mFromDateSetting));
+    }
+
+    // constructor of a query with an explicit "from-date" parameter (a date, or a full timestamp)
+    private NewsQuery(String mFromDateSetting, String mOrderBy, String mProductionOffice, int mPage, String fromDate) {
+        fromDateSetting = mFromDateSetting;
+        orderBy = mOrderBy;
+        productionOffice = mProductionOffice;
+        page = mPage;
+
+        // using the preferences, we create a request URL
+        urlString = QUERY_BUILDER.createPageUrlString(productionOffice, fromDate, orderBy, page);
+    }
+
+    /**
+     * Creates a query for a page, using the preferences made by the user in the SettingsActivity
+     * @param context context used to access SharedPreferences and String resources
+     * @param page "page" parameter (page number) that will be used in the URL query
+     * @return NewsQuery
+     */
+    public static NewsQuery fromPreferences(Context context, int page) {
+        // the freshness periods configured for the query shapes are loaded with the first query
+        ResponseFreshnessPolicy.configure(context);
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+
+        // preference of articles to be show from date
+        String fromDateSetting = sharedPrefs.getString(
+                context.getString(R.string.settings_from_date_key),
+                context.getString(R.string.settings_from_date_default)
+        );
+
+        // preference of sort order
+        String orderBy = sharedPrefs.getString(
+                context.getString(R.string.settings_order_by_key),
+                context.getString(R.string.settings_order_by_default)
+        );
+
+        // preference of production office order
+        String productionOffice = sharedPrefs.getString(
+                context.getString(R.string.settings_production_office_key),
+                context.getString(R.string.settings_production_office_default)
+        );
+
+        return new NewsQuery(fromDateSetting, orderBy, productionOffice, page);
+    }
+
+    /**
+     * Creates the same query for another page
+     * @param mPage "page" parameter (page number)
+     * @return NewsQuery
+     */
+    public NewsQuery forPage(int mPage) {
+        return new NewsQuery(fromDateSetting, orderBy, productionOffice, mPage);
+    }
+
+    /**
+     * Creates a query of the articles of the same profile that were published after the given time
+     * (used by the incremental sync; the articles are sorted newest first)
+     * @param timeMillis publishing time of the newest article known, in epoch milliseconds
+     * @param mPage "page" parameter (page number)
+     * @return NewsQuery
+     */
+    public NewsQuery forNewerThan(long timeMillis, int mPage) {
+        // "from-date" is inclusive, hence the second added to the time
+        return new NewsQuery(fromDateSetting, ORDER_BY_NEWEST, productionOffice, mPage,
+                TimestampCodec.formatIsoTimestamp(timeMillis + 1000));
+    }
+
+    /**
+     * Creates the URL of a query of the bodies of the given articles (a single query for all of them)
+     * @param articleLinks links (webUrl) of the articles; the id of a Guardian article is the path of its webUrl
+     * @return String with the URL query
+     */
+    public static String createBodiesUrlString(List<String> articleLinks) {
+        return QUERY_BUILDER.createBodiesUrlString(articleLinks);
+    }
+
+    /**
+     * @return true if the query sorts the newest articles first
+     */
+    public boolean isNewestFirst() {
+        return ORDER_BY_NEWEST.equals(orderBy);
+    }
+
+    /**
+     * @return the earliest publishing time of the articles of the query, in epoch milliseconds
+     * (start of the "from-date" day in UTC)
+     */
+    public long getFromDateMillis() {
+        return TimestampCodec.parseIsoTimestamp(GuardianQueryBuilder.prepareFromDateParameter(fromDateSetting) + "T00:00:00Z");
+    }
+
+    // implementation of getter methods
+    public String getUrlString() {
+        return urlString;
+    }
+
+    public String getFromDateSetting() {
+        return fromDateSetting;
+    }
+
+    public String getOrderBy() {
+        return orderBy;
+    }
+
+    public String getProductionOffice() {
+        return productionOffice;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    /**
+     * @return the key under which the pages of this query are kept in the local store
+     */
+    public String getProfileKey() {
+        return NewsArticleStore.createProfileKey(fromDateSetting, orderBy, productionOffice);
+    }
+
+    /**
+     * @return the period during which the stored pages are served without revalidating them over the network
+     */
+    public long getTtlMillis() {
+        return ResponseFreshnessPolicy.getTtlMillis(fromDateSetting, orderBy, productionOffice);
+    }
+}
@@ -0,0 +1,246 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custom class that runs several page queries at once (up to a configurable parallelism limit).
+ * Duplicate requests for the same page are dropped, and the fetched pages are delivered to the Listener
+ * strictly in the order of their page numbers, regardless of the order in which the queries finish.
+ * Work for the pages the user has scrolled past can be cancelled. A page that has been delivered already
+ * (e.g. as a failed or an empty page) can be requested again: as no page before it waits for its delivery,
+ * it is delivered as soon as it is fetched.
+ * All the public methods are meant to be called on the UI thread; the Listener is called on the UI thread too.
+ */
+
+public class PageFetchScheduler {
+
+    // threads that have been idle for this time are terminated
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Interface that is used to deliver the fetched pages (in the order of the page numbers);
+     * a page whose query failed is delivered as null, so that it is not mistaken for an empty page
+     */
+    public interface Listener {
+        void onPageFetched(NewsQuery query, List<NewsArticle> newsArticleList, long latencyMillis);
+    }
+
+    /**
+     * Interface of the blocking query of a single page (run on the threads of the scheduler);
+     * returns null if the query has failed
+     */
+    interface PageLoader {
+        List<NewsArticle> loadPage(NewsQuery query);
+    }
+
+    // members of the class:
+    private Listener listener;
+    private PageLoader pageLoader;
+    private ThreadPoolExecutor executor;
+    // runs the results of the queries on the UI thread
+    private Executor mainThreadExecutor;
+    // requests of the pages that are being fetched at the moment; a result is only taken from the request
+    // that is in the map (a page cancelled and requested again has a new request)
+    private Map<Integer, PageRequest> pagesInFlight = new HashMap<Integer, PageRequest>();
+    // fetched pages that wait for the pages before them to be delivered
+    private TreeMap<Integer, FetchedPage> fetchedPages = new TreeMap<Integer, FetchedPage>();
+    // the page that has to be delivered next; pages before it are fetched only if they are requested again
+    private int nextPageToDeliver = 1;
+    private boolean released;
+
+    // constructor
+    public PageFetchScheduler(Context context, int parallelism, Listener mListener) {
+        this(parallelism, createStorePageLoader(context), createMainThreadExecutor(), mListener);
+    }
+
+    // constructor with the query of the pages and the UI thread given explicitly (used by the unit tests)
+    PageFetchScheduler(int parallelism, PageLoader mPageLoader, Executor mMainThreadExecutor, Listener mListener) {
+        listener = mListener;
+        pageLoader = mPageLoader;
+        mainThreadExecutor = mMainThreadExecutor;
+        executor = new ThreadPoolExecutor(parallelism, parallelism, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    // the pages are loaded through NewsPageRepository (from the local store or over the network)
+    private static PageLoader createStorePageLoader(Context context) {
+        final NewsArticleStore store = NewsArticleStore.getInstance(context);
+        return new PageLoader() {
+            @Override
+            public List<NewsArticle> loadPage(NewsQuery query) {
+                return NewsPageRepository.loadPage(store, query);
+            }
+        };
+    }
+
+    // the results are posted to the Looper of the UI thread
+    private static Executor createMainThreadExecutor() {
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        return new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                mainHandler.post(runnable);
+            }
+        };
+    }
+
+    /**
+     * Requests a page to be fetched. The request is dropped if the page is already being fetched or waits
+     * to be delivered. A page before the page that has to be delivered next (i.e. delivered already, or cancelled)
+     * is fetched again and delivered as soon as it is ready.
+     * @param query query of the page
+     * @return true if the page will be delivered through the Listener (false only after release())
+     */
+    public boolean request(final NewsQuery query) {
+        final int page = query.getPage();
+        if (released) {
+            return false;
+        }
+        if (pagesInFlight.containsKey(page) || fetchedPages.containsKey(page)) {
+            return true;
+        }
+        PageRequest pageRequest = new PageRequest(query);
+        pagesInFlight.put(page, pageRequest);
+        pageRequest.future = executor.submit(pageRequest);
+        return true;
+    }
+
+    /**
+     * @param page "page" parameter (page number)
+     * @return true if the page is being fetched or waits to be delivered
+     */
+    public boolean isPending(int page) {
+        return pagesInFlight.containsKey(page) || fetchedPages.containsKey(page);
+    }
+
+    /**
+     * @return number of the pages that are being fetched or wait to be delivered
+     */
+    public int getPendingCount() {
+        return pagesInFlight.size() + fetchedPages.size();
+    }
+
+    /**
+     * Moves the delivery forward (e.g. when a page has been delivered in another way): the work for the pages
+     * before the given one is cancelled and their results are discarded
+     * @param page the page that has to be delivered next
+     */
+    public void cancelPagesBefore(int page) {
+        if (page <= nextPageToDeliver) {
+            return;
+        }
+        nextPageToDeliver = page;
+        Iterator<Map.Entry<Integer, PageRequest>> iterator = pagesInFlight.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, PageRequest> pageInFlight = iterator.next();
+            if (pageInFlight.getKey() < page) {
+                pageInFlight.getValue().future.cancel(true);
+                iterator.remove();
+            }
+        }
+        fetchedPages.headMap(page).clear();
+        deliverFetchedPages();
+    }
+
+    /**
+     * Cancels all the work and starts over from the first page (e.g. for another query profile)
+     */
+    public void reset() {
+        for (PageRequest pageRequest : pagesInFlight.values()) {
+            pageRequest.future.cancel(true);
+        }
+        pagesInFlight.clear();
+        fetchedPages.clear();
+        nextPageToDeliver = 1;
+    }
+
+    /**
+     * Cancels all the work; the scheduler can not be used afterwards
+     */
+    public void release() {
+        released = true;
+        executor.shutdownNow();
+        pagesInFlight.clear();
+        fetchedPages.clear();
+    }
+
+    // called on the UI thread when a query has finished
+    private void onPageFetched(PageRequest pageRequest, List<NewsArticle> newsArticleList, long latencyMillis) {
+        NewsQuery query = pageRequest.query;
+        int page = query.getPage();
+        // the page has been cancelled in the meantime (and possibly requested again - the result of the cancelled
+        // request, e.g. a failure caused by the interruption, is not taken for the result of the new one)
+        if (released || pagesInFlight.get(page) != pageRequest) {
+            return;
+        }
+        pagesInFlight.remove(page);
+        // a page requested again after its delivery: there are no pages before it to wait for
+        if (page < nextPageToDeliver) {
+            listener.onPageFetched(query, newsArticleList, latencyMillis);
+            return;
+        }
+        fetchedPages.put(page, new FetchedPage(query, newsArticleList, latencyMillis));
+        deliverFetchedPages();
+    }
+
+    // delivers the fetched pages for as long as there is no gap before them
+    private void deliverFetchedPages() {
+        while (!released && !fetchedPages.isEmpty() && fetchedPages.firstKey() == nextPageToDeliver) {
+            FetchedPage fetchedPage = fetchedPages.remove(nextPageToDeliver);
+            nextPageToDeliver++;
+            listener.onPageFetched(fetchedPage.query, fetchedPage.newsArticleList, fetchedPage.latencyMillis);
+        }
+    }
+
+    // query of a page run on the threads of the scheduler; its result is posted to the UI thread
+    private class PageRequest implements Runnable {
+        private final NewsQuery query;
+        // set on the UI thread right after the request is submitted (used to cancel it)
+        private Future<?> future;
+
+        private PageRequest(NewsQuery mQuery) {
+            query = mQuery;
+        }
+
+        @Override
+        public void run() {
+            long startMillis = SystemClock.uptimeMillis();
+            final List<NewsArticle> newsArticleList = pageLoader.loadPage(query);
+            final long latencyMillis = SystemClock.uptimeMillis() - startMillis;
+            mainThreadExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    onPageFetched(PageRequest.this, newsArticleList, latencyMillis);
+                }
+            });
+        }
+    }
+
+    // a fetched page waiting for its delivery
+    private static class FetchedPage {
+        private NewsQuery query;
+        private List<NewsArticle> newsArticleList;
+        private long latencyMillis;
+
+        private FetchedPage(NewsQuery mQuery, List<NewsArticle> mNewsArticleList, long mLatencyMillis) {
+            query = mQuery;
+            newsArticleList = mNewsArticleList;
+            latencyMillis = mLatencyMillis;
+        }
+    }
+}
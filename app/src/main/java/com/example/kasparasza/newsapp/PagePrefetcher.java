@@ -0,0 +1,206 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Custom class that fetches and parses the next pages of NewsArticle objects in the background,
+ * as soon as a page is delivered to the list (i.e. before the user scrolls down to the threshold of
+ * EndlessScrollListener). The number of pages fetched ahead adapts to the measured scroll velocity and
+ * fetch latency. Prefetched pages are held in a bounded buffer, from which they are handed to the adapter at once.
+ * The pages are fetched by PageFetchScheduler, so several of them may be fetched at once.
+ * A page whose query failed is remembered as failed: when the list asks for it (or if the list is waiting
+ * for it already), the failure is reported through the Listener, so that the page is shown as a gap and retried
+ * (see PageRetryQueue). An empty page (the end of the results) is buffered like any other page.
+ * All the public methods are meant to be called on the UI thread.
+ */
+
+public class PagePrefetcher implements PageFetchScheduler.Listener {
+
+    // the most pages fetched ahead of the last delivered page
+    private static final int MAX_PREFETCH_DISTANCE = 2;
+    // the most pages held in the buffer (including the pages that are being fetched)
+    private static final int MAX_BUFFERED_PAGES = 3;
+    // the most page queries run at once
+    private static final int FETCH_PARALLELISM = 2;
+    // weight of the newest sample in the moving averages
+    private static final double SMOOTHING_FACTOR = 0.3;
+    // fetch latency assumed before the first page is fetched
+    private static final long INITIAL_FETCH_LATENCY_MILLIS = 1000;
+
+    /**
+     * Interface that is used to hand over a page that has been awaited by the list
+     * (or to report that its query has failed)
+     */
+    public interface Listener {
+        void onPrefetchedPageReady(NewsQuery query, List<NewsArticle> newsArticleList);
+
+        void onPrefetchedPageFailed(NewsQuery query);
+    }
+
+    // members of the class:
+    private Listener listener;
+    private PageFetchScheduler scheduler;
+    // buffer of prefetched pages (in the order of the page numbers)
+    private LinkedHashMap<Integer, List<NewsArticle>> prefetchedPages = new LinkedHashMap<Integer, List<NewsArticle>>();
+    // prefetched pages whose query failed
+    private Set<Integer> failedPages = new HashSet<Integer>();
+    // page that the list has asked for while it was still being fetched (0 if none)
+    private int awaitedPage;
+    // moving averages of the scroll velocity (items per second) and of the fetch latency
+    private double itemsPerSecond;
+    private double fetchLatencyMillis = INITIAL_FETCH_LATENCY_MILLIS;
+    // last scroll sample
+    private int lastFirstVisibleItem = -1;
+    private long lastScrollSampleMillis;
+
+    // constructor
+    public PagePrefetcher(Context context, Listener mListener) {
+        listener = mListener;
+        scheduler = new PageFetchScheduler(context, FETCH_PARALLELISM, this);
+    }
+
+    // constructor with the query of the pages and the UI thread given explicitly (used by the unit tests)
+    PagePrefetcher(Listener mListener, PageFetchScheduler.PageLoader pageLoader, Executor mainThreadExecutor) {
+        listener = mListener;
+        scheduler = new PageFetchScheduler(FETCH_PARALLELISM, pageLoader, mainThreadExecutor, this);
+    }
+
+    /**
+     * Records the scroll position of the list, from which the scroll velocity is measured
+     * @param firstVisibleItem index of the first visible item of the list
+     */
+    public void onScrollSample(int firstVisibleItem) {
+        long nowMillis = SystemClock.uptimeMillis();
+        if (lastFirstVisibleItem >= 0 && firstVisibleItem != lastFirstVisibleItem && nowMillis > lastScrollSampleMillis) {
+            double sample = Math.abs(firstVisibleItem - lastFirstVisibleItem) * 1000.0 / (nowMillis - lastScrollSampleMillis);
+            itemsPerSecond = SMOOTHING_FACTOR * sample + (1 - SMOOTHING_FACTOR) * itemsPerSecond;
+        }
+        if (firstVisibleItem != lastFirstVisibleItem) {
+            lastFirstVisibleItem = firstVisibleItem;
+            lastScrollSampleMillis = nowMillis;
+        }
+    }
+
+    /**
+     * Number of pages to fetch ahead: the pages the user is expected to scroll through
+     * while the next page is being fetched (at least one page)
+     * @return prefetch distance in pages
+     */
+    int getPrefetchDistance() {
+        double itemsDuringFetch = itemsPerSecond * fetchLatencyMillis / 1000.0;
+        int distance = 1 + (int) (itemsDuringFetch / NewsQuery.PAGE_SIZE);
+        return Math.min(distance, MAX_PREFETCH_DISTANCE);
+    }
+
+    /**
+     * Starts prefetching of the pages that follow a page delivered to the list
+     * @param query query of the delivered page
+     */
+    public void onPageDelivered(NewsQuery query) {
+        // the pages up to the delivered one are not fetched any more
+        scheduler.cancelPagesBefore(query.getPage() + 1);
+        int distance = getPrefetchDistance();
+        int page;
+        for (page = query.getPage() + 1; page <= query.getPage() + distance; page++) {
+            if (prefetchedPages.containsKey(page) || failedPages.contains(page) || scheduler.isPending(page)) {
+                continue;
+            }
+            // the pages that are still being fetched will take their place in the buffer
+            if (prefetchedPages.size() + failedPages.size() + scheduler.getPendingCount() >= MAX_BUFFERED_PAGES) {
+                break;
+            }
+            scheduler.request(query.forPage(page));
+        }
+    }
+
+    /**
+     * Hands a prefetched page over to the list. If the page is not in the buffer, it is fetched (unless it is
+     * already being fetched) and handed over through the Listener as soon as it is ready. If the prefetch
+     * of the page has failed (or the page can not be fetched), the failure is reported through the Listener at once.
+     * @param query query of the page
+     * @return List<NewsArticle> the prefetched page, or null if the page is not in the buffer
+     */
+    public List<NewsArticle> takePage(NewsQuery query) {
+        int page = query.getPage();
+        // the list has moved on to the page: the work for the pages before it is cancelled
+        scheduler.cancelPagesBefore(page);
+        prefetchedPages.keySet().retainAll(pagesFrom(prefetchedPages.keySet(), page));
+        failedPages.retainAll(pagesFrom(failedPages, page));
+        List<NewsArticle> newsArticleList = prefetchedPages.remove(page);
+        if (newsArticleList != null) {
+            return newsArticleList;
+        }
+        if (failedPages.remove(page) || !scheduler.request(query)) {
+            listener.onPrefetchedPageFailed(query);
+        } else {
+            awaitedPage = page;
+        }
+        return null;
+    }
+
+    /**
+     * Stops fetching and discards the buffer, so that the prefetcher can be used for another query profile
+     * (the measured scroll velocity and fetch latency are kept)
+     */
+    public void reset() {
+        scheduler.reset();
+        prefetchedPages.clear();
+        failedPages.clear();
+        awaitedPage = 0;
+    }
+
+    /**
+     * Stops fetching and discards the buffer; the prefetcher can not be used afterwards
+     */
+    public void release() {
+        scheduler.release();
+        prefetchedPages.clear();
+        failedPages.clear();
+    }
+
+    // page numbers of the given ones that are not before the given page
+    private static List<Integer> pagesFrom(Set<Integer> pageNumbers, int page) {
+        List<Integer> pages = new ArrayList<Integer>();
+        for (Integer pageNumber : pageNumbers) {
+            if (pageNumber >= page) {
+                pages.add(pageNumber);
+            }
+        }
+        return pages;
+    }
+
+    // implementation of the method required by PageFetchScheduler.Listener:
+    // the pages arrive in the order of their page numbers
+    @Override
+    public void onPageFetched(NewsQuery query, List<NewsArticle> newsArticleList, long latencyMillis) {
+        int page = query.getPage();
+        if (newsArticleList == null) {
+            // the query has failed: its latency is not a sample of the fetch latency;
+            // the failure is reported when the list asks for the page, so that its gap is shown in its place
+            if (page == awaitedPage) {
+                awaitedPage = 0;
+                listener.onPrefetchedPageFailed(query);
+            } else {
+                failedPages.add(page);
+            }
+            return;
+        }
+        fetchLatencyMillis = SMOOTHING_FACTOR * latencyMillis + (1 - SMOOTHING_FACTOR) * fetchLatencyMillis;
+        if (page == awaitedPage) {
+            // the list is waiting for the page - it is handed over at once
+            awaitedPage = 0;
+            listener.onPrefetchedPageReady(query, newsArticleList);
+        } else {
+            // (the page has been counted against MAX_BUFFERED_PAGES since it was requested)
+            prefetchedPages.put(page, newsArticleList);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Custom class that keeps the pages whose query failed (e.g. on a flaky connection) and retries them until they are
+ * recovered, so that a failed page is neither skipped silently nor fetched again with every scroll event.
+ * - A failed page is pending: it is recorded in NewsArticleStore (so that the background sync fetches it even if
+ *   the app is closed in the meantime), and the list shows a gap in its place (see WindowedArticleList.addGap).
+ * - The page is retried with exponential backoff (BASE_DELAY_MILLIS doubled with each failed attempt, up to
+ *   MAX_DELAY_MILLIS); the delay is drawn at random from its upper half (jitter), so that the pending pages
+ *   do not all go to the server at once.
+ * - Nothing is retried while there is no connection; when the connection comes back (see ConnectivityMonitor),
+ *   the backoff starts over and all the pending pages are retried.
+ * - A recovered page is handed over through the Listener, and is removed from the store.
+ * Each page is pending at most once, and is retried one at a time. All the public methods are meant to be
+ * called on the UI thread; the Listener is called on the UI thread too.
+ */
+
+public class PageRetryQueue implements ConnectivityMonitor.Listener {
+
+    // String constants used:
+    private static final String LOG_TAG = PageRetryQueue.class.getSimpleName();
+    // delay of the first retry of a page, and the upper bound of the delay
+    private static final long BASE_DELAY_MILLIS = 2 * 1000;
+    private static final long MAX_DELAY_MILLIS = 5 * 60 * 1000;
+
+    /**
+     * Interface that is used to hand over a page that has been recovered
+     */
+    public interface Listener {
+        void onPageRecovered(NewsQuery query, List<NewsArticle> newsArticleList);
+    }
+
+    // members of the class:
+    private Listener listener;
+    private NewsArticleStore store;
+    private ConnectivityMonitor connectivityMonitor;
+    // pending pages by their page number
+    private TreeMap<Integer, PendingPage> pendingPages = new TreeMap<Integer, PendingPage>();
+    // a single thread, so that the retries (and the writes of the pending pages) do not compete for the connection
+    private ExecutorService executor = Executors.newSingleThreadExecutor();
+    private Handler mainHandler = new Handler(Looper.getMainLooper());
+    private Random random = new Random();
+    // incremented by reset(); retries started before it are discarded when they finish
+    private int generation;
+    private boolean released;
+
+    // constructor
+    public PageRetryQueue(Context context, Listener mListener) {
+        listener = mListener;
+        store = NewsArticleStore.getInstance(context);
+        connectivityMonitor = ConnectivityMonitor.getInstance(context);
+        connectivityMonitor.addListener(this);
+    }
+
+    /**
+     * Records a page whose query failed as pending, and schedules its retry (a page that is pending already
+     * keeps its backoff)
+     * @param query query of the page
+     */
+    public void enqueue(final NewsQuery query) {
+        int page = query.getPage();
+        if (released || pendingPages.containsKey(page)) {
+            return;
+        }
+        PendingPage pendingPage = new PendingPage(query);
+        pendingPages.put(page, pendingPage);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                store.writePendingPage(query.getProfileKey(), query.getPage());
+            }
+        });
+        Log.d(LOG_TAG, "Page " + page + " of " + query.getProfileKey() + " is pending");
+        scheduleRetry(pendingPage);
+    }
+
+    /**
+     * @return true if there are pages that have not been recovered yet
+     */
+    public boolean hasPendingPages() {
+        return !pendingPages.isEmpty();
+    }
+
+    /**
+     * Stops retrying a page (e.g. it has been delivered in another way)
+     * @param query query of the page
+     */
+    public void cancel(final NewsQuery query) {
+        PendingPage pendingPage = pendingPages.remove(query.getPage());
+        if (pendingPage == null) {
+            return;
+        }
+        mainHandler.removeCallbacks(pendingPage.retryTask);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                store.deletePendingPage(query.getProfileKey(), query.getPage());
+            }
+        });
+    }
+
+    /**
+     * Drops all the pending pages, so that the queue can be used for another query profile
+     * (the pages are removed from the store too, as they will not be shown any more)
+     */
+    public void reset() {
+        generation++;
+        for (final PendingPage pendingPage : pendingPages.values()) {
+            mainHandler.removeCallbacks(pendingPage.retryTask);
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    store.deletePendingPages(pendingPage.query.getProfileKey());
+                }
+            });
+        }
+        pendingPages.clear();
+    }
+
+    /**
+     * Stops retrying; the pending pages are kept in the store (for the background sync).
+     * The queue can not be used afterwards.
+     */
+    public void release() {
+        released = true;
+        connectivityMonitor.removeListener(this);
+        for (PendingPage pendingPage : pendingPages.values()) {
+            mainHandler.removeCallbacks(pendingPage.retryTask);
+        }
+        pendingPages.clear();
+        // the writes of the pending pages that have been queued are still made
+        executor.shutdown();
+    }
+
+    // implementation of the method required by ConnectivityMonitor.Listener:
+    // once the connection is back, the backoff starts over and all the pending pages are retried
+    @Override
+    public void onConnectivityChanged(ConnectivityMonitor monitor) {
+        if (!monitor.isConnected()) {
+            return;
+        }
+        for (PendingPage pendingPage : pendingPages.values()) {
+            pendingPage.attempts = 0;
+            if (!pendingPage.inFlight) {
+                mainHandler.removeCallbacks(pendingPage.retryTask);
+                scheduleRetry(pendingPage);
+            }
+        }
+    }
+
+    // schedules the next retry of a page after a jittered backoff delay
+    private void scheduleRetry(PendingPage pendingPage) {
+        long delayMillis = Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS << Math.min(pendingPage.attempts, 16));
+        delayMillis = delayMillis / 2 + (long) (random.nextDouble() * (delayMillis / 2));
+        mainHandler.postDelayed(pendingPage.retryTask, delayMillis);
+    }
+
+    // retries a page on the thread of the queue (it is left for the connectivity change while there is no connection)
+    private void retry(final PendingPage pendingPage) {
+        if (released || pendingPages.get(pendingPage.query.getPage()) != pendingPage || !connectivityMonitor.isConnected()) {
+            return;
+        }
+        pendingPage.inFlight = true;
+        final int retryGeneration = generation;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<NewsArticle> newsArticleList = NewsPageRepository.loadPage(store, pendingPage.query);
+                if (newsArticleList != null) {
+                    store.deletePendingPage(pendingPage.query.getProfileKey(), pendingPage.query.getPage());
+                }
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (retryGeneration == generation) {
+                            onRetryFinished(pendingPage, newsArticleList);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    // called on the UI thread when a retry has finished
+    private void onRetryFinished(PendingPage pendingPage, List<NewsArticle> newsArticleList) {
+        pendingPage.inFlight = false;
+        int page = pendingPage.query.getPage();
+        // the page has been cancelled in the meantime
+        if (released || pendingPages.get(page) != pendingPage) {
+            return;
+        }
+        if (newsArticleList == null) {
+            pendingPage.attempts++;
+            Log.d(LOG_TAG, "Retry " + pendingPage.attempts + " of page " + page + " failed");
+            scheduleRetry(pendingPage);
+            return;
+        }
+        pendingPages.remove(page);
+        Log.d(LOG_TAG, "Page " + page + " recovered after " + (pendingPage.attempts + 1) + " retries");
+        listener.onPageRecovered(pendingPage.query, newsArticleList);
+    }
+
+    // a page waiting to be recovered
+    private class PendingPage {
+        private NewsQuery query;
+        // number of the failed retries since the last change of the connection
+        private int attempts;
+        // true while the page is being retried
+        private boolean inFlight;
+        private Runnable retryTask = new Runnable() {
+            @Override
+            public void run() {
+                retry(PendingPage.this);
+            }
+        };
+
+        private PendingPage(NewsQuery mQuery) {
+            query = mQuery;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Custom class that defines for how long a received page is considered fresh, i.e. served from the
+ * local store without any network I/O. The freshness period (TTL) depends on the shape of the query:
+ * from-date, order-by and production-office preferences.
+ * Default values may be overridden for any combination of the preferences; WILDCARD matches any value.
+ * The overrides are configured in the resources of the app (string-array "freshness_ttl_overrides", entries of
+ * the form "from-date|order-by|production-office=seconds"), and are loaded when the first query is created.
+ */
+
+public class ResponseFreshnessPolicy {
+
+    // String constants used:
+    public static final String WILDCARD = "*";
+    private static final String LOG_TAG = ResponseFreshnessPolicy.class.getSimpleName();
+    private static final String ORDER_BY_OLDEST = "oldest";
+    private static final String FROM_DATE_TODAY = "today";
+
+    // default freshness periods
+    private static final long MINUTE_MILLIS = 60 * 1000;
+    // the most recent articles change often
+    private static final long TTL_TODAY_MILLIS = 2 * MINUTE_MILLIS;
+    // new articles appear on the first pages only, the rest of the window changes slowly
+    private static final long TTL_DEFAULT_MILLIS = 10 * MINUTE_MILLIS;
+    // the oldest articles of a window hardly ever change
+    private static final long TTL_OLDEST_FIRST_MILLIS = 6 * 60 * MINUTE_MILLIS;
+
+    // freshness periods set explicitly for the query shapes
+    private static final Map<String, Long> ttlOverrides = new HashMap<String, Long>();
+    // true once the overrides of the resources have been loaded
+    private static boolean configured;
+
+    /**
+     * Create a private constructor because no one should ever create a {@link ResponseFreshnessPolicy} object.
+     */
+    private ResponseFreshnessPolicy() {
+    }
+
+    /**
+     * Loads the overrides configured in the resources of the app (string-array "freshness_ttl_overrides");
+     * it is done once, the following calls do nothing. An entry that can not be parsed is skipped.
+     * @param context any context of the app
+     */
+    public static synchronized void configure(Context context) {
+        if (configured) {
+            return;
+        }
+        configured = true;
+        for (String entry : context.getResources().getStringArray(R.array.freshness_ttl_overrides)) {
+            if (!applyOverride(entry)) {
+                Log.e(LOG_TAG, "Override of the freshness period can not be parsed: " + entry);
+            }
+        }
+    }
+
+    /**
+     * Sets the freshness period of a query shape from an entry of the form
+     * "from-date|order-by|production-office=seconds" (any of the preferences may be WILDCARD)
+     * @param entry the entry
+     * @return false if the entry does not have the form
+     */
+    static synchronized boolean applyOverride(String entry) {
+        int separator = entry.lastIndexOf('=');
+        if (separator < 0) {
+            return false;
+        }
+        String[] shape = entry.substring(0, separator).split("\\|", -1);
+        long ttlSeconds;
+        try {
+            ttlSeconds = Long.parseLong(entry.substring(separator + 1).trim());
+        } catch (NumberFormatException exc_01) {
+            return false;
+        }
+        if (shape.length != 3 || ttlSeconds < 0) {
+            return false;
+        }
+        setTtlMillis(shape[0].trim(), shape[1].trim(), shape[2].trim(), ttlSeconds * 1000);
+        return true;
+    }
+
+    /**
+     * Sets the freshness period for a query shape
+     * @param fromDate preference of articles to be show from date, or WILDCARD
+     * @param orderBy preference of sort order, or WILDCARD
+     * @param productionOffice preference of production office, or WILDCARD
+     * @param ttlMillis freshness period; 0 means that the page is always revalidated over the network
+     */
+    public static synchronized void setTtlMillis(String fromDate, String orderBy, String productionOffice, long ttlMillis) {
+        ttlOverrides.put(createShapeKey(fromDate, orderBy, productionOffice), ttlMillis);
+    }
+
+    /**
+     * Returns the freshness period for a query shape. The most specific override wins:
+     * the exact shape is looked up first, then shapes with WILDCARD in place of production-office,
+     * order-by and from-date (in that order); if no override is found a default value is returned.
+     * @param fromDate preference of articles to be show from date
+     * @param orderBy preference of sort order
+     * @param productionOffice preference of production office
+     * @return freshness period in milliseconds
+     */
+    public static synchronized long getTtlMillis(String fromDate, String orderBy, String productionOffice) {
+        String[] shapeKeys = new String[]{
+                createShapeKey(fromDate, orderBy, productionOffice),
+                createShapeKey(fromDate, orderBy, WILDCARD),
+                createShapeKey(fromDate, WILDCARD, WILDCARD),
+                createShapeKey(WILDCARD, orderBy, WILDCARD),
+                createShapeKey(WILDCARD, WILDCARD, WILDCARD)};
+        for (String shapeKey : shapeKeys) {
+            Long ttlMillis = ttlOverrides.get(shapeKey);
+            if (ttlMillis != null) {
+                return ttlMillis;
+            }
+        }
+        // default values
+        if (ORDER_BY_OLDEST.equals(orderBy)) {
+            return TTL_OLDEST_FIRST_MILLIS;
+        } else if (FROM_DATE_TODAY.equals(fromDate)) {
+            return TTL_TODAY_MILLIS;
+        } else {
+            return TTL_DEFAULT_MILLIS;
+        }
+    }
+
+    // the same format as the key of the query profile used by NewsArticleStore
+    private static String createShapeKey(String fromDate, String orderBy, String productionOffice) {
+        return NewsArticleStore.createProfileKey(fromDate, orderBy, productionOffice);
+    }
+}
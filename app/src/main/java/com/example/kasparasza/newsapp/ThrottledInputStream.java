@@ -0,0 +1,73 @@
+package com.example.kasparasza.newsapp;
+
+import android.os.SystemClock;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * InputStream that limits the rate at which bytes are read through it.
+ * Used for the downloads that the user is not waiting for (e.g. thumbnail prefetch), so that they do not
+ * take the bandwidth of the downloads that the user is waiting for.
+ */
+
+public class ThrottledInputStream extends FilterInputStream {
+
+    // members of the class:
+    private long bytesPerSecond;
+    // bytes read since the stream was opened, and the time it was opened
+    private long byteCount;
+    private long startMillis = SystemClock.uptimeMillis();
+
+    public ThrottledInputStream(InputStream in, long mBytesPerSecond) {
+        super(in);
+        bytesPerSecond = mBytesPerSecond;
+    }
+
+    @Override
+    public int read() throws IOException {
+        throttle();
+        int result = super.read();
+        if (result != -1) {
+            byteCount++;
+        }
+        return result;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        throttle();
+        // a single read is not allowed to take more than a second worth of bytes
+        int result = super.read(buffer, offset, (int) Math.min(length, Math.max(bytesPerSecond, 1)));
+        if (result != -1) {
+            byteCount += result;
+        }
+        return result;
+    }
+
+    // mark / reset would make the count ambiguous, therefore they are not supported
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    // waits until the bytes read so far fit in the rate limit
+    private void throttle() throws IOException {
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+        long dueMillis = startMillis + byteCount * 1000 / bytesPerSecond;
+        long waitMillis = dueMillis - SystemClock.uptimeMillis();
+        if (waitMillis > 0) {
+            try {
+                Thread.sleep(waitMillis);
+            } catch (InterruptedException exc_01) {
+                // the download has been cancelled
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Throttled read interrupted");
+            }
+        }
+    }
+}
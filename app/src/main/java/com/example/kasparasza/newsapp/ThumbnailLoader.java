@@ -0,0 +1,292 @@
+package com.example.kasparasza.newsapp;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.widget.ImageView;
+
+import com.example.kasparasza.newsapp.core.MetricsRegistry;
+import com.squareup.picasso.Callback;
+import com.squareup.picasso.Downloader;
+import com.squareup.picasso.NetworkPolicy;
+import com.squareup.picasso.Picasso;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thumbnail pipeline of the app, built on its own instance of Picasso:
+ * 1) memory tier - LRU cache of decoded Bitmaps, sized by bytes (a share of the memory class of the device);
+ * 2) disk tier - LRU cache of the encoded images, capped in bytes (see {@link DiskFileCache});
+ * 3) network.
+ * The requests are keyed by the image link and the target size (the decoded Bitmap is cached at the size it is shown).
+ * While the list is flinging, the requests are paused (the rows would be gone before the images are shown),
+ * and the requests of recycled rows are cancelled. Hit counters of both tiers are kept in MetricsRegistry
+ * (so they are shown by MetricsOverlay), so that their sizes can be tuned.
+ * Thumbnails of the rows that are about to be shown can be prefetched into the memory tier at the exact size they
+ * are shown; prefetch runs on its own instance of Picasso (sharing both tiers), with a limited number of threads
+ * and a limited download rate, so that it does not compete with the requests of the visible rows.
+ */
+
+public class ThumbnailLoader {
+
+    // String constants used:
+    private static final String LOG_TAG = ThumbnailLoader.class.getSimpleName();
+    private static final String DISK_CACHE_DIRECTORY = "thumbnails";
+    // tag of the requests made by the list (paused and resumed together)
+    private static final Object LIST_TAG = new Object();
+    // share of the memory class of the device used by the memory tier
+    private static final int MEMORY_CACHE_SHARE = 8;
+    private static final long DISK_CACHE_BYTES = 20 * 1024 * 1024;
+    // the most prefetch downloads run at once, and their total download rate
+    private static final int PREFETCH_PARALLELISM = 2;
+    private static final long PREFETCH_BYTES_PER_SECOND = 256 * 1024;
+
+    // the single instance of the loader, shared by all the components of the app
+    private static ThumbnailLoader instance;
+
+    // members of the class:
+    private Picasso picasso;
+    private Picasso prefetchPicasso;
+    private com.squareup.picasso.LruCache memoryCache;
+    private DiskFileCache diskCache;
+    // lookups of the memory tier, requests served by the disk tier and requests that went to the network
+    // (counters of MetricsRegistry)
+    private final AtomicLong memoryHits = MetricsRegistry.getInstance().counter(MetricsRegistry.COUNT_THUMBNAIL_MEMORY_HITS);
+    private final AtomicLong memoryMisses = MetricsRegistry.getInstance().counter(MetricsRegistry.COUNT_THUMBNAIL_MEMORY_MISSES);
+    private final AtomicLong diskHits = MetricsRegistry.getInstance().counter(MetricsRegistry.COUNT_THUMBNAIL_DISK_HITS);
+    private final AtomicLong networkLoads = MetricsRegistry.getInstance().counter(MetricsRegistry.COUNT_THUMBNAIL_NETWORK_LOADS);
+    private boolean paused;
+
+    /**
+     * Returns the single instance of the loader; the application context is used,
+     * so that no Activity is leaked by the loader
+     * @param context any context of the app
+     * @return ThumbnailLoader
+     */
+    static synchronized ThumbnailLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new ThumbnailLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ThumbnailLoader(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryCacheBytes = activityManager.getMemoryClass() * 1024 * 1024 / MEMORY_CACHE_SHARE;
+        memoryCache = new CountingMemoryCache(memoryCacheBytes);
+        diskCache = new DiskFileCache(new File(context.getCacheDir(), DISK_CACHE_DIRECTORY), DISK_CACHE_BYTES);
+        picasso = new Picasso.Builder(context)
+                .memoryCache(memoryCache)
+                .downloader(new DiskCachingDownloader(0))
+                .build();
+        // the rate limit is shared equally by the prefetch threads
+        prefetchPicasso = new Picasso.Builder(context)
+                .memoryCache(memoryCache)
+                .downloader(new DiskCachingDownloader(PREFETCH_BYTES_PER_SECOND / PREFETCH_PARALLELISM))
+                .executor(Executors.newFixedThreadPool(PREFETCH_PARALLELISM))
+                .build();
+    }
+
+    /**
+     * Loads a thumbnail into an ImageView (a placeholder is shown until it is ready)
+     * @param imageLink link of the image; if it is empty, an image stating that there is no image is shown
+     * @param imageView target of the request; a previous request of the same target is cancelled
+     * @param targetWidth width of the thumbnail in pixels
+     * @param targetHeight height of the thumbnail in pixels
+     */
+    public void load(String imageLink, ImageView imageView, int targetWidth, int targetHeight) {
+        if (imageLink == null || imageLink.isEmpty()) {
+            picasso.load(R.drawable.no_image_to_download)
+                    .resize(targetWidth, targetHeight)
+                    .centerCrop()
+                    .into(imageView);
+            return;
+        }
+        picasso.load(imageLink)
+                .resize(targetWidth, targetHeight)
+                .centerCrop()
+                .placeholder(R.drawable.image_placeholder)
+                .error(R.drawable.no_image_to_download)
+                .tag(LIST_TAG)
+                .into(imageView);
+    }
+
+    /**
+     * Prefetches a thumbnail into the memory tier at the size it will be shown
+     * (nothing is done if it is there already)
+     * @param imageLink link of the image
+     * @param targetWidth width of the thumbnail in pixels
+     * @param targetHeight height of the thumbnail in pixels
+     * @param callback informed when the prefetch has finished (on the UI thread; at once if the thumbnail
+     * is in the memory tier already)
+     */
+    public void prefetch(String imageLink, int targetWidth, int targetHeight, Callback callback) {
+        // the key is also the tag of the request, which allows it to be cancelled on its own
+        prefetchPicasso.load(imageLink)
+                .resize(targetWidth, targetHeight)
+                .centerCrop()
+                .priority(Picasso.Priority.LOW)
+                .tag(createPrefetchKey(imageLink, targetWidth, targetHeight))
+                .fetch(callback);
+    }
+
+    /**
+     * Cancels a prefetch that is not needed any more
+     * @param imageLink link of the image
+     * @param targetWidth width of the thumbnail in pixels
+     * @param targetHeight height of the thumbnail in pixels
+     */
+    public void cancelPrefetch(String imageLink, int targetWidth, int targetHeight) {
+        prefetchPicasso.cancelTag(createPrefetchKey(imageLink, targetWidth, targetHeight));
+    }
+
+    // key of a prefetch: the image link and the target size
+    private static String createPrefetchKey(String imageLink, int targetWidth, int targetHeight) {
+        return imageLink + "@" + targetWidth + "x" + targetHeight;
+    }
+
+    /**
+     * Cancels the request of an ImageView (e.g. when its row is recycled)
+     * @param imageView target of the request
+     */
+    public void cancel(ImageView imageView) {
+        picasso.cancelRequest(imageView);
+    }
+
+    /**
+     * Pauses the requests of the list while it is flinging, and resumes them when it slows down
+     * @param scrollState one of RecyclerView.SCROLL_STATE_* constants
+     */
+    public void onScrollStateChanged(int scrollState) {
+        boolean flinging = scrollState == RecyclerView.SCROLL_STATE_SETTLING;
+        if (flinging == paused) {
+            return;
+        }
+        paused = flinging;
+        if (paused) {
+            picasso.pauseTag(LIST_TAG);
+        } else {
+            picasso.resumeTag(LIST_TAG);
+        }
+    }
+
+    /**
+     * @return share of the requests served by the memory tier (0 if there were none)
+     */
+    public double getMemoryHitRate() {
+        long hits = memoryHits.get();
+        long requests = hits + memoryMisses.get();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * @return share of the requests that missed the memory tier and were served by the disk tier (0 if there were none)
+     */
+    public double getDiskHitRate() {
+        long hits = diskHits.get();
+        long requests = hits + networkLoads.get();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHits.get();
+    }
+
+    public long getMemoryMissCount() {
+        return memoryMisses.get();
+    }
+
+    public long getDiskHitCount() {
+        return diskHits.get();
+    }
+
+    public long getNetworkLoadCount() {
+        return networkLoads.get();
+    }
+
+    // memory tier that counts its hits and misses into MetricsRegistry (the counts of LruCache itself are not
+    // visible to the registry, and they can not be reset with it)
+    private class CountingMemoryCache extends com.squareup.picasso.LruCache {
+
+        private CountingMemoryCache(int maxBytes) {
+            super(maxBytes);
+        }
+
+        @Override
+        public Bitmap get(String key) {
+            Bitmap bitmap = super.get(key);
+            if (bitmap != null) {
+                memoryHits.incrementAndGet();
+            } else {
+                memoryMisses.incrementAndGet();
+            }
+            return bitmap;
+        }
+    }
+
+    // Downloader that serves the images from the disk tier, and writes the images received over the network to it
+    private class DiskCachingDownloader implements Downloader {
+
+        // limit of the download rate of a single download (0 if there is none)
+        private long bytesPerSecond;
+
+        private DiskCachingDownloader(long mBytesPerSecond) {
+            bytesPerSecond = mBytesPerSecond;
+        }
+
+        @Override
+        public Response load(Uri uri, int networkPolicy) throws IOException {
+            String url = uri.toString();
+            if (NetworkPolicy.shouldReadFromDiskCache(networkPolicy)) {
+                File cachedFile = diskCache.get(url);
+                if (cachedFile != null) {
+                    diskHits.incrementAndGet();
+                    return new Response(new FileInputStream(cachedFile), true, cachedFile.length());
+                }
+            }
+            if (NetworkPolicy.isOfflineOnly(networkPolicy)) {
+                throw new ResponseException("Thumbnail is not cached: " + url, networkPolicy, 504);
+            }
+
+            networkLoads.incrementAndGet();
+            HttpURLConnection httpURLConnection = (HttpURLConnection) new URL(url).openConnection();
+            httpURLConnection.setReadTimeout(10000 /* milliseconds */);
+            httpURLConnection.setConnectTimeout(15000 /* milliseconds */);
+            int responseCode = httpURLConnection.getResponseCode();
+            if (responseCode >= 300) {
+                httpURLConnection.disconnect();
+                throw new ResponseException(responseCode + " " + httpURLConnection.getResponseMessage(),
+                        networkPolicy, responseCode);
+            }
+            InputStream inputStream = httpURLConnection.getInputStream();
+            if (bytesPerSecond > 0) {
+                inputStream = new ThrottledInputStream(inputStream, bytesPerSecond);
+            }
+            if (!NetworkPolicy.shouldWriteToDiskCache(networkPolicy)) {
+                return new Response(inputStream, false, httpURLConnection.getContentLength());
+            }
+            File cachedFile;
+            try {
+                cachedFile = diskCache.put(url, inputStream);
+            } finally {
+                inputStream.close();
+            }
+            return new Response(new FileInputStream(cachedFile), false, cachedFile.length());
+        }
+
+        @Override
+        public void shutdown() {
+            Log.d(LOG_TAG, "Memory hit rate " + getMemoryHitRate() + ", disk hit rate " + getDiskHitRate());
+        }
+    }
+}
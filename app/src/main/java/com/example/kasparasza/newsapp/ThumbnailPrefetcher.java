@@ -0,0 +1,102 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.Context;
+
+import com.squareup.picasso.Callback;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Custom class that warms the thumbnail pipeline for the rows just below the viewport: the thumbnails of the next
+ * rows are prefetched at the exact size they are shown, so that the rows appear with their images rather than with
+ * the placeholder. Prefetches of the rows that fall out of the range (e.g. the user has scrolled past them)
+ * are cancelled. The number of concurrent prefetches and their download rate are limited by ThumbnailLoader.
+ * All the public methods are meant to be called on the UI thread.
+ */
+
+public class ThumbnailPrefetcher {
+
+    // number of rows below the viewport whose thumbnails are prefetched
+    private static final int ROWS_AHEAD = 6;
+
+    // members of the class:
+    private ThumbnailLoader thumbnailLoader;
+    private NewsArticleListAdapter listAdapter;
+    // image links of the prefetches in progress
+    private Set<String> prefetchesInFlight = new HashSet<String>();
+    // position of the last visible row at the previous update
+    private int lastVisiblePosition = -1;
+
+    // constructor
+    public ThumbnailPrefetcher(Context context, NewsArticleListAdapter mListAdapter) {
+        thumbnailLoader = ThumbnailLoader.getInstance(context);
+        listAdapter = mListAdapter;
+    }
+
+    /**
+     * Updates the range of the prefetched rows: prefetches of the rows that have left the range are cancelled,
+     * and the rows that have entered it are prefetched
+     * @param mLastVisiblePosition position of the last visible row of the list
+     * @param itemsChanged true if the items of the list have changed (e.g. a page has arrived)
+     */
+    public void onViewportChanged(int mLastVisiblePosition, boolean itemsChanged) {
+        if (mLastVisiblePosition < 0 || (mLastVisiblePosition == lastVisiblePosition && !itemsChanged)) {
+            return;
+        }
+        lastVisiblePosition = mLastVisiblePosition;
+        int thumbnailWidth = listAdapter.getThumbnailWidth();
+        int thumbnailHeight = listAdapter.getThumbnailHeight();
+
+        // image links of the rows within the range (rows without an image, and placeholders, are skipped)
+        Set<String> imageLinksInRange = new HashSet<String>();
+        int position;
+        for (position = lastVisiblePosition + 1;
+             position <= lastVisiblePosition + ROWS_AHEAD && position < listAdapter.getItemCount(); position++) {
+            NewsArticle newsArticle = listAdapter.getItem(position);
+            if (newsArticle != null && !newsArticle.getImageLink().isEmpty()) {
+                imageLinksInRange.add(newsArticle.getImageLink());
+            }
+        }
+
+        // prefetches that are out of the range are cancelled
+        Iterator<String> iterator = prefetchesInFlight.iterator();
+        while (iterator.hasNext()) {
+            String imageLink = iterator.next();
+            if (!imageLinksInRange.contains(imageLink)) {
+                thumbnailLoader.cancelPrefetch(imageLink, thumbnailWidth, thumbnailHeight);
+                iterator.remove();
+            }
+        }
+
+        // the rows that have entered the range are prefetched
+        // (the link is recorded before the prefetch starts, as the callback is called at once on a memory hit)
+        for (final String imageLink : imageLinksInRange) {
+            if (!prefetchesInFlight.add(imageLink)) {
+                continue;
+            }
+            thumbnailLoader.prefetch(imageLink, thumbnailWidth, thumbnailHeight, new Callback() {
+                @Override
+                public void onSuccess() {
+                    prefetchesInFlight.remove(imageLink);
+                }
+
+                @Override
+                public void onError() {
+                    prefetchesInFlight.remove(imageLink);
+                }
+            });
+        }
+    }
+
+    /**
+     * Cancels all the prefetches; to be called when the list is not used any more
+     */
+    public void release() {
+        for (String imageLink : prefetchesInFlight) {
+            thumbnailLoader.cancelPrefetch(imageLink, listAdapter.getThumbnailWidth(), listAdapter.getThumbnailHeight());
+        }
+        prefetchesInFlight.clear();
+    }
+}
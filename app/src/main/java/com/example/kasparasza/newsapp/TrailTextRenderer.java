@@ -0,0 +1,67 @@
+package com.example.kasparasza.newsapp;
+
+import android.text.Html;
+import android.util.LruCache;
+
+import java.util.List;
+
+/**
+ * Custom class that converts the Html trail text of NewsArticle objects into a rendered (Spanned) form.
+ * The conversion is meant to be done once, on the thread that loads the page, so that binding a list item
+ * only sets the prebuilt text. Rendered texts are kept in a bounded memo cache, so that the pages which
+ * are loaded again (e.g. a network refresh of a stored page) do not parse the same Html again.
+ * The methods are thread-safe.
+ */
+
+public class TrailTextRenderer {
+
+    // the most characters of rendered texts held in the cache
+    private static final int CACHE_SIZE_CHARS = 256 * 1024;
+
+    // rendered texts by their Html source
+    private static final LruCache<String, CharSequence> renderedTexts = new LruCache<String, CharSequence>(CACHE_SIZE_CHARS) {
+        @Override
+        protected int sizeOf(String html, CharSequence renderedText) {
+            return html.length() + renderedText.length();
+        }
+    };
+
+    /**
+     * Create a private constructor because no one should ever create a {@link TrailTextRenderer} object.
+     */
+    private TrailTextRenderer() {
+    }
+
+    /**
+     * Renders the Html trail text (Html.fromHtml() formats the text to use Html tags)
+     * @param html trail text as received in the JSON response
+     * @return rendered text
+     */
+    public static CharSequence render(String html) {
+        if (html == null || html.isEmpty()) {
+            return "";
+        }
+        CharSequence renderedText = renderedTexts.get(html);
+        if (renderedText == null) {
+            renderedText = Html.fromHtml(html);
+            renderedTexts.put(html, renderedText);
+        }
+        return renderedText;
+    }
+
+    /**
+     * Renders the trail text of each NewsArticle object of a page and stores it with the object;
+     * to be called on the thread that loads the page (not on the UI thread)
+     * @param newsArticleList a page of NewsArticle objects
+     * @return the same list (for convenience)
+     */
+    public static List<NewsArticle> prerender(List<NewsArticle> newsArticleList) {
+        if (newsArticleList == null) {
+            return null;
+        }
+        for (NewsArticle newsArticle : newsArticleList) {
+            newsArticle.setRenderedStartText(render(newsArticle.getStartText()));
+        }
+        return newsArticleList;
+    }
+}
@@ -0,0 +1,440 @@
+package com.example.kasparasza.newsapp;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.example.kasparasza.newsapp.core.ArticleMergeIndex;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Custom class that keeps only a limited number of pages of NewsArticle objects in memory.
+ * The list keeps the positions of all the pages that have been shown (so the scroll position stays valid),
+ * but only the pages within a window around the viewport hold their NewsArticle objects; the items of the other
+ * pages are replaced with placeholders (null items of NewsArticleListAdapter). When the viewport moves,
+ * the pages that fall out of the window are dropped, and the pages that come into it are reloaded in the background.
+ * A dropped page is kept as a compact snapshot (see {@link NewsArticleCodec}) in a cache bounded by bytes, from
+ * which it is decoded when it is needed again; if the snapshot has been evicted, the page is reloaded
+ * from the local NewsArticleStore (or over the network, if it is not stored).
+ * Every page goes through an {@link ArticleMergeIndex} before it reaches the adapter, so that an article that has
+ * moved to another page of the result set (while the user was scrolling) is not shown twice.
+ * A page whose query failed is shown as a gap (a single row, see NewsArticleListAdapter.GAP_ITEM) that keeps its
+ * place in the list until the page is recovered; gaps are neither dropped nor reloaded by the window.
+ * All the public methods are meant to be called on the UI thread.
+ */
+
+public class WindowedArticleList implements ArticleMergeIndex.Reconciler<NewsArticle> {
+
+    // String constants used:
+    private static final String LOG_TAG = WindowedArticleList.class.getSimpleName();
+    // the most bytes held by the snapshots of the dropped pages
+    private static final int SNAPSHOT_CACHE_BYTES = 256 * 1024;
+
+    // members of the class:
+    private NewsArticleListAdapter listAdapter;
+    private NewsArticleStore store;
+    // number of pages held in memory (the page of the viewport and the pages around it)
+    private int windowPages;
+    // number of items of each page shown in the list, in the order in which the pages are shown
+    private LinkedHashMap<Integer, Integer> pageItemCounts = new LinkedHashMap<Integer, Integer>();
+    // pages that hold their NewsArticle objects
+    private Set<Integer> residentPages = new HashSet<Integer>();
+    // pages that are being reloaded at the moment
+    private Set<Integer> pagesBeingReloaded = new HashSet<Integer>();
+    // pages that are shown as gaps (their query failed)
+    private Set<Integer> gapPages = new HashSet<Integer>();
+    // index of the shown articles by articleLink
+    private ArticleMergeIndex<NewsArticle> mergeIndex = new ArticleMergeIndex<NewsArticle>();
+    // updated copies of the shown articles found while a page is merged, by their positions in the list
+    private Map<Integer, NewsArticle> duplicateUpdates = new HashMap<Integer, NewsArticle>();
+    // encoded snapshots of the dropped pages by page number (accessed on the UI thread and on the reload thread)
+    private LruCache<Integer, byte[]> pageSnapshots = new LruCache<Integer, byte[]>(SNAPSHOT_CACHE_BYTES) {
+        @Override
+        protected int sizeOf(Integer page, byte[] snapshot) {
+            return snapshot.length;
+        }
+    };
+    // query of the shown pages (any page), used to reload the dropped pages
+    private NewsQuery query;
+    // page in the middle of the window
+    private int windowCenterPage;
+    private ExecutorService reloadExecutor = Executors.newSingleThreadExecutor();
+    private Handler mainHandler = new Handler(Looper.getMainLooper());
+    private boolean released;
+
+    // constructor
+    public WindowedArticleList(Context context, NewsArticleListAdapter mListAdapter, int mWindowPages) {
+        listAdapter = mListAdapter;
+        store = NewsArticleStore.getInstance(context);
+        windowPages = Math.max(mWindowPages, 1);
+    }
+
+    /**
+     * Adds a page delivered by the Loader, by PagePrefetcher or by PageRetryQueue to the list
+     * (a page that is shown as a gap fills the gap)
+     * @param mQuery query of the page
+     * @param data a page of NewsArticle objects
+     * @param replacesStoredPage true if the data is a network refresh of the stored copy of the page shown before
+     */
+    public void addPage(NewsQuery mQuery, List<NewsArticle> data, boolean replacesStoredPage) {
+        query = mQuery;
+        int page = mQuery.getPage();
+
+        // a refreshed page loses the articles that have been pushed down to the next page by newer articles;
+        // if the next page is shown already, they would not be shown anywhere, so they are kept on this page
+        // (and in its stored copy, so that the page has the same items when it is reloaded from the store)
+        if (replacesStoredPage && residentPages.contains(page) && pageItemCounts.containsKey(page + 1)) {
+            List<NewsArticle> mergedData =
+                    keepPushedDownArticles(data, listAdapter.getRange(getPageStart(page), pageItemCounts.get(page)));
+            if (mergedData.size() > data.size()) {
+                storePage(mQuery, mergedData);
+            }
+            data = mergedData;
+        }
+        // articles shown on the other pages are dropped (and their shown copies are updated)
+        data = mergePage(page, data);
+        // a snapshot of the previous copy of the page is not valid any more
+        pageSnapshots.remove(page);
+
+        if (listAdapter.getItemCount() == 0 && pageItemCounts.isEmpty()) {
+            // if the list is empty - the page is set as its content
+            listAdapter.submitItems(data);
+            residentPages.add(page);
+            windowCenterPage = page;
+
+        } else if (gapPages.remove(page)) {
+            // the page has been recovered: it takes the place of its gap
+            listAdapter.replaceRange(getPageStart(page), pageItemCounts.get(page), data);
+            residentPages.add(page);
+
+        } else if (replacesStoredPage && pageItemCounts.containsKey(page)) {
+            // the data is a network refresh of the stored copy of a page that is shown: the stored copy is replaced
+            // (the page keeps its place in the list); if the page has been dropped in the meantime,
+            // only its number of items is updated
+            List<NewsArticle> items = residentPages.contains(page) ? data : createPlaceholders(data.size());
+            listAdapter.replaceRange(getPageStart(page), pageItemCounts.get(page), items);
+
+        } else {
+            // the page is appended to the existing items of the adapter
+            listAdapter.appendItems(data);
+            residentPages.add(page);
+        }
+        pageItemCounts.put(page, data.size());
+        trimToWindow();
+    }
+
+    /**
+     * Appends a gap for a page whose query failed, so that the page keeps its place in the list
+     * until it is recovered (and is then added with addPage)
+     * @param mQuery query of the page
+     */
+    public void addGap(NewsQuery mQuery) {
+        query = mQuery;
+        int page = mQuery.getPage();
+        if (pageItemCounts.containsKey(page)) {
+            return;
+        }
+        List<NewsArticle> gapItems = new ArrayList<NewsArticle>(1);
+        gapItems.add(NewsArticleListAdapter.GAP_ITEM);
+        listAdapter.appendItems(gapItems);
+        pageItemCounts.put(page, gapItems.size());
+        gapPages.add(page);
+    }
+
+    /**
+     * @param page "page" parameter (page number)
+     * @return true if the articles of the page are shown in the list (it is neither missing nor a gap)
+     */
+    public boolean isPageShown(int page) {
+        return pageItemCounts.containsKey(page) && !gapPages.contains(page);
+    }
+
+    /**
+     * Empties the list, so that the pages of another query profile can be added to it (e.g. after a change
+     * of the preferences); pages of the previous profile that are being reloaded are discarded when they arrive
+     * @param mQuery query of the pages that will be added
+     */
+    public void reset(NewsQuery mQuery) {
+        pagesBeingReloaded.clear();
+        restore(mQuery, new int[0], new int[0], new int[0], 0);
+    }
+
+    /**
+     * Restores the layout of the list (e.g. after a configuration change) without any NewsArticle objects;
+     * the pages around the given position are reloaded from the local store
+     * @param mQuery query of the shown pages (any page)
+     * @param pageNumbers "page" parameters of the shown pages, in the order in which they are shown
+     * @param itemCounts number of items of each of the pages
+     * @param gapPageNumbers "page" parameters of the pages that are shown as gaps
+     * @param firstVisiblePosition position of the first visible item of the list
+     */
+    public void restore(NewsQuery mQuery, int[] pageNumbers, int[] itemCounts, int[] gapPageNumbers, int firstVisiblePosition) {
+        query = mQuery;
+        pageItemCounts.clear();
+        residentPages.clear();
+        gapPages.clear();
+        mergeIndex.clear();
+        pageSnapshots.evictAll();
+        int totalItemCount = 0;
+        int index;
+        for (index = 0; index < pageNumbers.length && index < itemCounts.length; index++) {
+            pageItemCounts.put(pageNumbers[index], itemCounts[index]);
+            totalItemCount += itemCounts[index];
+        }
+        List<NewsArticle> items = createPlaceholders(totalItemCount);
+        for (int gapPage : gapPageNumbers) {
+            if (pageItemCounts.containsKey(gapPage)) {
+                items.set(getPageStart(gapPage), NewsArticleListAdapter.GAP_ITEM);
+                gapPages.add(gapPage);
+            }
+        }
+        listAdapter.setItems(items);
+        windowCenterPage = 0;
+        onViewportChanged(firstVisiblePosition);
+    }
+
+    /**
+     * Moves the window to the page of the first visible item: the pages that fall out of the window are dropped,
+     * and the dropped pages within it are reloaded
+     * @param firstVisiblePosition position of the first visible item of the list
+     */
+    public void onViewportChanged(int firstVisiblePosition) {
+        int page = getPageOfPosition(firstVisiblePosition);
+        if (page == 0 || page == windowCenterPage) {
+            return;
+        }
+        windowCenterPage = page;
+        trimToWindow();
+        for (Integer shownPage : pageItemCounts.keySet()) {
+            if (isInWindow(shownPage) && !residentPages.contains(shownPage) && !gapPages.contains(shownPage)) {
+                reloadPage(shownPage);
+            }
+        }
+    }
+
+    /**
+     * @return "page" parameters of the shown pages, in the order in which they are shown (e.g. to save the state of the list)
+     */
+    public int[] getPageNumbers() {
+        int[] pageNumbers = new int[pageItemCounts.size()];
+        int index = 0;
+        for (Integer page : pageItemCounts.keySet()) {
+            pageNumbers[index++] = page;
+        }
+        return pageNumbers;
+    }
+
+    /**
+     * @return number of items of each of the shown pages, in the same order as getPageNumbers()
+     */
+    public int[] getItemCounts() {
+        int[] itemCounts = new int[pageItemCounts.size()];
+        int index = 0;
+        for (Integer itemCount : pageItemCounts.values()) {
+            itemCounts[index++] = itemCount;
+        }
+        return itemCounts;
+    }
+
+    /**
+     * @return "page" parameters of the pages that are shown as gaps (e.g. to save the state of the list)
+     */
+    public int[] getGapPages() {
+        int[] pageNumbers = new int[gapPages.size()];
+        int index = 0;
+        for (Integer page : gapPages) {
+            pageNumbers[index++] = page;
+        }
+        return pageNumbers;
+    }
+
+    /**
+     * Stops the background reloading; to be called when the list is not used any more
+     */
+    public void release() {
+        released = true;
+        reloadExecutor.shutdownNow();
+    }
+
+    // drops the NewsArticle objects of the pages outside the window
+    // (skipped while the adapter is diffing, as the positions of the items may be changing)
+    private void trimToWindow() {
+        if (listAdapter.isDiffPending()) {
+            return;
+        }
+        Iterator<Integer> iterator = residentPages.iterator();
+        while (iterator.hasNext()) {
+            int page = iterator.next();
+            if (!isInWindow(page) && pageItemCounts.containsKey(page)) {
+                int pageStart = getPageStart(page);
+                int itemCount = pageItemCounts.get(page);
+                // a snapshot is only taken of a complete page (its items keep their offsets in the merge index)
+                List<NewsArticle> pageItems = listAdapter.getRange(pageStart, itemCount);
+                if (pageItems.size() == itemCount && !pageItems.contains(null)) {
+                    pageSnapshots.put(page, NewsArticleCodec.encode(pageItems));
+                }
+                listAdapter.evictRange(pageStart, itemCount);
+                iterator.remove();
+            }
+        }
+    }
+
+    // reloads a dropped page in the background: from the local store, or over the network if it is not stored
+    private void reloadPage(final int page) {
+        if (query == null || pagesBeingReloaded.contains(page)) {
+            return;
+        }
+        pagesBeingReloaded.add(page);
+        final NewsQuery pageQuery = query.forPage(page);
+        reloadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                List<NewsArticle> snapshotList = decodeSnapshot(page);
+                List<NewsArticle> storedList = snapshotList != null
+                        ? snapshotList : NewsPageRepository.readStoredPage(store, pageQuery);
+                // (null if the page is not stored and its query has failed)
+                final List<NewsArticle> newsArticleList = storedList.isEmpty()
+                        ? NewsPageRepository.loadPage(store, pageQuery) : storedList;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageReloaded(pageQuery, newsArticleList);
+                    }
+                });
+            }
+        });
+    }
+
+    // replaces the stored copy of a page in the background; the write goes through the reload thread,
+    // so a later reload of the page reads the copy written here
+    private void storePage(final NewsQuery pageQuery, final List<NewsArticle> newsArticleList) {
+        if (released) {
+            return;
+        }
+        reloadExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                store.writePage(pageQuery.getProfileKey(), pageQuery.getPage(), newsArticleList);
+            }
+        });
+    }
+
+    // decodes the snapshot of a dropped page (on the reload thread); returns null if there is none
+    private List<NewsArticle> decodeSnapshot(int page) {
+        byte[] snapshot = pageSnapshots.remove(page);
+        if (snapshot == null) {
+            return null;
+        }
+        try {
+            return TrailTextRenderer.prerender(NewsArticleCodec.decode(snapshot));
+        } catch (IOException exc_01) {
+            Log.e(LOG_TAG, "Snapshot of page " + page + " could not be decoded " + exc_01);
+            return null;
+        }
+    }
+
+    // called on the UI thread when a dropped page has been reloaded
+    private void onPageReloaded(NewsQuery pageQuery, List<NewsArticle> newsArticleList) {
+        int page = pageQuery.getPage();
+        // the list has been reset for another profile in the meantime
+        if (query == null || !pageQuery.getProfileKey().equals(query.getProfileKey())) {
+            return;
+        }
+        pagesBeingReloaded.remove(page);
+        // the page is not needed any more, or could not be reloaded (it is tried again when the viewport moves)
+        if (released || !isInWindow(page) || residentPages.contains(page) || !pageItemCounts.containsKey(page)
+                || gapPages.contains(page) || newsArticleList == null || newsArticleList.isEmpty()) {
+            return;
+        }
+        List<NewsArticle> pageItems = mergePage(page, newsArticleList);
+        listAdapter.fillRange(getPageStart(page), pageItemCounts.get(page), pageItems);
+        pageItemCounts.put(page, pageItems.size());
+        residentPages.add(page);
+    }
+
+    // merges a page into the index; the shown copies of its duplicates are updated in the adapter all at once
+    private List<NewsArticle> mergePage(int page, List<NewsArticle> newsArticleList) {
+        List<NewsArticle> pageItems = mergeIndex.mergePage(page, newsArticleList, this);
+        listAdapter.updateItems(duplicateUpdates);
+        duplicateUpdates.clear();
+        return pageItems;
+    }
+
+    // implementation of the method required by ArticleMergeIndex.Reconciler:
+    // the shown copy of an article is replaced with the copy received later (if it is held in memory)
+    @Override
+    public void onDuplicate(int page, int offset, NewsArticle newsArticle) {
+        if (residentPages.contains(page) && pageItemCounts.containsKey(page)) {
+            duplicateUpdates.put(getPageStart(page) + offset, newsArticle);
+        }
+    }
+
+    // appends the articles of the previous copy of a page that are missing from its refreshed copy
+    private static List<NewsArticle> keepPushedDownArticles(List<NewsArticle> data, List<NewsArticle> previousItems) {
+        Set<String> articleLinks = new HashSet<String>();
+        for (NewsArticle newsArticle : data) {
+            articleLinks.add(newsArticle.getArticleLink());
+        }
+        List<NewsArticle> mergedData = new ArrayList<NewsArticle>(data);
+        for (NewsArticle previousItem : previousItems) {
+            if (previousItem != null && articleLinks.add(previousItem.getArticleLink())) {
+                mergedData.add(previousItem);
+            }
+        }
+        return mergedData;
+    }
+
+    private boolean isInWindow(int page) {
+        int windowStart = windowCenterPage - (windowPages - 1) / 2;
+        return page >= windowStart && page < windowStart + windowPages;
+    }
+
+    // position of the first item of a page in the list
+    private int getPageStart(int page) {
+        int pageStart = 0;
+        for (Map.Entry<Integer, Integer> pageItemCount : pageItemCounts.entrySet()) {
+            if (pageItemCount.getKey() == page) {
+                break;
+            }
+            pageStart += pageItemCount.getValue();
+        }
+        return pageStart;
+    }
+
+    // page that holds the item at a position (0 if there is none)
+    private int getPageOfPosition(int position) {
+        if (position < 0) {
+            return 0;
+        }
+        int pageEnd = 0;
+        for (Map.Entry<Integer, Integer> pageItemCount : pageItemCounts.entrySet()) {
+            pageEnd += pageItemCount.getValue();
+            if (position < pageEnd) {
+                return pageItemCount.getKey();
+            }
+        }
+        return 0;
+    }
+
+    private static List<NewsArticle> createPlaceholders(int count) {
+        List<NewsArticle> placeholders = new ArrayList<NewsArticle>(count);
+        int index;
+        for (index = 0; index < count; index++) {
+            placeholders.add(null);
+        }
+        return placeholders;
+    }
+}
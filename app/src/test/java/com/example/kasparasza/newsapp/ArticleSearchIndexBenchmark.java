@@ -0,0 +1,62 @@
+package com.example.kasparasza.newsapp;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmark of ArticleSearchIndex over MAX_DOCUMENTS (10k) synthetic articles: each keystroke of a typed query
+ * is a search, which has to fit in a frame (16 ms) to run on the UI thread. The results are printed;
+ * the test fails if the median keystroke of a query misses the frame (the 99th percentile is only printed,
+ * as it depends on the pauses of the garbage collector of the host).
+ */
+public class ArticleSearchIndexBenchmark {
+
+    private static final long FRAME_NANOS = 16 * 1000000L;
+    private static final int WARM_UP_RUNS = 20;
+    private static final int TIMED_RUNS = 50;
+    // queries typed by the user: common words (many matches), a rare word, and words that do not match together
+    private static final String[] QUERIES = {"election minister", "e", "climate talks europe", "guardian", "museum 9999", "zzz"};
+
+    private static ArticleSearchIndex index;
+
+    @BeforeClass
+    public static void fillIndex() {
+        index = new ArticleSearchIndex();
+        List<NewsArticle> newsArticleList = TestArticles.createArticles(ArticleSearchIndex.MAX_DOCUMENTS, 42);
+        long startTime = System.nanoTime();
+        index.addArticles(newsArticleList);
+        System.out.println(String.format("indexed %d articles in %.1f ms", index.getDocumentCount(),
+                (System.nanoTime() - startTime) / 1e6));
+    }
+
+    @Test
+    public void searchAsYouTypeFitsInFrame() {
+        for (String query : QUERIES) {
+            long[] durations = new long[query.length() * TIMED_RUNS];
+            int run;
+            for (run = 0; run < WARM_UP_RUNS + TIMED_RUNS; run++) {
+                int length;
+                for (length = 1; length <= query.length(); length++) {
+                    String typed = query.substring(0, length);
+                    long startTime = System.nanoTime();
+                    index.search(typed);
+                    long duration = System.nanoTime() - startTime;
+                    if (run >= WARM_UP_RUNS) {
+                        durations[(run - WARM_UP_RUNS) * query.length() + length - 1] = duration;
+                    }
+                }
+            }
+            Arrays.sort(durations);
+            long median = durations[durations.length / 2];
+            long p99 = durations[durations.length * 99 / 100];
+            System.out.println(String.format("search \"%s\" per keystroke: median %.3f ms, p99 %.3f ms, %d results",
+                    query, median / 1e6, p99 / 1e6, index.search(query).size()));
+            assertTrue("median of \"" + query + "\" misses the frame", median < FRAME_NANOS);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.kasparasza.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of ArticleSearchIndex: matching of the words and of the prefix, the indexed fields,
+ * the order and the number of the results, the replacement and the eviction of the articles.
+ */
+public class ArticleSearchIndexTest {
+
+    private ArticleSearchIndex index = new ArticleSearchIndex();
+
+    @Test
+    public void allWordsHaveToMatch() {
+        index.addArticles(articles(
+                TestArticles.createArticle("Climate talks in Paris", "", 0, "a"),
+                TestArticles.createArticle("Climate of the market", "", 1, "b"),
+                TestArticles.createArticle("Paris market", "", 2, "c")));
+
+        assertEquals(links("a", "b"), links(index.search("climate ")));
+        assertEquals(links("a"), links(index.search("paris climate ")));
+        assertTrue(index.search("climate football ").isEmpty());
+    }
+
+    @Test
+    public void lastWordIsMatchedAsPrefix() {
+        index.addArticles(articles(
+                TestArticles.createArticle("Election results", "", 0, "a"),
+                TestArticles.createArticle("Elections abroad", "", 1, "b"),
+                TestArticles.createArticle("Elect a leader", "", 2, "c")));
+
+        assertEquals(links("a", "b", "c"), links(index.search("ELEC")));
+        assertEquals(links("a", "b"), links(index.search("electi")));
+        // a trailing space ends the word
+        assertEquals(links("a"), links(index.search("election ")));
+    }
+
+    @Test
+    public void trailTextAuthorAndSectionAreIndexedWithoutMarkup() {
+        index.addArticles(articles(
+                TestArticles.createArticle("Headline", "<a href=\"strongbox\">Storm</a> warning &amp; floods", 0, "a")));
+
+        assertEquals(links("a"), links(index.search("storm warning floods ")));
+        assertTrue(index.search("strongbox").isEmpty());
+        assertTrue(index.search("amp ").isEmpty());
+        // byline and section of the article 0
+        assertEquals(links("a"), links(index.search("guardian staff ")));
+        assertEquals(links("a"), links(index.search("world news ")));
+    }
+
+    @Test
+    public void emptyQueryHasNoResults() {
+        index.addArticles(TestArticles.createArticles(10, 1));
+        assertTrue(index.search("").isEmpty());
+        assertTrue(index.search("  , ").isEmpty());
+    }
+
+    @Test
+    public void resultsAreNewestFirstAndLimited() {
+        List<NewsArticle> newsArticleList = new ArrayList<NewsArticle>();
+        int articleIndex;
+        for (articleIndex = ArticleSearchIndex.MAX_RESULTS + 50; articleIndex > 0; articleIndex--) {
+            newsArticleList.add(TestArticles.createArticle("Common headline", "", articleIndex, "link" + articleIndex));
+        }
+        index.addArticles(newsArticleList);
+
+        List<NewsArticle> results = index.search("common");
+        assertEquals(ArticleSearchIndex.MAX_RESULTS, results.size());
+        for (articleIndex = 1; articleIndex < results.size(); articleIndex++) {
+            assertTrue(results.get(articleIndex - 1).getTimePublishedMillis() >= results.get(articleIndex).getTimePublishedMillis());
+        }
+        assertEquals("link1", results.get(0).getArticleLink());
+    }
+
+    @Test
+    public void changedArticleReplacesPreviousCopy() {
+        index.addArticles(articles(TestArticles.createArticle("Old headline", "", 0, "a")));
+        index.addArticles(articles(TestArticles.createArticle("New headline", "", 0, "a")));
+
+        assertEquals(1, index.getDocumentCount());
+        assertTrue(index.search("old ").isEmpty());
+        assertEquals(links("a"), links(index.search("new ")));
+    }
+
+    @Test
+    public void unchangedArticleUpdatesShownCopy() {
+        NewsArticle shownCopy = TestArticles.createArticle("Headline", "", 0, "a");
+        index.addArticles(articles(TestArticles.createArticle("Headline", "", 0, "a")));
+        index.addArticles(articles(shownCopy));
+
+        assertSame(shownCopy, index.search("headline").get(0));
+    }
+
+    @Test
+    public void oldestArticlesAreEvicted() {
+        index.addArticles(TestArticles.createArticles(ArticleSearchIndex.MAX_DOCUMENTS + 500, 7));
+
+        assertEquals(ArticleSearchIndex.MAX_DOCUMENTS, index.getDocumentCount());
+        // the words of the evicted articles are not found any more, the ones of the newest articles are
+        assertTrue(index.search("0 ").isEmpty());
+        assertEquals(1, index.search((ArticleSearchIndex.MAX_DOCUMENTS + 499) + " ").size());
+    }
+
+    @Test
+    public void nullArticlesAreSkipped() {
+        List<NewsArticle> newsArticleList = new ArrayList<NewsArticle>();
+        newsArticleList.add(null);
+        newsArticleList.add(TestArticles.createArticle("Headline", "", 0, "a"));
+        index.addArticles(newsArticleList);
+        assertEquals(1, index.getDocumentCount());
+    }
+
+    private static List<NewsArticle> articles(NewsArticle... newsArticles) {
+        List<NewsArticle> newsArticleList = new ArrayList<NewsArticle>();
+        for (NewsArticle newsArticle : newsArticles) {
+            newsArticleList.add(newsArticle);
+        }
+        return newsArticleList;
+    }
+
+    private static List<String> links(String... articleLinks) {
+        List<String> links = new ArrayList<String>();
+        for (String articleLink : articleLinks) {
+            links.add(articleLink);
+        }
+        return links;
+    }
+
+    // links of the results (sorted by their publishing time, as returned by the search)
+    private static List<String> links(List<NewsArticle> results) {
+        List<String> links = new ArrayList<String>();
+        for (NewsArticle newsArticle : results) {
+            links.add(newsArticle.getArticleLink());
+        }
+        return links;
+    }
+}
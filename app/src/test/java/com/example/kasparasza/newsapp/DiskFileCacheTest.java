@@ -0,0 +1,83 @@
+package com.example.kasparasza.newsapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of DiskFileCache: contains() answered from the names held in memory, before and after the directory
+ * has been listed, and after the least recently used files were deleted.
+ */
+public class DiskFileCacheTest {
+
+    private static final String LINK_1 = "https://www.theguardian.com/article-1";
+    private static final String LINK_2 = "https://www.theguardian.com/article-2";
+    private static final String LINK_3 = "https://www.theguardian.com/article-3";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writtenEntryIsContained() throws Exception {
+        DiskFileCache cache = new DiskFileCache(folder.getRoot(), 1000);
+        assertFalse(cache.contains(LINK_1));
+
+        cache.put(LINK_1, content(100));
+
+        assertTrue(cache.contains(LINK_1));
+        assertFalse(cache.contains(LINK_2));
+        assertNotNull(cache.get(LINK_1));
+    }
+
+    @Test
+    public void entriesOfPreviousCacheAreIndexed() throws Exception {
+        new DiskFileCache(folder.getRoot(), 1000).put(LINK_1, content(100));
+
+        DiskFileCache cache = new DiskFileCache(folder.getRoot(), 1000);
+        // before the directory is listed, the file itself is checked
+        assertTrue(cache.contains(LINK_1));
+        cache.loadIndex();
+        assertTrue(cache.contains(LINK_1));
+        assertFalse(cache.contains(LINK_2));
+    }
+
+    @Test
+    public void trimmedEntryIsNotContained() throws Exception {
+        DiskFileCache cache = new DiskFileCache(folder.getRoot(), 250);
+        cache.loadIndex();
+        cache.put(LINK_1, content(100));
+        cache.put(LINK_2, content(100));
+        // the first entry is the least recently used one
+        cache.get(LINK_1).setLastModified(System.currentTimeMillis() - 60000);
+        cache.get(LINK_2);
+
+        cache.put(LINK_3, content(100));
+
+        assertFalse(cache.contains(LINK_1));
+        assertTrue(cache.contains(LINK_2));
+        assertTrue(cache.contains(LINK_3));
+        assertTrue(cache.getSizeBytes() <= 250);
+    }
+
+    @Test
+    public void fileDeletedBySystemIsForgottenWhenRead() throws Exception {
+        DiskFileCache cache = new DiskFileCache(folder.getRoot(), 1000);
+        cache.loadIndex();
+        cache.put(LINK_1, content(100));
+        File[] files = folder.getRoot().listFiles();
+        assertEquals(1, files.length);
+        assertTrue(files[0].delete());
+
+        assertNull(cache.get(LINK_1));
+        assertFalse(cache.contains(LINK_1));
+    }
+
+    private static ByteArrayInputStream content(int length) {
+        return new ByteArrayInputStream(new byte[length]);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.kasparasza.newsapp;
+
+import com.google.gson.Gson;
+
+import org.junit.Test;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Size and time of NewsArticleCodec compared with JSON (Gson) on the JVM, for a page, for the window of pages
+ * held by WindowedArticleList and for a long list (2,000 articles). The comparison with Parcel runs on the device
+ * (see NewsArticleCodecParcelBenchmark of the instrumentation tests). The results are printed; the test fails
+ * if the codec is not smaller than JSON.
+ */
+public class NewsArticleCodecBenchmark {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int WARM_UP_RUNS = 200;
+    private static final int TIMED_RUNS = 200;
+
+    private final Gson gson = new Gson();
+
+    @Test
+    public void page() throws Exception {
+        compare(TestArticles.createArticles(NewsQuery.PAGE_SIZE, 23));
+    }
+
+    @Test
+    public void window() throws Exception {
+        compare(TestArticles.createArticles(NewsQuery.PAGE_SIZE * 10, 29));
+    }
+
+    @Test
+    public void longList() throws Exception {
+        compare(TestArticles.createArticles(NewsQuery.PAGE_SIZE * 100, 31));
+    }
+
+    private void compare(List<NewsArticle> newsArticleList) throws Exception {
+        byte[] encoded = NewsArticleCodec.encode(newsArticleList);
+        byte[] json = gson.toJson(newsArticleList.toArray(new NewsArticle[newsArticleList.size()])).getBytes(UTF_8);
+        NewsArticleCodecTest.assertSameArticles(newsArticleList, NewsArticleCodec.decode(encoded));
+        NewsArticleCodecTest.assertSameArticles(newsArticleList,
+                Arrays.asList(gson.fromJson(new String(json, UTF_8), NewsArticle[].class)));
+
+        long[] codecTimes = new long[2];
+        long[] jsonTimes = new long[2];
+        int run;
+        for (run = 0; run < WARM_UP_RUNS + TIMED_RUNS; run++) {
+            boolean timed = run >= WARM_UP_RUNS;
+            long startTime = System.nanoTime();
+            NewsArticleCodec.encode(newsArticleList);
+            long encodedTime = System.nanoTime();
+            NewsArticleCodec.decode(encoded);
+            long decodedTime = System.nanoTime();
+            gson.toJson(newsArticleList.toArray(new NewsArticle[newsArticleList.size()])).getBytes(UTF_8);
+            long jsonEncodedTime = System.nanoTime();
+            gson.fromJson(new String(json, UTF_8), NewsArticle[].class);
+            long jsonDecodedTime = System.nanoTime();
+            if (timed) {
+                codecTimes[0] += encodedTime - startTime;
+                codecTimes[1] += decodedTime - encodedTime;
+                jsonTimes[0] += jsonEncodedTime - decodedTime;
+                jsonTimes[1] += jsonDecodedTime - jsonEncodedTime;
+            }
+        }
+        System.out.println(String.format("%d articles: codec %d bytes, encode %.1f us, decode %.1f us; "
+                        + "JSON %d bytes, encode %.1f us, decode %.1f us",
+                newsArticleList.size(), encoded.length, codecTimes[0] / 1e3 / TIMED_RUNS, codecTimes[1] / 1e3 / TIMED_RUNS,
+                json.length, jsonTimes[0] / 1e3 / TIMED_RUNS, jsonTimes[1] / 1e3 / TIMED_RUNS));
+        assertTrue(encoded.length < json.length);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.kasparasza.newsapp;
+
+import com.example.kasparasza.newsapp.core.TimestampCodec;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of NewsArticleCodec: round trips of the fields, and corrupt data (which has to be rejected
+ * with an IOException, without any other exception or a huge allocation).
+ */
+public class NewsArticleCodecTest {
+
+    @Test
+    public void roundTripKeepsAllFields() throws Exception {
+        List<NewsArticle> newsArticleList = TestArticles.createArticles(50, 3);
+        // an article published later than the previous one (negative difference of the times)
+        newsArticleList.add(TestArticles.createArticle("Later article", "Text", 0, "later"));
+
+        assertSameArticles(newsArticleList, NewsArticleCodec.decode(NewsArticleCodec.encode(newsArticleList)));
+    }
+
+    @Test
+    public void roundTripKeepsNullsUnknownTimesAndUnicode() throws Exception {
+        List<NewsArticle> newsArticleList = new ArrayList<NewsArticle>();
+        newsArticleList.add(new NewsArticle(null, null, null, TimestampCodec.UNKNOWN_TIME, null, null, null, null));
+        newsArticleList.add(new NewsArticle("\u017dinios \u2013 \u201eKaunas\u201c \ud83d\ude42", "by J\u016brat\u0117", "", 0L, "", "", "https://a", "Pasaulis"));
+        newsArticleList.add(new NewsArticle("", "by J\u016brat\u0117", "", Long.MAX_VALUE, "", "", "https://b", "Pasaulis"));
+
+        assertSameArticles(newsArticleList, NewsArticleCodec.decode(NewsArticleCodec.encode(newsArticleList)));
+    }
+
+    @Test
+    public void emptyListRoundTrip() throws Exception {
+        assertTrue(NewsArticleCodec.decode(NewsArticleCodec.encode(new ArrayList<NewsArticle>())).isEmpty());
+    }
+
+    @Test
+    public void repeatedValuesAreSharedAfterDecoding() throws Exception {
+        List<NewsArticle> decoded = NewsArticleCodec.decode(NewsArticleCodec.encode(TestArticles.createArticles(20, 5)));
+
+        assertSame(decoded.get(0).getSection(), decoded.get(TestArticles.SECTIONS.length).getSection());
+        assertSame(decoded.get(0).getAuthor(), decoded.get(TestArticles.BYLINES.length).getAuthor());
+    }
+
+    @Test
+    public void everyTruncationIsRejected() throws Exception {
+        byte[] bytes = NewsArticleCodec.encode(TestArticles.createArticles(5, 11));
+        int length;
+        for (length = 0; length < bytes.length; length++) {
+            assertRejected(Arrays.copyOf(bytes, length));
+        }
+    }
+
+    @Test
+    public void hugeCountIsRejected() {
+        // version 1, then a count of 2^31 - 1 articles and nothing else
+        assertRejected(new byte[]{1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+        // a count that does not fit in an int, and a negative one (ten-byte varint)
+        assertRejected(new byte[]{1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01});
+        assertRejected(new byte[]{1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01});
+        // more articles than the bytes can hold
+        assertRejected(new byte[]{1, 2, 0, 0, 0, 0, 0, 0, 0, 0});
+    }
+
+    @Test
+    public void invalidStringsAreRejected() {
+        // a string longer than the data, a negative length, and a reference to a value that has not been interned
+        assertRejected(new byte[]{1, 1, 1, 100, 'a'});
+        assertRejected(new byte[]{1, 1, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01, 0, 0, 0, 0, 0, 0, 0});
+        assertRejected(new byte[]{1, 1, 0, 5, 0, 0, 0, 0, 0, 0});
+    }
+
+    @Test
+    public void unknownVersionIsRejected() throws Exception {
+        byte[] bytes = NewsArticleCodec.encode(TestArticles.createArticles(2, 13));
+        bytes[0] = 2;
+        assertRejected(bytes);
+    }
+
+    @Test
+    public void corruptBytesDoNotThrowOtherExceptions() throws Exception {
+        byte[] bytes = NewsArticleCodec.encode(TestArticles.createArticles(20, 17));
+        Random random = new Random(19);
+        int run;
+        for (run = 0; run < 2000; run++) {
+            byte[] corrupt = bytes.clone();
+            int flips = 1 + random.nextInt(4);
+            int flip;
+            for (flip = 0; flip < flips; flip++) {
+                corrupt[random.nextInt(corrupt.length)] = (byte) random.nextInt(256);
+            }
+            try {
+                NewsArticleCodec.decode(corrupt);
+            } catch (IOException exc_01) {
+                // rejected - as expected for most of the corrupt data
+            }
+        }
+    }
+
+    private static void assertRejected(byte[] bytes) {
+        try {
+            NewsArticleCodec.decode(bytes);
+            fail("corrupt data has been decoded: " + Arrays.toString(bytes));
+        } catch (IOException exc_01) {
+            // expected
+        }
+    }
+
+    static void assertSameArticles(List<NewsArticle> expected, List<NewsArticle> actual) {
+        assertEquals(expected.size(), actual.size());
+        int index;
+        for (index = 0; index < expected.size(); index++) {
+            NewsArticle expectedArticle = expected.get(index);
+            NewsArticle actualArticle = actual.get(index);
+            assertEquals(expectedArticle.getHeadline(), actualArticle.getHeadline());
+            assertEquals(expectedArticle.getAuthor(), actualArticle.getAuthor());
+            assertEquals(expectedArticle.getTimePublished(), actualArticle.getTimePublished());
+            assertEquals(expectedArticle.getTimePublishedMillis(), actualArticle.getTimePublishedMillis());
+            assertEquals(expectedArticle.getStartText(), actualArticle.getStartText());
+            assertEquals(expectedArticle.getImageLink(), actualArticle.getImageLink());
+            assertEquals(expectedArticle.getArticleLink(), actualArticle.getArticleLink());
+            assertEquals(expectedArticle.getSection(), actualArticle.getSection());
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.example.kasparasza.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of PageFetchScheduler and PagePrefetcher: the order of the delivery, the cancellation
+ * of the pages scrolled past, and the pages that fail or come back empty while they are prefetched.
+ * The queries run on the threads of the scheduler; the results are run by the test in place of the UI thread.
+ */
+public class PageFetchSchedulerTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    // results of the queries by page number (a missing page fails)
+    private Map<Integer, List<NewsArticle>> pages = Collections.synchronizedMap(new HashMap<Integer, List<NewsArticle>>());
+    // queries that block until their latch is opened
+    private Map<Integer, CountDownLatch> blockedPages = Collections.synchronizedMap(new HashMap<Integer, CountDownLatch>());
+    // latches opened when the queries of the pages start
+    private Map<Integer, CountDownLatch> startedPages = Collections.synchronizedMap(new HashMap<Integer, CountDownLatch>());
+    private MainThread mainThread = new MainThread();
+    private List<String> events = new ArrayList<String>();
+    private PageFetchScheduler scheduler;
+
+    private PageFetchScheduler.PageLoader pageLoader = new PageFetchScheduler.PageLoader() {
+        @Override
+        public List<NewsArticle> loadPage(NewsQuery query) {
+            CountDownLatch started = startedPages.get(query.getPage());
+            if (started != null) {
+                started.countDown();
+            }
+            CountDownLatch latch = blockedPages.get(query.getPage());
+            if (latch != null) {
+                try {
+                    latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException exc_01) {
+                    return null;
+                }
+            }
+            return pages.get(query.getPage());
+        }
+    };
+
+    @Before
+    public void setUp() {
+        scheduler = new PageFetchScheduler(2, pageLoader, mainThread, new PageFetchScheduler.Listener() {
+            @Override
+            public void onPageFetched(NewsQuery query, List<NewsArticle> newsArticleList, long latencyMillis) {
+                events.add(query.getPage() + (newsArticleList == null ? ":failed" : ":" + newsArticleList.size()));
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.release();
+    }
+
+    @Test
+    public void pagesAreDeliveredInPageOrder() throws Exception {
+        pages.put(1, TestArticles.createPage(1, 3));
+        pages.put(2, TestArticles.createPage(2, 3));
+        CountDownLatch firstPage = new CountDownLatch(1);
+        blockedPages.put(1, firstPage);
+
+        assertTrue(scheduler.request(query(1)));
+        assertTrue(scheduler.request(query(2)));
+        // the second page finishes first, but waits for the first one
+        mainThread.runTasks(1);
+        assertTrue(events.isEmpty());
+        assertTrue(scheduler.isPending(2));
+
+        firstPage.countDown();
+        mainThread.runTasks(1);
+        assertEquals(listOf("1:3", "2:3"), events);
+    }
+
+    @Test
+    public void duplicateRequestIsDropped() throws Exception {
+        pages.put(1, TestArticles.createPage(1, 3));
+        CountDownLatch firstPage = new CountDownLatch(1);
+        blockedPages.put(1, firstPage);
+
+        assertTrue(scheduler.request(query(1)));
+        assertTrue(scheduler.request(query(1)));
+        firstPage.countDown();
+        mainThread.runTasks(1);
+        mainThread.assertNoTasks();
+        assertEquals(listOf("1:3"), events);
+    }
+
+    @Test
+    public void cancelledPagesAreNotDelivered() throws Exception {
+        pages.put(1, TestArticles.createPage(1, 3));
+        pages.put(2, TestArticles.createPage(2, 3));
+        CountDownLatch firstPage = new CountDownLatch(1);
+        blockedPages.put(1, firstPage);
+
+        scheduler.request(query(1));
+        scheduler.request(query(2));
+        mainThread.runTasks(1);
+        // the list has got the first page in another way: the second one is delivered at once
+        scheduler.cancelPagesBefore(2);
+        assertEquals(listOf("2:3"), events);
+        assertFalse(scheduler.isPending(1));
+
+        firstPage.countDown();
+        mainThread.runTasksUntilIdle();
+        assertEquals(listOf("2:3"), events);
+    }
+
+    @Test
+    public void resultOfCancelledRequestIsNotTakenForPageRequestedAgain() throws Exception {
+        pages.put(2, TestArticles.createPage(2, 3));
+        CountDownLatch firstPage = new CountDownLatch(1);
+        blockedPages.put(1, firstPage);
+        CountDownLatch firstPageStarted = new CountDownLatch(1);
+        startedPages.put(1, firstPageStarted);
+
+        scheduler.request(query(1));
+        assertTrue(firstPageStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        scheduler.cancelPagesBefore(2);
+        // the cancelled query is interrupted: it fails, and its result is posted to the UI thread
+        mainThread.awaitTasks(1);
+        blockedPages.remove(1);
+        pages.put(1, TestArticles.createPage(1, 3));
+        assertTrue(scheduler.request(query(1)));
+
+        // the failure of the cancelled query is dropped, the result of the new one is delivered
+        mainThread.runTasksUntilIdle();
+        assertEquals(listOf("1:3"), events);
+        assertFalse(scheduler.isPending(1));
+    }
+
+    @Test
+    public void failedPageCanBeRequestedAgain() throws Exception {
+        scheduler.request(query(1));
+        mainThread.runTasks(1);
+        assertEquals(listOf("1:failed"), events);
+
+        pages.put(1, TestArticles.createPage(1, 3));
+        assertTrue(scheduler.request(query(1)));
+        mainThread.runTasks(1);
+        assertEquals(listOf("1:failed", "1:3"), events);
+    }
+
+    @Test
+    public void resetDiscardsRunningQueries() throws Exception {
+        pages.put(1, TestArticles.createPage(1, 3));
+        CountDownLatch firstPage = new CountDownLatch(1);
+        blockedPages.put(1, firstPage);
+
+        scheduler.request(query(1));
+        scheduler.reset();
+        firstPage.countDown();
+        mainThread.runTasksUntilIdle();
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void releasedSchedulerRefusesRequests() {
+        scheduler.release();
+        assertFalse(scheduler.request(query(1)));
+    }
+
+    @Test
+    public void prefetchedPageThatFailedIsReportedWhenTaken() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        PagePrefetcher prefetcher = new PagePrefetcher(listener, pageLoader, mainThread);
+
+        // the second page fails while nobody is waiting for it
+        prefetcher.onPageDelivered(query(1));
+        mainThread.runTasks(1);
+        assertTrue(listener.events.isEmpty());
+
+        // the list asks for it: the failure is reported at once (the page is shown as a gap and retried)
+        assertNull(prefetcher.takePage(query(2)));
+        assertEquals(listOf("failed 2"), listener.events);
+        mainThread.assertNoTasks();
+        prefetcher.release();
+    }
+
+    @Test
+    public void failedPageIsNotPrefetchedAgain() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        PagePrefetcher prefetcher = new PagePrefetcher(listener, pageLoader, mainThread);
+
+        prefetcher.onPageDelivered(query(1));
+        mainThread.runTasks(1);
+        prefetcher.onPageDelivered(query(1));
+        mainThread.assertNoTasks();
+        prefetcher.release();
+    }
+
+    @Test
+    public void awaitedPageThatFailedIsReported() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        PagePrefetcher prefetcher = new PagePrefetcher(listener, pageLoader, mainThread);
+
+        assertNull(prefetcher.takePage(query(2)));
+        mainThread.runTasks(1);
+        assertEquals(listOf("failed 2"), listener.events);
+        prefetcher.release();
+    }
+
+    @Test
+    public void prefetchedEmptyPageIsHandedOver() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        PagePrefetcher prefetcher = new PagePrefetcher(listener, pageLoader, mainThread);
+        pages.put(2, new ArrayList<NewsArticle>());
+
+        prefetcher.onPageDelivered(query(1));
+        mainThread.runTasks(1);
+
+        List<NewsArticle> page = prefetcher.takePage(query(2));
+        assertNotNull(page);
+        assertTrue(page.isEmpty());
+        mainThread.assertNoTasks();
+        prefetcher.release();
+    }
+
+    @Test
+    public void releasedPrefetcherReportsTakenPageAsFailed() {
+        RecordingListener listener = new RecordingListener();
+        PagePrefetcher prefetcher = new PagePrefetcher(listener, pageLoader, mainThread);
+        prefetcher.release();
+
+        assertNull(prefetcher.takePage(query(2)));
+        assertEquals(listOf("failed 2"), listener.events);
+    }
+
+    // query of the given page of a fixed profile
+    static NewsQuery query(int page) {
+        return new NewsQuery("today", NewsQuery.ORDER_BY_NEWEST, "uk", page);
+    }
+
+    private static List<String> listOf(String... values) {
+        List<String> list = new ArrayList<String>();
+        Collections.addAll(list, values);
+        return list;
+    }
+
+    // records the calls of PagePrefetcher.Listener
+    private static class RecordingListener implements PagePrefetcher.Listener {
+        private List<String> events = new ArrayList<String>();
+
+        @Override
+        public void onPrefetchedPageReady(NewsQuery query, List<NewsArticle> newsArticleList) {
+            events.add("ready " + query.getPage() + ":" + newsArticleList.size());
+        }
+
+        @Override
+        public void onPrefetchedPageFailed(NewsQuery query) {
+            events.add("failed " + query.getPage());
+        }
+    }
+
+    // the UI thread of the test: the tasks posted to it are run by the test itself
+    private static class MainThread implements Executor {
+        private LinkedBlockingQueue<Runnable> tasks = new LinkedBlockingQueue<Runnable>();
+
+        @Override
+        public void execute(Runnable runnable) {
+            tasks.add(runnable);
+        }
+
+        // waits for the given number of tasks and runs them
+        void runTasks(int count) throws InterruptedException {
+            int index;
+            for (index = 0; index < count; index++) {
+                Runnable task = tasks.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                assertNotNull("a query has not finished", task);
+                task.run();
+            }
+        }
+
+        // runs the tasks posted until none is posted for a while
+        void runTasksUntilIdle() throws InterruptedException {
+            Runnable task;
+            while ((task = tasks.poll(200, TimeUnit.MILLISECONDS)) != null) {
+                task.run();
+            }
+        }
+
+        // waits until the given number of tasks has been posted (they are not run)
+        void awaitTasks(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+            while (tasks.size() < count) {
+                assertTrue("a query has not finished", System.currentTimeMillis() < deadline);
+                Thread.sleep(10);
+            }
+        }
+
+        void assertNoTasks() throws InterruptedException {
+            assertNull(tasks.poll(200, TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.kasparasza.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of ResponseFreshnessPolicy: the default freshness periods of the query shapes, and the overrides
+ * (the tests override only the exact shapes of their own production offices, as the policy is shared
+ * by the whole process).
+ */
+public class ResponseFreshnessPolicyTest {
+
+    private static final long MINUTE_MILLIS = 60 * 1000;
+
+    @Test
+    public void defaultsDependOnShapeOfQuery() {
+        assertEquals(2 * MINUTE_MILLIS, ResponseFreshnessPolicy.getTtlMillis("today", "newest", "uk"));
+        assertEquals(10 * MINUTE_MILLIS, ResponseFreshnessPolicy.getTtlMillis("last week", "newest", "uk"));
+        // the oldest-first order wins over the "today" window
+        assertEquals(6 * 60 * MINUTE_MILLIS, ResponseFreshnessPolicy.getTtlMillis("today", "oldest", "uk"));
+        assertEquals(6 * 60 * MINUTE_MILLIS, ResponseFreshnessPolicy.getTtlMillis("last week", "oldest", "us"));
+    }
+
+    @Test
+    public void overrideOfShapeWins() {
+        ResponseFreshnessPolicy.setTtlMillis("today", "newest", "test-office-1", 1000);
+
+        assertEquals(1000, ResponseFreshnessPolicy.getTtlMillis("today", "newest", "test-office-1"));
+        // the other shapes keep their defaults
+        assertEquals(2 * MINUTE_MILLIS, ResponseFreshnessPolicy.getTtlMillis("today", "newest", "test-office-2"));
+        assertEquals(6 * 60 * MINUTE_MILLIS, ResponseFreshnessPolicy.getTtlMillis("today", "oldest", "test-office-1"));
+    }
+
+    @Test
+    public void zeroMeansAlwaysRevalidate() {
+        ResponseFreshnessPolicy.setTtlMillis("last 30 days", "newest", "test-office-3", 0);
+        assertEquals(0, ResponseFreshnessPolicy.getTtlMillis("last 30 days", "newest", "test-office-3"));
+    }
+
+    @Test
+    public void overrideIsParsedFromConfiguredEntry() {
+        assertTrue(ResponseFreshnessPolicy.applyOverride("last week|oldest|test-office-4=90"));
+
+        assertEquals(90 * 1000, ResponseFreshnessPolicy.getTtlMillis("last week", "oldest", "test-office-4"));
+        assertEquals(6 * 60 * MINUTE_MILLIS, ResponseFreshnessPolicy.getTtlMillis("last week", "oldest", "test-office-5"));
+    }
+
+    @Test
+    public void malformedEntriesAreRejected() {
+        assertFalse(ResponseFreshnessPolicy.applyOverride("today|newest|test-office-6"));
+        assertFalse(ResponseFreshnessPolicy.applyOverride("today|newest=60"));
+        assertFalse(ResponseFreshnessPolicy.applyOverride("today|newest|test-office-6=soon"));
+        assertFalse(ResponseFreshnessPolicy.applyOverride("today|newest|test-office-6=-1"));
+        assertEquals(2 * MINUTE_MILLIS, ResponseFreshnessPolicy.getTtlMillis("today", "newest", "test-office-6"));
+    }
+}
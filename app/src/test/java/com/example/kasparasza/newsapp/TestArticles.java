@@ -0,0 +1,84 @@
+package com.example.kasparasza.newsapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic NewsArticle objects shared by the unit tests of the app
+ */
+final class TestArticles {
+
+    // publishing time of the first article (2017-07-17T23:01:03Z); the following ones are one minute apart
+    static final long NEWEST_PUBLISHED_MILLIS = 1500332463000L;
+    static final String[] SECTIONS = {"World news", "UK news", "Politics", "Sport", "Opinion", "Business"};
+    static final String[] BYLINES = {"by Guardian staff", "by Agencies", "by Jane Smith", "by John Doe"};
+    // vocabulary of the headlines and of the trail texts
+    private static final String[] WORDS = {"election", "minister", "climate", "football", "market", "police",
+            "government", "europe", "brexit", "health", "energy", "school", "storm", "trade", "court", "budget",
+            "league", "music", "science", "space", "water", "housing", "election", "report", "crisis", "talks",
+            "protest", "record", "summer", "vote", "bank", "city", "coach", "final", "film", "museum"};
+
+    /**
+     * Create a private constructor because no one should ever create a {@link TestArticles} object.
+     */
+    private TestArticles() {
+    }
+
+    /**
+     * @param page "page" parameter, part of the links of the articles
+     * @param size number of articles
+     * @return a page of articles with distinct links
+     */
+    static List<NewsArticle> createPage(int page, int size) {
+        List<NewsArticle> newsArticleList = new ArrayList<NewsArticle>();
+        int index;
+        for (index = 0; index < size; index++) {
+            newsArticleList.add(createArticle("Headline " + page + "." + index, "Text", page * 1000 + index,
+                    "https://www.theguardian.com/p/" + page + "/" + index));
+        }
+        return newsArticleList;
+    }
+
+    /**
+     * @param count number of articles
+     * @param seed seed of the random words of the headlines and trail texts
+     * @return articles with distinct links, the newest first
+     */
+    static List<NewsArticle> createArticles(int count, long seed) {
+        Random random = new Random(seed);
+        List<NewsArticle> newsArticleList = new ArrayList<NewsArticle>(count);
+        int index;
+        for (index = 0; index < count; index++) {
+            newsArticleList.add(createArticle(randomWords(random, 8) + " " + index,
+                    "<strong>" + randomWords(random, 4) + "</strong> " + randomWords(random, 16) + " &amp; more",
+                    index, "https://www.theguardian.com/world/2017/jul/17/article-" + index));
+        }
+        return newsArticleList;
+    }
+
+    /**
+     * @param headline headline of the article
+     * @param startText trail text of the article (HTML)
+     * @param index index of the article: its publishing time, section and byline
+     * @param articleLink link of the article
+     * @return NewsArticle
+     */
+    static NewsArticle createArticle(String headline, String startText, int index, String articleLink) {
+        return NewsArticle.FACTORY.create(headline, BYLINES[index % BYLINES.length], "Jul 17, 23:01",
+                NEWEST_PUBLISHED_MILLIS - index * 60000L, startText, "https://media.guim.co.uk/" + index + "/500.jpg",
+                articleLink, SECTIONS[index % SECTIONS.length]);
+    }
+
+    private static String randomWords(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+        int index;
+        for (index = 0; index < count; index++) {
+            if (index > 0) {
+                words.append(' ');
+            }
+            words.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return words.toString();
+    }
+}
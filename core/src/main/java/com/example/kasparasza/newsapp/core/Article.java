@@ -0,0 +1,73 @@
+package com.example.kasparasza.newsapp.core;
+
+/**
+ * Fields of a single article of the Guardian API, as they are parsed from a page of the "search" endpoint.
+ * The class has no Android dependencies, so that fetching, parsing and merging of the pages can run on a plain JVM;
+ * the app extends it (NewsArticle) with what it needs on the device, e.g. parceling.
+ */
+
+public class Article {
+
+    // declaration of String constants used by the class (default values of the fields missing from a response)
+    public static final String NO_HEADLINE_STRING = "no headline";
+    public static final String NO_AUTHOR_STRING = "author not given";
+    public static final String NO_SECTION_STRING = "general";
+
+    // private members of the class
+    private String headline;
+    private String author;
+    private String timePublished;
+    // publishing time in epoch milliseconds (TimestampCodec.UNKNOWN_TIME if it was not given),
+    // so that sorting and relative-time display do not have to parse timePublished again
+    private long timePublishedMillis;
+    private String startText;
+    private String imageLink;
+    private String articleLink;
+    private String section;
+
+    // constructor of the class
+    public Article(String mHeadline, String mAuthor, String mTimePublished, long mTimePublishedMillis,
+                   String mStartText, String mImageLink, String mArticleLink, String mSection) {
+        headline = mHeadline;
+        author = mAuthor;
+        timePublished = mTimePublished;
+        timePublishedMillis = mTimePublishedMillis;
+        startText = mStartText;
+        imageLink = mImageLink;
+        articleLink = mArticleLink;
+        section = mSection;
+    }
+
+    // implementation of getter methods
+    public String getHeadline() {
+        return headline;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public String getTimePublished() {
+        return timePublished;
+    }
+
+    public long getTimePublishedMillis() {
+        return timePublishedMillis;
+    }
+
+    public String getStartText() {
+        return startText;
+    }
+
+    public String getImageLink() {
+        return imageLink;
+    }
+
+    public String getArticleLink() {
+        return articleLink;
+    }
+
+    public String getSection() {
+        return section;
+    }
+}
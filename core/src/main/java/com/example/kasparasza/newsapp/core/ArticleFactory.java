@@ -0,0 +1,13 @@
+package com.example.kasparasza.newsapp.core;
+
+/**
+ * Interface that is used by a ResponseDecoder to create the objects of the parsed articles,
+ * so that the decoder produces the article class of its caller (e.g. NewsArticle of the app) without a copy
+ * @param <T> class of the created articles
+ */
+
+public interface ArticleFactory<T extends Article> {
+
+    T create(String headline, String author, String timePublished, long timePublishedMillis,
+             String startText, String imageLink, String articleLink, String section);
+}
@@ -0,0 +1,100 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Hash index of the articles shown in the list, by their articleLink; it stands between the pages delivered to the
+ * list (e.g. by the Loader / PagePrefetcher of the app) and its adapter.
+ * The result set of the API shifts while the user scrolls (e.g. with "order-by=newest" each newly published
+ * article pushes the others down by one place), so a page may bring articles that are already shown on the
+ * pages before it. Such articles are dropped from the page, and their shown copy is reconciled with the fields
+ * received (the later copy is the newer one). Each article is looked up in O(1).
+ * The methods are meant to be called on the UI thread.
+ * @param <T> class of the articles
+ */
+
+public class ArticleMergeIndex<T extends Article> {
+
+    /**
+     * Interface that is used to reconcile the shown copy of an article with a copy received on another page
+     */
+    public interface Reconciler<T extends Article> {
+        void onDuplicate(int page, int offset, T article);
+    }
+
+    // members of the class:
+    // location of each shown article by its articleLink
+    private HashMap<String, Location> locations = new HashMap<String, Location>();
+    // articleLinks of each page, so that a page can be removed from the index without a scan of the whole index
+    private HashMap<Integer, List<String>> linksByPage = new HashMap<Integer, List<String>>();
+
+    /**
+     * Merges a delivered page into the index: the articles that are shown on other pages are passed to the
+     * Reconciler and dropped; if the page is in the index already (e.g. it is a refresh), it is replaced
+     * @param page "page" parameter of the page
+     * @param articleList articles of the page, in the order of the query
+     * @param reconciler informed about the articles that are shown on other pages
+     * @return List<T> the articles of the page that are to be shown
+     */
+    public List<T> mergePage(int page, List<T> articleList, Reconciler<T> reconciler) {
+        removePage(page);
+        List<T> pageItems = new ArrayList<T>(articleList.size());
+        List<String> pageLinks = new ArrayList<String>(articleList.size());
+        for (T article : articleList) {
+            String articleLink = article.getArticleLink();
+            Location location = locations.get(articleLink);
+            if (location != null) {
+                // shown on another page (or twice on this one) - the shown copy is kept in its place
+                if (location.page != page) {
+                    reconciler.onDuplicate(location.page, location.offset, article);
+                }
+                continue;
+            }
+            locations.put(articleLink, new Location(page, pageItems.size()));
+            pageLinks.add(articleLink);
+            pageItems.add(article);
+        }
+        linksByPage.put(page, pageLinks);
+        return pageItems;
+    }
+
+    /**
+     * @param articleLink link of an article
+     * @return true if the article is shown in the list
+     */
+    public boolean contains(String articleLink) {
+        return locations.containsKey(articleLink);
+    }
+
+    /**
+     * Removes all the pages from the index
+     */
+    public void clear() {
+        locations.clear();
+        linksByPage.clear();
+    }
+
+    // removes the articles of a page from the index
+    private void removePage(int page) {
+        List<String> pageLinks = linksByPage.remove(page);
+        if (pageLinks == null) {
+            return;
+        }
+        for (String articleLink : pageLinks) {
+            locations.remove(articleLink);
+        }
+    }
+
+    // location of an article in the list: its page, and its offset within the page
+    private static class Location {
+        private int page;
+        private int offset;
+
+        private Location(int mPage, int mOffset) {
+            page = mPage;
+            offset = mOffset;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.kasparasza.newsapp.core;
+
+/**
+ * A class that holds the validators of an http response (ETag and Last-Modified headers)
+ * together with the time the response was last received or revalidated.
+ * The validators are kept in the NewsArticleStore next to the stored page, and are used to
+ * make a conditional request for the page, or to skip the request entirely while the page is fresh.
+ */
+
+public class CachedResponse {
+
+    // private members of the class
+    private String url;
+    private String eTag;
+    private String lastModified;
+    private long fetchedAtMillis;
+
+    // constructor of the class
+    public CachedResponse(String mUrl, String mETag, String mLastModified, long mFetchedAtMillis) {
+        url = mUrl;
+        eTag = mETag;
+        lastModified = mLastModified;
+        fetchedAtMillis = mFetchedAtMillis;
+    }
+
+    // implementation of getter methods
+    public String getUrl() {
+        return url;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public long getFetchedAtMillis() {
+        return fetchedAtMillis;
+    }
+
+    /**
+     * @return true if the response carries at least one validator, i.e. a conditional request can be made
+     */
+    public boolean hasValidators() {
+        return eTag != null || lastModified != null;
+    }
+
+    /**
+     * Checks whether the response may be used instead of a new http query
+     * @param mUrl URL query that is about to be performed (the response is only valid for the very same query)
+     * @param ttlMillis freshness period of the query (see ResponseFreshnessPolicy of the app)
+     * @param nowMillis current time
+     * @return true if the response was received for the same query within the freshness period
+     */
+    public boolean isFresh(String mUrl, long ttlMillis, long nowMillis) {
+        return url.equals(mUrl) && nowMillis >= fetchedAtMillis && nowMillis - fetchedAtMillis < ttlMillis;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * InputStream that counts the bytes that were read through it, and the time spent waiting for them.
+ * Used to compare the bytes that went over the wire with the size of the decoded (gunzipped) response,
+ * and to tell the time of reading a streamed body from the time of decoding it.
+ */
+
+public class CountingInputStream extends FilterInputStream {
+
+    // number of bytes read so far
+    private long byteCount;
+    // time spent in the reads so far, in nanoseconds
+    private long readNanos;
+
+    public CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        long startTime = System.nanoTime();
+        int result = super.read();
+        readNanos += System.nanoTime() - startTime;
+        if (result != -1) {
+            byteCount++;
+        }
+        return result;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        long startTime = System.nanoTime();
+        int result = super.read(buffer, offset, length);
+        readNanos += System.nanoTime() - startTime;
+        if (result != -1) {
+            byteCount += result;
+        }
+        return result;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long result = super.skip(n);
+        byteCount += result;
+        return result;
+    }
+
+    // mark / reset would make the count ambiguous, therefore they are not supported
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * @return number of bytes read so far
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * @return time spent in the reads so far, in nanoseconds
+     */
+    public long getReadNanos() {
+        return readNanos;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Custom class that holds the static methods used to merge the pages of the feed, e.g. the articles
+ * received by an incremental sync with the stored pages.
+ */
+
+public class FeedMerger {
+
+    /**
+     * Create a private constructor because no one should ever create a {@link FeedMerger} object.
+     */
+    private FeedMerger() {
+    }
+
+    /**
+     * Merges the newer articles on top of the stored ones. The articles are de-duplicated by articleLink
+     * (the newest copy is kept); stored articles that were published before "from-date" are dropped.
+     * @param newerList articles published after the newest stored article, the newest first
+     * @param storedList the stored articles, in the order of their pages
+     * @param fromDateMillis the earliest publishing time of the articles, or TimestampCodec.UNKNOWN_TIME
+     * @param <T> class of the articles
+     * @return List<T> the merged articles
+     */
+    public static <T extends Article> List<T> mergeNewer(List<T> newerList, List<T> storedList, long fromDateMillis) {
+        LinkedHashMap<String, T> mergedArticles = new LinkedHashMap<String, T>();
+        for (T article : newerList) {
+            if (!mergedArticles.containsKey(article.getArticleLink())) {
+                mergedArticles.put(article.getArticleLink(), article);
+            }
+        }
+        for (T article : storedList) {
+            if (isInWindow(article, fromDateMillis) && !mergedArticles.containsKey(article.getArticleLink())) {
+                mergedArticles.put(article.getArticleLink(), article);
+            }
+        }
+        return new ArrayList<T>(mergedArticles.values());
+    }
+
+    /**
+     * @param article an article
+     * @param fromDateMillis the earliest publishing time of the articles, or TimestampCodec.UNKNOWN_TIME
+     * @return true if the article was not published before "from-date" (or if either time is not known)
+     */
+    public static boolean isInWindow(Article article, long fromDateMillis) {
+        return article.getTimePublishedMillis() == TimestampCodec.UNKNOWN_TIME
+                || fromDateMillis == TimestampCodec.UNKNOWN_TIME
+                || article.getTimePublishedMillis() >= fromDateMillis;
+    }
+
+    /**
+     * @param itemCount number of the articles
+     * @param pageSize number of the articles in a page
+     * @return number of the pages of a list of the given size (at least one)
+     */
+    public static int countPages(int itemCount, int pageSize) {
+        return Math.max(1, (itemCount + pageSize - 1) / pageSize);
+    }
+
+    // sorts the articles by their publishing time, the newest first (articles with an unknown time go last)
+    public static final Comparator<Article> NEWEST_FIRST = new Comparator<Article>() {
+        @Override
+        public int compare(Article article1, Article article2) {
+            long time1 = article1.getTimePublishedMillis();
+            long time2 = article2.getTimePublishedMillis();
+            return time1 > time2 ? -1 : (time1 == time2 ? 0 : 1);
+        }
+    };
+}
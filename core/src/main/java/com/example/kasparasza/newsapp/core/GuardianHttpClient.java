@@ -0,0 +1,284 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reusable http client of the Guardian API.
+ * Connections are kept alive between the queries: instead of HttpURLConnection.disconnect() (which tears
+ * down the socket), the response body is read to its end and closed, so that the socket is returned to the
+ * connection pool and reused by the next page query. Responses are requested with gzip transfer encoding and
+ * decoded as a stream; the client records how many bytes went over the wire and how many were decoded.
+ * The client only uses the JDK (HttpURLConnection), so it runs both on the device and on a plain JVM.
+ * The stages of a page query (connection, time to the first byte, reading and decoding of the body) are timed
+ * into MetricsRegistry, together with the bytes and the articles received; the same stages of a query of article
+ * bodies are timed into histograms of their own. The DNS lookup is part of the connection stage: it is only done
+ * when a new connection is opened (a pooled connection takes next to no time to connect).
+ */
+
+public class GuardianHttpClient implements PageClient {
+
+    // String constants used:
+    private static final Logger LOGGER = Logger.getLogger(GuardianHttpClient.class.getSimpleName());
+    private static final String ENCODING_GZIP = "gzip";
+    // number of idle connections kept in the pool (per host)
+    private static final String MAX_IDLE_CONNECTIONS = "5";
+
+    // the single instance of the client, shared by all the components of the app
+    private static GuardianHttpClient instance;
+
+    // bytes received over the wire and bytes of the decoded responses, since the client was created
+    private final AtomicLong wireBytes = new AtomicLong();
+    private final AtomicLong decodedBytes = new AtomicLong();
+
+    // metrics of the page queries (see MetricsRegistry)
+    private final LatencyHistogram connectTime;
+    private final LatencyHistogram firstByteTime;
+    private final LatencyHistogram bodyReadTime;
+    private final LatencyHistogram decodeTime;
+    private final LatencyHistogram bodiesConnectTime;
+    private final LatencyHistogram bodiesFirstByteTime;
+    private final LatencyHistogram bodiesReadTime;
+    private final LatencyHistogram bodiesDecodeTime;
+    private final AtomicLong wireBytesCounter;
+    private final AtomicLong decodedBytesCounter;
+    private final AtomicLong articlesCounter;
+    private final AtomicLong failedRequestsCounter;
+
+    /**
+     * Returns the single instance of the client
+     * @return GuardianHttpClient
+     */
+    public static synchronized GuardianHttpClient getInstance() {
+        if (instance == null) {
+            instance = new GuardianHttpClient();
+        }
+        return instance;
+    }
+
+    private GuardianHttpClient() {
+        // HttpURLConnection keeps connections alive by default; the properties are set explicitly,
+        // so that the behaviour does not depend on the defaults of the platform
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", MAX_IDLE_CONNECTIONS);
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        connectTime = metrics.histogram(MetricsRegistry.STAGE_CONNECT);
+        firstByteTime = metrics.histogram(MetricsRegistry.STAGE_FIRST_BYTE);
+        bodyReadTime = metrics.histogram(MetricsRegistry.STAGE_BODY_READ);
+        decodeTime = metrics.histogram(MetricsRegistry.STAGE_DECODE);
+        bodiesConnectTime = metrics.histogram(MetricsRegistry.STAGE_BODIES_CONNECT);
+        bodiesFirstByteTime = metrics.histogram(MetricsRegistry.STAGE_BODIES_FIRST_BYTE);
+        bodiesReadTime = metrics.histogram(MetricsRegistry.STAGE_BODIES_READ);
+        bodiesDecodeTime = metrics.histogram(MetricsRegistry.STAGE_BODIES_DECODE);
+        wireBytesCounter = metrics.counter(MetricsRegistry.COUNT_WIRE_BYTES);
+        decodedBytesCounter = metrics.counter(MetricsRegistry.COUNT_DECODED_BYTES);
+        articlesCounter = metrics.counter(MetricsRegistry.COUNT_ARTICLES);
+        failedRequestsCounter = metrics.counter(MetricsRegistry.COUNT_FAILED_REQUESTS);
+    }
+
+    /**
+     * Creates and executes (conditional) Http connection, obtains InputStream and calls the decoder
+     * that parses it into articles. The response body is never held in memory as a whole -
+     * it is decoded and consumed token by token while being read from the connection.
+     *
+     * @param url URL query
+     * @param cachedResponse validators of the stored copy of the page, may be null
+     * @param decoder decoder of the response
+     * @return PageResponse with a list of articles parsed from the response, or with the error code of the server
+     * (response code 0 if the URL is null)
+     * @throws IOException if the server could not be reached, or the response could not be read
+     */
+    @Override
+    public <T extends Article> PageResponse<T> performPageRequest(URL url, CachedResponse cachedResponse,
+                                                                  ResponseDecoder<T> decoder) throws IOException {
+        PageResponse<T> pageResponse = new PageResponse<T>(0, null, null, null);
+        if (url == null) {
+            return pageResponse;
+        }
+        HttpURLConnection httpURLConnection = null;
+        InputStream inputStream = null;
+        try {
+            // the connection stage includes the DNS lookup and the handshakes of a new connection
+            long stageStart = System.nanoTime();
+            httpURLConnection = (HttpURLConnection) url.openConnection();
+            httpURLConnection.setReadTimeout(10000 /* milliseconds */);
+            httpURLConnection.setConnectTimeout(15000 /* milliseconds */);
+            httpURLConnection.setRequestMethod("GET");
+            // when the header is set explicitly, the response is not decoded transparently - it is done below,
+            // which allows both the compressed and the decoded size of the response to be measured
+            httpURLConnection.setRequestProperty("Accept-Encoding", ENCODING_GZIP);
+            // validators make the request conditional: the server answers with 304 and no body if the page has not changed
+            if (cachedResponse != null) {
+                if (cachedResponse.getETag() != null) {
+                    httpURLConnection.setRequestProperty("If-None-Match", cachedResponse.getETag());
+                }
+                if (cachedResponse.getLastModified() != null) {
+                    httpURLConnection.setRequestProperty("If-Modified-Since", cachedResponse.getLastModified());
+                }
+            }
+            httpURLConnection.connect();
+            connectTime.recordSince(stageStart);
+            stageStart = System.nanoTime();
+            int responseCode = httpURLConnection.getResponseCode();
+            firstByteTime.recordSince(stageStart);
+            // check whether the connection response code is appropriate (in this case == 200)
+            if (responseCode == 200) {
+                CountingInputStream wireStream = new CountingInputStream(httpURLConnection.getInputStream());
+                CountingInputStream decodedStream = ENCODING_GZIP.equalsIgnoreCase(httpURLConnection.getContentEncoding())
+                        ? new CountingInputStream(new GZIPInputStream(wireStream))
+                        : wireStream;
+                inputStream = decodedStream;
+                // the body is decoded while it is read: the time of waiting for the wire is the body read,
+                // the rest is the decoding (gunzip and parsing)
+                stageStart = System.nanoTime();
+                List<T> articleList = decoder.decodePage(decodedStream);
+                long decodeNanos = System.nanoTime() - stageStart - wireStream.getReadNanos();
+                pageResponse = new PageResponse<T>(responseCode, articleList,
+                        httpURLConnection.getHeaderField("ETag"), httpURLConnection.getHeaderField("Last-Modified"));
+                // the rest of the body (if any) is read, so that the connection can be reused
+                drainInputStream(decodedStream);
+                bodyReadTime.record(wireStream.getReadNanos());
+                decodeTime.record(decodeNanos);
+                articlesCounter.addAndGet(articleList.size());
+                recordTransfer(url, wireStream.getByteCount(), decodedStream.getByteCount());
+            } else if (responseCode == PageResponse.RESPONSE_NOT_MODIFIED) {
+                // the stored copy of the page is still valid - there is nothing to parse
+                pageResponse = new PageResponse<T>(responseCode, null,
+                        httpURLConnection.getHeaderField("ETag"), httpURLConnection.getHeaderField("Last-Modified"));
+            } else {
+                LOGGER.warning("Bad response from the server was received - response code: " + responseCode);
+                failedRequestsCounter.incrementAndGet();
+                pageResponse = new PageResponse<T>(responseCode, null, null, null);
+                // the error body is read, so that the connection can be reused
+                inputStream = httpURLConnection.getErrorStream();
+                drainInputStream(inputStream);
+            }
+        } catch (IOException exc_02) {
+            failedRequestsCounter.incrementAndGet();
+            // the connection is in an unknown state - it is not returned to the pool
+            if (httpURLConnection != null) {
+                httpURLConnection.disconnect();
+            }
+            throw exc_02;
+        } finally {
+            // closing the fully read stream returns the connection to the pool (disconnect() is not called)
+            if (inputStream != null) {
+                inputStream.close();
+            }
+        }
+        return pageResponse;
+    }
+
+    /**
+     * Executes an http query of article bodies (the "body" field of the items) and parses them from the stream
+     *
+     * @param url URL query
+     * @param decoder decoder of the response
+     * @return Map of the HTML bodies by the link (webUrl) of their articles; empty if the server answered with an error
+     * @throws IOException if the server could not be reached, or the response could not be read
+     */
+    @Override
+    public Map<String, String> performBodyRequest(URL url, ResponseDecoder<?> decoder) throws IOException {
+        Map<String, String> bodies = new HashMap<String, String>();
+        if (url == null) {
+            return bodies;
+        }
+        HttpURLConnection httpURLConnection = null;
+        InputStream inputStream = null;
+        try {
+            long stageStart = System.nanoTime();
+            httpURLConnection = (HttpURLConnection) url.openConnection();
+            httpURLConnection.setReadTimeout(10000 /* milliseconds */);
+            httpURLConnection.setConnectTimeout(15000 /* milliseconds */);
+            httpURLConnection.setRequestMethod("GET");
+            httpURLConnection.setRequestProperty("Accept-Encoding", ENCODING_GZIP);
+            httpURLConnection.connect();
+            bodiesConnectTime.recordSince(stageStart);
+            stageStart = System.nanoTime();
+            int responseCode = httpURLConnection.getResponseCode();
+            bodiesFirstByteTime.recordSince(stageStart);
+            if (responseCode == 200) {
+                CountingInputStream wireStream = new CountingInputStream(httpURLConnection.getInputStream());
+                CountingInputStream decodedStream = ENCODING_GZIP.equalsIgnoreCase(httpURLConnection.getContentEncoding())
+                        ? new CountingInputStream(new GZIPInputStream(wireStream))
+                        : wireStream;
+                inputStream = decodedStream;
+                // the time of waiting for the wire is the body read, the rest is the decoding (as for a page)
+                stageStart = System.nanoTime();
+                bodies = decoder.decodeBodies(decodedStream);
+                long decodeNanos = System.nanoTime() - stageStart - wireStream.getReadNanos();
+                // the rest of the body (if any) is read, so that the connection can be reused
+                drainInputStream(decodedStream);
+                bodiesReadTime.record(wireStream.getReadNanos());
+                bodiesDecodeTime.record(decodeNanos);
+                recordTransfer(url, wireStream.getByteCount(), decodedStream.getByteCount());
+            } else {
+                LOGGER.warning("Bad response from the server was received - response code: " + responseCode);
+                // the error body is read, so that the connection can be reused
+                inputStream = httpURLConnection.getErrorStream();
+                drainInputStream(inputStream);
+            }
+        } catch (IOException exc_03) {
+            // the connection is in an unknown state - it is not returned to the pool
+            if (httpURLConnection != null) {
+                httpURLConnection.disconnect();
+            }
+            throw exc_03;
+        } finally {
+            // closing the fully read stream returns the connection to the pool (disconnect() is not called)
+            if (inputStream != null) {
+                inputStream.close();
+            }
+        }
+        return bodies;
+    }
+
+    /**
+     * Reads the remaining bytes of the InputStream
+     * @param stream InputStream, may be null
+     */
+    private static void drainInputStream(InputStream stream) throws IOException {
+        if (stream == null) {
+            return;
+        }
+        byte[] buffer = new byte[1024];
+        while (stream.read(buffer) != -1) {
+            // the bytes are discarded
+        }
+    }
+
+    /**
+     * Adds the size of a response to the totals and logs it
+     */
+    private void recordTransfer(URL url, long responseWireBytes, long responseDecodedBytes) {
+        long totalWireBytes = wireBytes.addAndGet(responseWireBytes);
+        long totalDecodedBytes = decodedBytes.addAndGet(responseDecodedBytes);
+        wireBytesCounter.addAndGet(responseWireBytes);
+        decodedBytesCounter.addAndGet(responseDecodedBytes);
+        LOGGER.fine("Response of " + url.getPath() + ": " + responseWireBytes + " bytes over the wire, "
+                + responseDecodedBytes + " bytes decoded (totals: " + totalWireBytes + " / " + totalDecodedBytes + ")");
+    }
+
+    /**
+     * @return number of bytes received over the wire since the client was created
+     */
+    public long getWireBytes() {
+        return wireBytes.get();
+    }
+
+    /**
+     * @return number of bytes of the decoded responses since the client was created
+     */
+    public long getDecodedBytes() {
+        return decodedBytes.get();
+    }
+}
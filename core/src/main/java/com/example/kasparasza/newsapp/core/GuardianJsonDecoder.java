@@ -0,0 +1,267 @@
+package com.example.kasparasza.newsapp.core;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Decoder of the JSON responses of the Guardian API. The response is read directly from the InputStream, one token
+ * at a time, so it is never held in memory as a whole. The streaming JsonReader of Gson has the same API as
+ * android.util.JsonReader (which was derived from it), so the decoder runs both on the device and on a plain JVM.
+ * The methods are thread-safe.
+ * @param <T> class of the decoded articles, created by an ArticleFactory
+ */
+
+public class GuardianJsonDecoder<T extends Article> implements ResponseDecoder<T> {
+
+    // String constants used:
+    private static final Logger LOGGER = Logger.getLogger(GuardianJsonDecoder.class.getSimpleName());
+    private static final String AUTHOR_PREFIX = "by ";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // members of the class:
+    private ArticleFactory<T> articleFactory;
+
+    // constructor
+    public GuardianJsonDecoder(ArticleFactory<T> mArticleFactory) {
+        articleFactory = mArticleFactory;
+    }
+
+    /**
+     * Reads JSON response directly from the InputStream (one token at a time) and extracts relevant data from it
+     * Note: the stream is not closed by the method, so that the caller may read it to the end and reuse the connection
+     * @param stream InputStream of the http response
+     * @return List<T> a list of the articles
+     * @throws IOException if the stream can not be read, or the response is malformed (the articles read
+     * before are not returned, so that a part of a page is never taken for the whole page)
+     */
+    @Override
+    public List<T> decodePage(InputStream stream) throws IOException {
+        List<T> articleList = new ArrayList<T>();
+        if (stream == null) {
+            return articleList;
+        }
+        JsonReader jsonReader = new JsonReader(new InputStreamReader(stream, UTF_8));
+        try {
+            // root JSONObject -> "response" JSONObject -> "results" JSONArray;
+            // if "results" are not available at all, an empty ArrayList is returned, as there actually is no data to display
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if (jsonReader.nextName().equals("response")) {
+                    readResponseObject(jsonReader, articleList);
+                } else {
+                    jsonReader.skipValue();
+                }
+            }
+            jsonReader.endObject();
+        } catch (IllegalStateException exc_01) {
+            // JsonReader signals unexpected tokens (e.g. a malformed response) with IllegalStateException
+            throw malformedResponse(exc_01);
+        }
+        return articleList;
+    }
+
+    /**
+     * Reads "response" JSONObject and adds each item of its "results" JSONArray to the list
+     * @param jsonReader JsonReader positioned at the start of "response" JSONObject
+     * @param articleList list to which the parsed articles are added
+     */
+    private void readResponseObject(JsonReader jsonReader, List<T> articleList) throws IOException {
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            if (jsonReader.nextName().equals("results") && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                // Loop through each item in the array
+                jsonReader.beginArray();
+                while (jsonReader.hasNext()) {
+                    articleList.add(readArticle(jsonReader));
+                }
+                jsonReader.endArray();
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+    }
+
+    /**
+     * Reads a single item of "results" JSONArray and creates an article from it
+     * @param jsonReader JsonReader positioned at the start of the item
+     * @return the article
+     */
+    private T readArticle(JsonReader jsonReader) throws IOException {
+        // default values are used, if a corresponding key is not present in the item
+        String section = Article.NO_SECTION_STRING;
+        String timePublished = "";
+        long timePublishedMillis = TimestampCodec.UNKNOWN_TIME;
+        String headline = Article.NO_HEADLINE_STRING;
+        String articleLink = "";
+        String startText = "";
+        String author = Article.NO_AUTHOR_STRING;
+        String imageLink = "";
+
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.nextNull();
+                continue;
+            }
+            switch (name) {
+                // extract "sectionName" for the section the article belongs to
+                case "sectionName":
+                    // sections repeat across the articles - one instance of each is shared
+                    section = StringInternPool.intern(jsonReader.nextString());
+                    break;
+                // extract "webPublicationDate" for the publishing time of the article
+                // (format in the JSON response "2017-07-17T23:01:03Z")
+                case "webPublicationDate":
+                    timePublishedMillis = TimestampCodec.parseIsoTimestamp(jsonReader.nextString());
+                    timePublished = TimestampCodec.formatForDisplay(timePublishedMillis);
+                    break;
+                // extract "webTitle" for the headline of the article
+                case "webTitle":
+                    headline = readHeadline(jsonReader.nextString());
+                    break;
+                // extract "webUrl" for the Url link of the article
+                case "webUrl":
+                    articleLink = jsonReader.nextString();
+                    break;
+                // "fields" JSONObject holds "trailText", "byline" and "thumbnail"
+                case "fields":
+                    jsonReader.beginObject();
+                    while (jsonReader.hasNext()) {
+                        String fieldName = jsonReader.nextName();
+                        if (jsonReader.peek() == JsonToken.NULL) {
+                            jsonReader.nextNull();
+                        } else if (fieldName.equals("trailText")) {
+                            startText = jsonReader.nextString();
+                        } else if (fieldName.equals("byline")) {
+                            // bylines repeat across the articles (e.g. "by Guardian staff") - one instance of each is shared
+                            author = StringInternPool.intern(AUTHOR_PREFIX + jsonReader.nextString());
+                        } else if (fieldName.equals("thumbnail")) {
+                            imageLink = jsonReader.nextString();
+                        } else {
+                            jsonReader.skipValue();
+                        }
+                    }
+                    jsonReader.endObject();
+                    break;
+                default:
+                    jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+
+        // create the article from the extracted data
+        return articleFactory.create(headline, author, timePublished, timePublishedMillis, startText, imageLink, articleLink, section);
+    }
+
+    /**
+     * Some headline strings have format: "headline | author", we discard the author part
+     * @param webTitle "webTitle" of an item
+     * @return the headline, or NO_HEADLINE_STRING if nothing is left of it
+     */
+    static String readHeadline(String webTitle) {
+        int separatorIndex = webTitle.indexOf('|');
+        if (separatorIndex < 0) {
+            return webTitle;
+        }
+        String headline = webTitle.substring(0, separatorIndex).trim();
+        return headline.isEmpty() ? Article.NO_HEADLINE_STRING : headline;
+    }
+
+    /**
+     * Reads JSON response of an article body query directly from the InputStream (one token at a time)
+     * Note: the stream is not closed by the method, so that the caller may read it to the end and reuse the connection
+     * @param stream InputStream of the http response
+     * @return Map of the HTML bodies ("body" field of the items) by the link (webUrl) of their articles
+     */
+    @Override
+    public Map<String, String> decodeBodies(InputStream stream) throws IOException {
+        Map<String, String> bodies = new HashMap<String, String>();
+        if (stream == null) {
+            return bodies;
+        }
+        JsonReader jsonReader = new JsonReader(new InputStreamReader(stream, UTF_8));
+        try {
+            // root JSONObject -> "response" JSONObject -> "results" JSONArray -> items with "webUrl" and "fields"
+            jsonReader.beginObject();
+            while (jsonReader.hasNext()) {
+                if (!jsonReader.nextName().equals("response")) {
+                    jsonReader.skipValue();
+                    continue;
+                }
+                jsonReader.beginObject();
+                while (jsonReader.hasNext()) {
+                    if (jsonReader.nextName().equals("results") && jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+                        jsonReader.beginArray();
+                        while (jsonReader.hasNext()) {
+                            readArticleBody(jsonReader, bodies);
+                        }
+                        jsonReader.endArray();
+                    } else {
+                        jsonReader.skipValue();
+                    }
+                }
+                jsonReader.endObject();
+            }
+            jsonReader.endObject();
+        } catch (IllegalStateException exc_02) {
+            throw malformedResponse(exc_02);
+        }
+        return bodies;
+    }
+
+    // the unexpected token is reported as a malformed response, so that the query is treated as failed
+    private static MalformedJsonException malformedResponse(IllegalStateException exception) {
+        LOGGER.warning("An exception was encountered while trying to read JSON stream " + exception);
+        MalformedJsonException malformedJsonException = new MalformedJsonException(exception.getMessage());
+        malformedJsonException.initCause(exception);
+        return malformedJsonException;
+    }
+
+    /**
+     * Reads a single item of "results" JSONArray and adds its body to the map (items without a body are skipped)
+     * @param jsonReader JsonReader positioned at the start of the item
+     * @param bodies map to which the body is added
+     */
+    private static void readArticleBody(JsonReader jsonReader, Map<String, String> bodies) throws IOException {
+        String articleLink = null;
+        String body = null;
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            String name = jsonReader.nextName();
+            if (jsonReader.peek() == JsonToken.NULL) {
+                jsonReader.nextNull();
+            } else if (name.equals("webUrl")) {
+                articleLink = jsonReader.nextString();
+            } else if (name.equals("fields")) {
+                jsonReader.beginObject();
+                while (jsonReader.hasNext()) {
+                    if (jsonReader.nextName().equals("body") && jsonReader.peek() == JsonToken.STRING) {
+                        body = jsonReader.nextString();
+                    } else {
+                        jsonReader.skipValue();
+                    }
+                }
+                jsonReader.endObject();
+            } else {
+                jsonReader.skipValue();
+            }
+        }
+        jsonReader.endObject();
+        if (articleLink != null && body != null && !body.isEmpty()) {
+            bodies.put(articleLink, body);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Builder of the URL queries of the Guardian API. The base URL is given to the builder, so that the queries
+ * can be pointed at another server (e.g. a local one that replays recorded responses).
+ * The parameters are encoded with URLEncoder, so the builder does not depend on android.net.Uri.
+ */
+
+public class GuardianQueryBuilder implements QueryBuilder {
+
+    // String constants used:
+    private static final Logger LOGGER = Logger.getLogger(GuardianQueryBuilder.class.getSimpleName());
+    // base URL of the Guardian API
+    public static final String DEFAULT_BASE_URL = "http://content.guardianapis.com/";
+    // fixed parts of the queries
+    private static final String SEARCH_PATH = "search?";
+    private static final String PAGE_FIELDS = "&show-fields=trailText%2Cbyline%2Cthumbnail";
+    private static final String BODY_FIELDS = "show-fields=body";
+    private static final String API_KEY = "&api-key=test";
+    // number of articles in a page ("page-size" parameter of the page queries)
+    public static final int PAGE_SIZE = 20;
+    // values of "order-by" parameter that sort the newest / the oldest articles first
+    public static final String ORDER_BY_NEWEST = "newest";
+    public static final String ORDER_BY_OLDEST = "oldest";
+    // values of the "from-date" setting (see prepareFromDateParameter), the shortest period first
+    public static final String[] FROM_DATE_SETTINGS = {
+            "today", "today and yesterday", "last week", "last two weeks", "last 30 days"};
+
+    // members of the class:
+    private String searchUrlString;
+
+    // constructor
+    public GuardianQueryBuilder(String mBaseUrl) {
+        searchUrlString = (mBaseUrl.endsWith("/") ? mBaseUrl : mBaseUrl + "/") + SEARCH_PATH;
+    }
+
+    @Override
+    public String createPageUrlString(String productionOffice, String fromDate, String orderBy, int page) {
+        return searchUrlString
+                + "production-office=" + encode(productionOffice)
+                + "&from-date=" + encode(fromDate)
+                + "&order-by=" + encode(orderBy)
+                + PAGE_FIELDS
+                + "&page=" + page
+                + "&page-size=" + PAGE_SIZE
+                + API_KEY;
+    }
+
+    /**
+     * Creates the URL of a query of the bodies of the given articles (a single query for all of them)
+     * @param articleLinks links (webUrl) of the articles; the id of a Guardian article is the path of its webUrl
+     * @return String with the URL query
+     */
+    @Override
+    public String createBodiesUrlString(List<String> articleLinks) {
+        StringBuilder ids = new StringBuilder();
+        for (String articleLink : articleLinks) {
+            String path = null;
+            try {
+                path = new URI(articleLink).getPath();
+            } catch (URISyntaxException exc_01) {
+                LOGGER.warning("Link of the article can not be parsed " + exc_01);
+            }
+            if (path == null || path.length() < 2) {
+                continue;
+            }
+            if (ids.length() > 0) {
+                ids.append(',');
+            }
+            ids.append(path.substring(1));
+        }
+        return searchUrlString + BODY_FIELDS
+                + "&ids=" + encode(ids.toString())
+                + "&page-size=" + articleLinks.size()
+                + API_KEY;
+    }
+
+    /**
+     * Method that reads the "from-date" setting and returns a Date in a String format
+     * as a final input parameter to URL query
+     * @param input a string that is equal to one of FROM_DATE_SETTINGS
+     * @return Date in a String format ("yyyy-MM-dd")
+     */
+    public static String prepareFromDateParameter(String input) {
+        Calendar calendar = Calendar.getInstance(); // gets the current time
+        switch (input) {
+            case "today": calendar.add(Calendar.DATE, 0); // no manipulation performed
+                break;
+            case "today and yesterday": calendar.add(Calendar.DATE, -1); // current time minus 1 day
+                break;
+            case "last week": calendar.add(Calendar.DATE, -6); // current time minus 6 days
+                break;
+            case "last two weeks": calendar.add(Calendar.DATE, -13); // current time minus 13 days
+                break;
+            case "last 30 days": calendar.add(Calendar.DATE, -30); // current time minus 30 days
+                break;
+            default: calendar.add(Calendar.DATE, 0); // no manipulation performed
+        }
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        dateFormat.setTimeZone(calendar.getTimeZone());
+        return dateFormat.format(calendar.getTime());
+    }
+
+    // encodes a value of a query parameter
+    private static String encode(String value) {
+        try {
+            // URLEncoder encodes spaces as "+"; "%20" is used instead, as android.net.Uri does
+            return URLEncoder.encode(value != null ? value : "", "UTF-8").replace("+", "%20");
+        } catch (UnsupportedEncodingException exc_02) {
+            // UTF-8 is supported on every platform
+            throw new IllegalStateException(exc_02);
+        }
+    }
+}
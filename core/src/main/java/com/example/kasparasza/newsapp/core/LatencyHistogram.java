@@ -0,0 +1,152 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations with a fixed set of log-linear buckets: each power of two is split into SUB_BUCKETS
+ * buckets of equal width, so a percentile read from the histogram is within 1 / SUB_BUCKETS of the true value.
+ * Recording a sample is lock-free and allocation-free (a few atomic increments), so it can be done on every
+ * pass through a hot path, e.g. on each bind of a list item on the UI thread.
+ */
+
+public class LatencyHistogram {
+
+    // number of the buckets per power of two (a power of two itself)
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // enough buckets for any positive long
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    // members of the class:
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    // constructor
+    public LatencyHistogram(String mName) {
+        name = mName;
+    }
+
+    /**
+     * Records a single sample
+     * @param durationNanos duration in nanoseconds (negative values are recorded as 0)
+     */
+    public void record(long durationNanos) {
+        long value = Math.max(0, durationNanos);
+        buckets.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        totalNanos.addAndGet(value);
+        long max;
+        while (value > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, value)) {
+            // another thread has raised the maximum in the meantime - it is compared again
+        }
+    }
+
+    /**
+     * Records the time elapsed since the given start
+     * @param startNanos start of the measured stage, from System.nanoTime()
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @param percent percentile to read, 0..100
+     * @return the percentile in nanoseconds (the middle of its bucket, at most the maximum); 0 if there are no samples
+     */
+    public long getPercentileNanos(double percent) {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        int index;
+        for (index = 0; index < BUCKET_COUNT; index++) {
+            counts[index] = buckets.get(index);
+            total += counts[index];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percent / 100.0 * total));
+        long seen = 0;
+        for (index = 0; index < BUCKET_COUNT; index++) {
+            seen += counts[index];
+            if (seen >= rank) {
+                break;
+            }
+        }
+        long lowerBound = lowerBoundOf(index);
+        long middle = lowerBound + (lowerBoundOf(index + 1) - lowerBound) / 2;
+        return Math.min(middle, maxNanos.get());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        long samples = count.get();
+        return samples > 0 ? totalNanos.get() / samples : 0;
+    }
+
+    /**
+     * Drops all the samples (samples recorded meanwhile may be partly kept)
+     */
+    public void reset() {
+        int index;
+        for (index = 0; index < BUCKET_COUNT; index++) {
+            buckets.set(index, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /**
+     * @return a row of the histogram: count, p50 / p95 / p99, max and mean in milliseconds
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%-16s %7d %8.2f %8.2f %8.2f %8.2f %8.2f", name, getCount(),
+                toMillis(getPercentileNanos(50)), toMillis(getPercentileNanos(95)), toMillis(getPercentileNanos(99)),
+                toMillis(getMaxNanos()), toMillis(getMeanNanos()));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    // values below SUB_BUCKETS have a bucket each; above, each power of two is split into SUB_BUCKETS buckets
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // the smallest value of a bucket
+    private static long lowerBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = bucket % SUB_BUCKETS;
+        if (exponent >= 63) {
+            return Long.MAX_VALUE;
+        }
+        return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide registry of the metrics of the fetch -> decode -> deliver -> bind pipeline: a LatencyHistogram
+ * for each timed stage, and counters (e.g. of bytes and articles). The components look their histograms and
+ * counters up once (e.g. into static fields) and record into them directly, so that recording costs no lookup.
+ * The registry can be rendered as text, e.g. for a debug overlay, or written to a file.
+ */
+
+public class MetricsRegistry {
+
+    // names of the stages of the pipeline (the ones that are recorded in the core module, and in the app)
+    public static final String STAGE_CONNECT = "http.connect";
+    public static final String STAGE_FIRST_BYTE = "http.ttfb";
+    public static final String STAGE_BODY_READ = "http.body";
+    public static final String STAGE_DECODE = "decode";
+    // the same stages of the queries of article bodies (kept apart, as the bodies are much larger than the pages)
+    public static final String STAGE_BODIES_CONNECT = "bodies.connect";
+    public static final String STAGE_BODIES_FIRST_BYTE = "bodies.ttfb";
+    public static final String STAGE_BODIES_READ = "bodies.body";
+    public static final String STAGE_BODIES_DECODE = "bodies.decode";
+    public static final String STAGE_DELIVER = "loader.deliver";
+    public static final String STAGE_BIND = "adapter.bind";
+    // names of the counters
+    public static final String COUNT_WIRE_BYTES = "bytes.wire";
+    public static final String COUNT_DECODED_BYTES = "bytes.decoded";
+    public static final String COUNT_ARTICLES = "articles.decoded";
+    public static final String COUNT_FAILED_REQUESTS = "http.failed";
+    public static final String COUNT_ALLOCATED_OBJECTS = "alloc.objects";
+    public static final String COUNT_ALLOCATED_BYTES = "alloc.bytes";
+    public static final String COUNT_THUMBNAIL_MEMORY_HITS = "thumb.mem.hit";
+    public static final String COUNT_THUMBNAIL_MEMORY_MISSES = "thumb.mem.miss";
+    public static final String COUNT_THUMBNAIL_DISK_HITS = "thumb.disk.hit";
+    public static final String COUNT_THUMBNAIL_NETWORK_LOADS = "thumb.network";
+
+    // the single instance of the registry
+    private static MetricsRegistry instance;
+
+    // members of the class:
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+    private final ConcurrentMap<String, AtomicLong> counters = new ConcurrentHashMap<String, AtomicLong>();
+    // start of the period the metrics cover (they cover the life of the process until reset() is called)
+    private volatile long sinceMillis = System.currentTimeMillis();
+
+    /**
+     * Returns the single instance of the registry
+     * @return MetricsRegistry
+     */
+    public static synchronized MetricsRegistry getInstance() {
+        if (instance == null) {
+            instance = new MetricsRegistry();
+        }
+        return instance;
+    }
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * @param name name of the stage
+     * @return the histogram of the stage (it is created when it is first asked for)
+     */
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram(name);
+            histogram = histograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @param name name of the counter
+     * @return the counter (it is created when it is first asked for)
+     */
+    public AtomicLong counter(String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = counters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Drops the samples of all the histograms and zeroes all the counters
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for (AtomicLong counter : counters.values()) {
+            counter.set(0);
+        }
+        sinceMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the metrics as text: a row of each histogram (durations in milliseconds), then the counters
+     */
+    public String dump() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.US, "metrics of the last %d s%n",
+                (System.currentTimeMillis() - sinceMillis) / 1000));
+        text.append(String.format(Locale.US, "%-16s %7s %8s %8s %8s %8s %8s%n",
+                "stage", "count", "p50", "p95", "p99", "max", "mean"));
+        // the rows are sorted by name, so that the stages of a component are listed together
+        for (LatencyHistogram histogram : new TreeMap<String, LatencyHistogram>(histograms).values()) {
+            text.append(histogram).append(String.format("%n"));
+        }
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<String, AtomicLong>(counters).entrySet()) {
+            text.append(String.format(Locale.US, "%-16s %12d%n", entry.getKey(), entry.getValue().get()));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Writes the metrics (see dump()) to a file, replacing its content
+     * @param file the file
+     */
+    public void dumpToFile(File file) throws IOException {
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(dump());
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Interface of an http client of the Guardian API (implemented by GuardianHttpClient); the responses are
+ * decoded while they are read, by the given ResponseDecoder
+ */
+
+public interface PageClient {
+
+    /**
+     * Performs a (conditional) query of a page
+     * @param url URL query
+     * @param cachedResponse validators of the stored copy of the page, may be null
+     * @param decoder decoder of the response
+     * @return PageResponse with the decoded articles, or with the response code of the server
+     * @throws IOException if the server could not be reached, or the response could not be read
+     */
+    <T extends Article> PageResponse<T> performPageRequest(URL url, CachedResponse cachedResponse,
+                                                           ResponseDecoder<T> decoder) throws IOException;
+
+    /**
+     * Performs a query of article bodies
+     * @param url URL query
+     * @param decoder decoder of the response
+     * @return Map of the HTML bodies by the link (webUrl) of their articles; empty if the server answered with an error
+     * @throws IOException if the server could not be reached, or the response could not be read
+     */
+    Map<String, String> performBodyRequest(URL url, ResponseDecoder<?> decoder) throws IOException;
+}
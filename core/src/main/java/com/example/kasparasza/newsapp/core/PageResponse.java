@@ -0,0 +1,63 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class that holds the result of an http query for a page of articles:
+ * the response code, the parsed articles and the validators of the response.
+ * @param <T> class of the articles
+ */
+
+public class PageResponse<T extends Article> {
+
+    // response code that is returned when the page has not changed since the validators were received
+    public static final int RESPONSE_NOT_MODIFIED = 304;
+
+    // private members of the class
+    private int responseCode;
+    private List<T> articleList;
+    private String eTag;
+    private String lastModified;
+
+    // constructor of the class
+    public PageResponse(int mResponseCode, List<T> mArticleList, String mETag, String mLastModified) {
+        responseCode = mResponseCode;
+        articleList = mArticleList != null ? mArticleList : new ArrayList<T>();
+        eTag = mETag;
+        lastModified = mLastModified;
+    }
+
+    // implementation of getter methods
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    public List<T> getArticleList() {
+        return articleList;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return true if the server confirmed that the stored copy of the page is still valid
+     */
+    public boolean isNotModified() {
+        return responseCode == RESPONSE_NOT_MODIFIED;
+    }
+
+    /**
+     * @return true if the query did not succeed: the server could not be reached (response code 0)
+     * or it returned an error; an empty page returned with 200 is not a failure (e.g. the end of the result set)
+     */
+    public boolean isFailed() {
+        return responseCode != HttpURLConnection.HTTP_OK && responseCode != RESPONSE_NOT_MODIFIED;
+    }
+}
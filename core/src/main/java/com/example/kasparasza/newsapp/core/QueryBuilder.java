@@ -0,0 +1,28 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.util.List;
+
+/**
+ * Interface of the builder of the URL queries of the API: the query of a page of the articles of a profile,
+ * and the query of the bodies of the given articles.
+ */
+
+public interface QueryBuilder {
+
+    /**
+     * Creates the URL of a query of a single page of articles
+     * @param productionOffice "production-office" parameter
+     * @param fromDate "from-date" parameter (a date, or a full timestamp)
+     * @param orderBy "order-by" parameter
+     * @param page "page" parameter (page number)
+     * @return String with the URL query
+     */
+    String createPageUrlString(String productionOffice, String fromDate, String orderBy, int page);
+
+    /**
+     * Creates the URL of a query of the bodies of the given articles (a single query for all of them)
+     * @param articleLinks links (webUrl) of the articles
+     * @return String with the URL query
+     */
+    String createBodiesUrlString(List<String> articleLinks);
+}
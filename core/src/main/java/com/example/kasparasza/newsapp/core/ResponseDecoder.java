@@ -0,0 +1,27 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interface of a decoder of the responses of the Guardian API. The response is read from the stream as it arrives;
+ * the stream is not closed, so that the caller may read it to its end and reuse the connection.
+ * @param <T> class of the decoded articles
+ */
+
+public interface ResponseDecoder<T extends Article> {
+
+    /**
+     * @param stream InputStream of a page query
+     * @return List of the articles of the page (empty if the response holds no results)
+     */
+    List<T> decodePage(InputStream stream) throws IOException;
+
+    /**
+     * @param stream InputStream of an article body query
+     * @return Map of the HTML bodies by the link (webUrl) of their articles
+     */
+    Map<String, String> decodeBodies(InputStream stream) throws IOException;
+}
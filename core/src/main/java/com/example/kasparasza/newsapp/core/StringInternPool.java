@@ -0,0 +1,63 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded pool of canonical String instances for the fields of NewsArticle objects that take only a few distinct
+ * values (e.g. section names and bylines such as "by Guardian staff"). Each parsed or loaded value is replaced with
+ * the instance already held in the pool, so that thousands of articles share a few dozen Strings instead of
+ * holding a copy each. Unlike String.intern(), the pool is bounded: the least recently used values are dropped,
+ * so rare values (e.g. the byline of a one-off contributor) do not accumulate.
+ * The methods are thread-safe.
+ */
+
+public class StringInternPool {
+
+    // the most distinct values held by the pool
+    static final int POOL_SIZE = 512;
+    // longer values are unlikely to repeat, and are not pooled
+    static final int MAX_POOLED_LENGTH = 128;
+
+    // canonical instances by their value, in the order of their last use (the map is guarded by its own lock)
+    private static final Map<String, String> pool = new LinkedHashMap<String, String>(POOL_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > POOL_SIZE;
+        }
+    };
+
+    /**
+     * Create a private constructor because no one should ever create a {@link StringInternPool} object.
+     */
+    private StringInternPool() {
+    }
+
+    /**
+     * Returns the canonical instance of a value
+     * @param value String, may be null
+     * @return equal String held by the pool (the value itself, if it was not pooled before)
+     */
+    public static String intern(String value) {
+        if (value == null || value.length() > MAX_POOLED_LENGTH) {
+            return value;
+        }
+        synchronized (pool) {
+            String pooled = pool.get(value);
+            if (pooled == null) {
+                pool.put(value, value);
+                pooled = value;
+            }
+            return pooled;
+        }
+    }
+
+    /**
+     * @return number of the values held by the pool
+     */
+    static int size() {
+        synchronized (pool) {
+            return pool.size();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Custom class that converts "webPublicationDate" of the Guardian API into epoch milliseconds and into
+ * the format that is displayed to the user.
+ * The fixed ISO-8601 layout of the API ("2017-07-17T23:01:03Z", always UTC) is parsed by hand, without any
+ * allocations. Display formatting uses one SimpleDateFormat per thread, and the formatted Strings are cached
+ * per minute (the displayed format has no seconds), so articles published in the same minute share the result.
+ * The displayed times are in the time zone of the device (the parser that the codec replaced read the "Z" of the
+ * timestamps as a literal, so the app used to display the UTC time of the API). The time zone and the locale are
+ * read once and kept, so a formatted String that is cached costs no allocation; the app calls
+ * onDisplaySettingsChanged() when the time zone or the locale of the device changes.
+ * The methods are thread-safe.
+ */
+
+public class TimestampCodec {
+
+    // value returned for a timestamp that can not be parsed
+    public static final long UNKNOWN_TIME = Long.MIN_VALUE;
+
+    // String constants used:
+    private static final String DISPLAY_PATTERN = "MMM dd, HH:mm";
+    // length of "yyyy-MM-ddTHH:mm:ssZ"
+    private static final int TIMESTAMP_LENGTH = 20;
+    private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+    private static final long MILLIS_PER_DAY = 24 * 60 * MILLIS_PER_MINUTE;
+    // number of formatted Strings held in the cache (a power of two)
+    private static final int DISPLAY_CACHE_SIZE = 256;
+
+    // time zone, locale and cache of the displayed format; replaced as a whole when the device settings change
+    private static volatile DisplaySettings displaySettings = new DisplaySettings();
+
+    // one formatter per thread, as SimpleDateFormat is not thread-safe (it is recreated when the settings change)
+    private static final ThreadLocal<DisplayFormat> displayFormat = new ThreadLocal<DisplayFormat>();
+
+    /**
+     * Create a private constructor because no one should ever create a {@link TimestampCodec} object.
+     */
+    private TimestampCodec() {
+    }
+
+    /**
+     * Parses a timestamp of the format "yyyy-MM-dd'T'HH:mm:ss'Z'" (UTC)
+     * @param timestamp timestamp as received in the JSON response
+     * @return epoch milliseconds, or UNKNOWN_TIME if the timestamp does not match the format
+     */
+    public static long parseIsoTimestamp(String timestamp) {
+        if (timestamp == null || timestamp.length() != TIMESTAMP_LENGTH
+                || timestamp.charAt(4) != '-' || timestamp.charAt(7) != '-' || timestamp.charAt(10) != 'T'
+                || timestamp.charAt(13) != ':' || timestamp.charAt(16) != ':' || timestamp.charAt(19) != 'Z') {
+            return UNKNOWN_TIME;
+        }
+        int year = parseDigits(timestamp, 0, 4);
+        int month = parseDigits(timestamp, 5, 7);
+        int day = parseDigits(timestamp, 8, 10);
+        int hour = parseDigits(timestamp, 11, 13);
+        int minute = parseDigits(timestamp, 14, 16);
+        int second = parseDigits(timestamp, 17, 19);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 60) {
+            return UNKNOWN_TIME;
+        }
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY
+                + ((hour * 60L + minute) * 60L + second) * 1000L;
+    }
+
+    /**
+     * Formats epoch milliseconds into a timestamp of the format "yyyy-MM-dd'T'HH:mm:ss'Z'" (UTC),
+     * e.g. to be used as a query parameter of the API (sub-second part is truncated)
+     * @param timeMillis epoch milliseconds
+     * @return timestamp String
+     */
+    public static String formatIsoTimestamp(long timeMillis) {
+        long days = (timeMillis >= 0 ? timeMillis : timeMillis - MILLIS_PER_DAY + 1) / MILLIS_PER_DAY;
+        int secondOfDay = (int) ((timeMillis - days * MILLIS_PER_DAY) / 1000);
+
+        // date in the proleptic Gregorian calendar (algorithm "civil_from_days" by Howard Hinnant)
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        int month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] timestamp = new char[TIMESTAMP_LENGTH];
+        writeDigits(timestamp, 0, 4, (int) year);
+        timestamp[4] = '-';
+        writeDigits(timestamp, 5, 7, month);
+        timestamp[7] = '-';
+        writeDigits(timestamp, 8, 10, day);
+        timestamp[10] = 'T';
+        writeDigits(timestamp, 11, 13, secondOfDay / 3600);
+        timestamp[13] = ':';
+        writeDigits(timestamp, 14, 16, secondOfDay / 60 % 60);
+        timestamp[16] = ':';
+        writeDigits(timestamp, 17, 19, secondOfDay % 60);
+        timestamp[19] = 'Z';
+        return new String(timestamp);
+    }
+
+    /**
+     * Formats epoch milliseconds into the format that is displayed to the user, e.g. "Jul 17, 23:01"
+     * (in the time zone of the device, as it was when the codec was first used or last notified of a change)
+     * @param timeMillis epoch milliseconds
+     * @return formatted String, or an empty String if the time is UNKNOWN_TIME
+     */
+    public static String formatForDisplay(long timeMillis) {
+        if (timeMillis == UNKNOWN_TIME) {
+            return "";
+        }
+        DisplaySettings settings = displaySettings;
+        long minute = (timeMillis >= 0 ? timeMillis : timeMillis - MILLIS_PER_MINUTE + 1) / MILLIS_PER_MINUTE;
+        // the cache is direct-mapped: each minute has a single slot, which holds the last minute formatted in it
+        int slot = (int) (minute ^ (minute >>> 32)) & (DISPLAY_CACHE_SIZE - 1);
+        DisplayCacheEntry entry = settings.cache[slot];
+        if (entry != null && entry.minute == minute) {
+            return entry.formatted;
+        }
+        DisplayFormat format = displayFormat.get();
+        if (format == null || format.settings != settings) {
+            format = new DisplayFormat(settings);
+            displayFormat.set(format);
+        }
+        String formatted = format.format.format(new Date(timeMillis));
+        // the entry is immutable, so a thread that reads the slot sees either the old or the new entry
+        // (an equal String may be formatted by two threads at once)
+        settings.cache[slot] = new DisplayCacheEntry(minute, formatted);
+        return formatted;
+    }
+
+    /**
+     * Reads the time zone and the locale of the device again, and drops the formatted Strings;
+     * to be called when either of them has changed (e.g. on ACTION_TIMEZONE_CHANGED or ACTION_LOCALE_CHANGED)
+     */
+    public static void onDisplaySettingsChanged() {
+        displaySettings = new DisplaySettings();
+    }
+
+    /**
+     * Parses a timestamp and formats it for display in one call
+     * @param timestamp timestamp as received in the JSON response
+     * @return formatted String, or an empty String if the timestamp can not be parsed
+     */
+    public static String formatIsoTimestampForDisplay(String timestamp) {
+        return formatForDisplay(parseIsoTimestamp(timestamp));
+    }
+
+    // parses decimal digits from start (inclusive) to end (exclusive); returns -1 if a character is not a digit
+    private static int parseDigits(String text, int start, int end) {
+        int value = 0;
+        int index;
+        for (index = start; index < end; index++) {
+            char character = text.charAt(index);
+            if (character < '0' || character > '9') {
+                return -1;
+            }
+            value = value * 10 + (character - '0');
+        }
+        return value;
+    }
+
+    // writes the decimal digits of a value from start (inclusive) to end (exclusive), padded with zeros
+    private static void writeDigits(char[] text, int start, int end, int value) {
+        int index;
+        for (index = end - 1; index >= start; index--) {
+            text[index] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    // time zone and locale of the displayed format, and the Strings formatted with them
+    private static class DisplaySettings {
+        private final TimeZone timeZone = TimeZone.getDefault();
+        private final Locale locale = Locale.getDefault();
+        // formatted Strings by slot of their minute (see formatForDisplay)
+        private final DisplayCacheEntry[] cache = new DisplayCacheEntry[DISPLAY_CACHE_SIZE];
+    }
+
+    // formatter of a thread, and the settings it was created with
+    private static class DisplayFormat {
+        private final DisplaySettings settings;
+        private final SimpleDateFormat format;
+
+        private DisplayFormat(DisplaySettings mSettings) {
+            settings = mSettings;
+            format = new SimpleDateFormat(DISPLAY_PATTERN, mSettings.locale);
+            format.setTimeZone(mSettings.timeZone);
+        }
+    }
+
+    // formatted String of a minute since epoch
+    private static class DisplayCacheEntry {
+        private final long minute;
+        private final String formatted;
+
+        private DisplayCacheEntry(long mMinute, String mFormatted) {
+            minute = mMinute;
+            formatted = mFormatted;
+        }
+    }
+
+    // number of days since 1970-01-01 of a date in the proleptic Gregorian calendar
+    // (algorithm "days_from_civil" by Howard Hinnant)
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.kasparasza.newsapp.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of ArticleMergeIndex: articles that move between the pages are shown once, in their first place,
+ * and their shown copies are updated through the Reconciler.
+ */
+public class ArticleMergeIndexTest {
+
+    private ArticleMergeIndex<Article> mergeIndex = new ArticleMergeIndex<Article>();
+    private List<String> duplicates = new ArrayList<String>();
+    private ArticleMergeIndex.Reconciler<Article> reconciler = new ArticleMergeIndex.Reconciler<Article>() {
+        @Override
+        public void onDuplicate(int page, int offset, Article article) {
+            duplicates.add(page + "/" + offset + " " + article.getHeadline());
+        }
+    };
+
+    @Test
+    public void distinctPagesAreKeptWhole() {
+        assertEquals(links("a", "b"), links(mergeIndex.mergePage(1, articles("a", "b"), reconciler)));
+        assertEquals(links("c", "d"), links(mergeIndex.mergePage(2, articles("c", "d"), reconciler)));
+        assertTrue(duplicates.isEmpty());
+        assertTrue(mergeIndex.contains("a"));
+        assertTrue(mergeIndex.contains("d"));
+        assertFalse(mergeIndex.contains("e"));
+    }
+
+    @Test
+    public void articleShownOnAnotherPageIsDroppedAndReconciled() {
+        mergeIndex.mergePage(1, articles("a", "b", "c"), reconciler);
+        // "b" has been pushed down to page 2 by a newer article
+        List<Article> pageItems = mergeIndex.mergePage(2, articles("b", "d"), reconciler);
+
+        assertEquals(links("d"), links(pageItems));
+        assertEquals(links("1/1 b"), duplicates);
+    }
+
+    @Test
+    public void offsetsCountOnlyShownArticles() {
+        mergeIndex.mergePage(1, articles("a", "b"), reconciler);
+        mergeIndex.mergePage(2, articles("a", "c", "d"), reconciler);
+        mergeIndex.mergePage(3, articles("d"), reconciler);
+
+        // "d" is the second shown article of page 2, as "a" was dropped from it
+        assertEquals(links("1/0 a", "2/1 d"), duplicates);
+    }
+
+    @Test
+    public void duplicateWithinPageIsDroppedWithoutReconciling() {
+        assertEquals(links("a", "b"), links(mergeIndex.mergePage(1, articles("a", "b", "a"), reconciler)));
+        assertTrue(duplicates.isEmpty());
+    }
+
+    @Test
+    public void refreshedPageReplacesItsPreviousCopy() {
+        mergeIndex.mergePage(1, articles("a", "b"), reconciler);
+        mergeIndex.mergePage(1, articles("c", "a"), reconciler);
+
+        assertTrue(duplicates.isEmpty());
+        assertFalse(mergeIndex.contains("b"));
+        // "a" is at offset 1 of the refreshed page
+        mergeIndex.mergePage(2, articles("a"), reconciler);
+        assertEquals(links("1/1 a"), duplicates);
+    }
+
+    @Test
+    public void clearRemovesAllPages() {
+        mergeIndex.mergePage(1, articles("a", "b"), reconciler);
+        mergeIndex.clear();
+
+        assertFalse(mergeIndex.contains("a"));
+        assertEquals(links("a", "b"), links(mergeIndex.mergePage(2, articles("a", "b"), reconciler)));
+        assertTrue(duplicates.isEmpty());
+    }
+
+    // articles whose headlines are equal to their links
+    private static List<Article> articles(String... articleLinks) {
+        List<Article> articleList = new ArrayList<Article>();
+        for (String articleLink : articleLinks) {
+            articleList.add(TestPages.ARTICLE_FACTORY.create(articleLink, "", "", 0L, "", "", articleLink, ""));
+        }
+        return articleList;
+    }
+
+    private static List<String> links(String... values) {
+        List<String> links = new ArrayList<String>();
+        for (String value : values) {
+            links.add(value);
+        }
+        return links;
+    }
+
+    private static List<String> links(List<Article> articleList) {
+        List<String> links = new ArrayList<String>();
+        for (Article article : articleList) {
+            links.add(article.getArticleLink());
+        }
+        return links;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.util.Arrays;
+
+/**
+ * Minimal benchmark runner of the tests: a task is run a number of times to warm up the JIT,
+ * then timed; the median of the timed runs is reported.
+ */
+final class Benchmark {
+
+    /**
+     * Interface of the timed task
+     */
+    interface Task {
+        void run() throws Exception;
+    }
+
+    /**
+     * Create a private constructor because no one should ever create a {@link Benchmark} object.
+     */
+    private Benchmark() {
+    }
+
+    /**
+     * @param name name of the task, printed with the result
+     * @param warmUpRuns number of runs that are not timed
+     * @param timedRuns number of timed runs
+     * @param task the task
+     * @return median duration of the timed runs in nanoseconds
+     */
+    static long medianNanos(String name, int warmUpRuns, int timedRuns, Task task) throws Exception {
+        int index;
+        for (index = 0; index < warmUpRuns; index++) {
+            task.run();
+        }
+        long[] durations = new long[timedRuns];
+        for (index = 0; index < timedRuns; index++) {
+            long startTime = System.nanoTime();
+            task.run();
+            durations[index] = System.nanoTime() - startTime;
+        }
+        Arrays.sort(durations);
+        long median = durations[timedRuns / 2];
+        System.out.println(String.format("%s: median %.3f ms, max %.3f ms (%d runs)",
+                name, median / 1e6, durations[timedRuns - 1] / 1e6, timedRuns));
+        return median;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.kasparasza.newsapp.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of the contract of GuardianHttpClient against a local http server: a page and its validators,
+ * a response of the server with an error code, a server that can not be reached (IOException), and the stages
+ * of a query of article bodies recorded in MetricsRegistry.
+ */
+public class GuardianHttpClientTest {
+
+    private final GuardianJsonDecoder<Article> decoder = new GuardianJsonDecoder<Article>(TestPages.ARTICLE_FACTORY);
+    private HttpServer server;
+    private int responseCode = 200;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(PageResponse.RESPONSE_NOT_MODIFIED, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] body = TestPages.createPageBytes(0, 3);
+                exchange.getResponseHeaders().set("ETag", "\"v1\"");
+                exchange.sendResponseHeaders(responseCode, body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void pageIsDecodedWithItsValidators() throws Exception {
+        PageResponse<Article> pageResponse = GuardianHttpClient.getInstance().performPageRequest(url(), null, decoder);
+
+        assertEquals(200, pageResponse.getResponseCode());
+        assertEquals(3, pageResponse.getArticleList().size());
+        assertEquals("\"v1\"", pageResponse.getETag());
+        assertFalse(pageResponse.isFailed());
+    }
+
+    @Test
+    public void unchangedPageIsNotModified() throws Exception {
+        PageResponse<Article> pageResponse = GuardianHttpClient.getInstance().performPageRequest(url(),
+                new CachedResponse(url().toString(), "\"v1\"", null, 0), decoder);
+
+        assertTrue(pageResponse.isNotModified());
+    }
+
+    @Test
+    public void errorOfServerIsReturnedAsResponseCode() throws Exception {
+        responseCode = 500;
+        PageResponse<Article> pageResponse = GuardianHttpClient.getInstance().performPageRequest(url(), null, decoder);
+
+        assertEquals(500, pageResponse.getResponseCode());
+        assertTrue(pageResponse.isFailed());
+        assertTrue(GuardianHttpClient.getInstance().performBodyRequest(url(), decoder).isEmpty());
+    }
+
+    @Test
+    public void stagesOfBodyRequestAreRecorded() throws Exception {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        long connectCount = metrics.histogram(MetricsRegistry.STAGE_BODIES_CONNECT).getCount();
+        long firstByteCount = metrics.histogram(MetricsRegistry.STAGE_BODIES_FIRST_BYTE).getCount();
+        long readCount = metrics.histogram(MetricsRegistry.STAGE_BODIES_READ).getCount();
+        long decodeCount = metrics.histogram(MetricsRegistry.STAGE_BODIES_DECODE).getCount();
+
+        GuardianHttpClient.getInstance().performBodyRequest(url(), decoder);
+
+        assertEquals(connectCount + 1, metrics.histogram(MetricsRegistry.STAGE_BODIES_CONNECT).getCount());
+        assertEquals(firstByteCount + 1, metrics.histogram(MetricsRegistry.STAGE_BODIES_FIRST_BYTE).getCount());
+        assertEquals(readCount + 1, metrics.histogram(MetricsRegistry.STAGE_BODIES_READ).getCount());
+        assertEquals(decodeCount + 1, metrics.histogram(MetricsRegistry.STAGE_BODIES_DECODE).getCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void unreachableServerThrowsIOException() throws Exception {
+        GuardianHttpClient.getInstance().performPageRequest(unreachableUrl(), null, decoder);
+    }
+
+    @Test(expected = IOException.class)
+    public void unreachableServerOfBodiesThrowsIOException() throws Exception {
+        GuardianHttpClient.getInstance().performBodyRequest(unreachableUrl(), decoder);
+    }
+
+    private URL url() throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/search?page=1");
+    }
+
+    // URL of a port that nothing listens to
+    private static URL unreachableUrl() throws IOException {
+        ServerSocket socket = new ServerSocket(0);
+        int port = socket.getLocalPort();
+        socket.close();
+        return new URL("http://127.0.0.1:" + port + "/search?page=1");
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.kasparasza.newsapp.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Benchmark of GuardianJsonDecoder on synthetic pages: a page of the size used by the app, and a large response
+ * (the throughput of the streaming parser). The results are printed; the test only fails if the parser is
+ * an order of magnitude slower than expected.
+ */
+public class GuardianJsonDecoderBenchmark {
+
+    private final GuardianJsonDecoder<Article> decoder = new GuardianJsonDecoder<Article>(TestPages.ARTICLE_FACTORY);
+
+    @Test
+    public void decodePage() throws Exception {
+        final byte[] page = TestPages.createPageBytes(0, GuardianQueryBuilder.PAGE_SIZE);
+        long medianNanos = Benchmark.medianNanos("decode page of " + GuardianQueryBuilder.PAGE_SIZE + " articles (" + page.length + " bytes)",
+                200, 200, new Benchmark.Task() {
+                    @Override
+                    public void run() throws Exception {
+                        assertEquals(GuardianQueryBuilder.PAGE_SIZE, decoder.decodePage(new ByteArrayInputStream(page)).size());
+                    }
+                });
+        assertTrue(medianNanos < 50 * 1000000L);
+    }
+
+    @Test
+    public void decodeLargeResponse() throws Exception {
+        final int articleCount = 5000;
+        final byte[] response = TestPages.createPageBytes(0, articleCount);
+        long medianNanos = Benchmark.medianNanos("decode " + articleCount + " articles (" + response.length + " bytes)",
+                5, 10, new Benchmark.Task() {
+                    @Override
+                    public void run() throws Exception {
+                        assertEquals(articleCount, decoder.decodePage(new ByteArrayInputStream(response)).size());
+                    }
+                });
+        System.out.println(String.format("decoder throughput: %.1f MB/s", response.length * 1000.0 / medianNanos));
+        assertTrue(medianNanos < 2000 * 1000000L);
+    }
+}
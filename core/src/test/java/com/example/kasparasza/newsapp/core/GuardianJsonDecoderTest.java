@@ -0,0 +1,126 @@
+package com.example.kasparasza.newsapp.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of GuardianJsonDecoder: the fields of the articles, and the responses that are not what the app expects.
+ */
+public class GuardianJsonDecoderTest {
+
+    private GuardianJsonDecoder<Article> decoder = new GuardianJsonDecoder<Article>(TestPages.ARTICLE_FACTORY);
+
+    @Test
+    public void decodesFieldsOfArticles() throws Exception {
+        List<Article> articleList = decoder.decodePage(stream(TestPages.createPageJson(0, 3)));
+
+        assertEquals(3, articleList.size());
+        Article article = articleList.get(1);
+        assertEquals("Headline of article 1", article.getHeadline());
+        assertEquals("by Agencies", article.getAuthor());
+        assertEquals(TestPages.NEWEST_PUBLISHED_MILLIS - 60000L, article.getTimePublishedMillis());
+        assertEquals("Trail text of article 1 with <strong>some</strong> markup", article.getStartText());
+        assertEquals("https://media.guim.co.uk/1/500.jpg", article.getImageLink());
+        assertEquals("https://www.theguardian.com/world/2017/jul/17/article-1", article.getArticleLink());
+        assertEquals("UK news", article.getSection());
+    }
+
+    @Test
+    public void missingAndNullFieldsGetDefaults() throws Exception {
+        List<Article> articleList = decoder.decodePage(stream(
+                "{\"response\":{\"results\":[{\"webUrl\":\"https://www.theguardian.com/a\",\"webTitle\":null,\"fields\":{\"byline\":null}}]}}"));
+
+        assertEquals(1, articleList.size());
+        Article article = articleList.get(0);
+        assertEquals(Article.NO_HEADLINE_STRING, article.getHeadline());
+        assertEquals(Article.NO_AUTHOR_STRING, article.getAuthor());
+        assertEquals(Article.NO_SECTION_STRING, article.getSection());
+        assertEquals(TimestampCodec.UNKNOWN_TIME, article.getTimePublishedMillis());
+        assertEquals("", article.getImageLink());
+    }
+
+    @Test
+    public void authorPartOfHeadlineIsDiscarded() {
+        assertEquals("Headline", GuardianJsonDecoder.readHeadline("Headline | Author"));
+        assertEquals("Headline", GuardianJsonDecoder.readHeadline("Headline|Author"));
+        assertEquals("Headline", GuardianJsonDecoder.readHeadline("Headline"));
+    }
+
+    @Test
+    public void separatorAtStartOfHeadlineDoesNotCrash() throws Exception {
+        assertEquals(Article.NO_HEADLINE_STRING, GuardianJsonDecoder.readHeadline("| Author"));
+        assertEquals(Article.NO_HEADLINE_STRING, GuardianJsonDecoder.readHeadline("|"));
+
+        List<Article> articleList = decoder.decodePage(stream("{\"response\":{\"results\":[{\"webTitle\":\"|Author\"}]}}"));
+        assertEquals(1, articleList.size());
+        assertEquals(Article.NO_HEADLINE_STRING, articleList.get(0).getHeadline());
+    }
+
+    @Test
+    public void responseWithoutResultsIsEmpty() throws Exception {
+        assertTrue(decoder.decodePage(stream("{\"response\":{\"status\":\"ok\",\"total\":0}}")).isEmpty());
+        assertTrue(decoder.decodePage(stream("{\"message\":\"API rate limit exceeded\"}")).isEmpty());
+        assertTrue(decoder.decodePage(stream("{\"response\":{\"results\":{}}}")).isEmpty());
+        assertTrue(decoder.decodePage(null).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void unexpectedItemFailsWholePage() throws Exception {
+        // the second item is not an object: the first one is not returned as the page
+        decoder.decodePage(stream("{\"response\":{\"results\":[{\"webTitle\":\"First\"},[1,2]]}}"));
+    }
+
+    @Test(expected = IOException.class)
+    public void unexpectedRootThrowsIOException() throws Exception {
+        decoder.decodePage(stream("[]"));
+    }
+
+    @Test(expected = IOException.class)
+    public void unexpectedFieldsThrowIOException() throws Exception {
+        decoder.decodePage(stream("{\"response\":{\"results\":[{\"fields\":\"text\"}]}}"));
+    }
+
+    @Test(expected = IOException.class)
+    public void unexpectedTokensOfBodiesThrowIOException() throws Exception {
+        decoder.decodeBodies(stream("{\"response\":{\"results\":[[1,2]]}}"));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedResponseThrowsIOException() throws Exception {
+        String json = TestPages.createPageJson(0, 3);
+        decoder.decodePage(stream(json.substring(0, json.length() / 2)));
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedResponseThrowsIOException() throws Exception {
+        decoder.decodePage(stream("{\"response\":{\"results\":[{\"webTitle\" \"missing colon\"}]}}"));
+    }
+
+    @Test(expected = IOException.class)
+    public void emptyResponseThrowsIOException() throws Exception {
+        decoder.decodePage(stream(""));
+    }
+
+    @Test
+    public void decodesBodiesByLink() throws Exception {
+        Map<String, String> bodies = decoder.decodeBodies(stream("{\"response\":{\"results\":["
+                + "{\"webUrl\":\"https://www.theguardian.com/a\",\"fields\":{\"body\":\"<p>A</p>\"}},"
+                + "{\"webUrl\":\"https://www.theguardian.com/b\",\"fields\":{\"body\":\"\"}},"
+                + "{\"webUrl\":\"https://www.theguardian.com/c\",\"fields\":{\"body\":null}},"
+                + "{\"fields\":{\"body\":\"<p>no link</p>\"}}]}}"));
+
+        assertEquals(1, bodies.size());
+        assertEquals("<p>A</p>", bodies.get("https://www.theguardian.com/a"));
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(TestPages.UTF_8));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.kasparasza.newsapp.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of StringInternPool: the sections and bylines of decoded articles share their instances,
+ * and the pool stays within its bound.
+ */
+public class StringInternPoolTest {
+
+    private static final int ARTICLE_COUNT = 5000;
+
+    @Test
+    public void decodedArticlesShareSectionsAndBylines() throws Exception {
+        List<Article> articleList = decodeArticles();
+        assertEquals(ARTICLE_COUNT, articleList.size());
+
+        Set<String> sections = Collections.newSetFromMap(new IdentityHashMap<String, Boolean>());
+        Set<String> authors = Collections.newSetFromMap(new IdentityHashMap<String, Boolean>());
+        for (Article article : articleList) {
+            sections.add(article.getSection());
+            authors.add(article.getAuthor());
+        }
+        // one instance of each distinct value
+        assertEquals(TestPages.SECTIONS.length, sections.size());
+        assertEquals(TestPages.BYLINES.length, authors.size());
+        assertTrue(StringInternPool.size() <= StringInternPool.POOL_SIZE);
+    }
+
+    @Test
+    public void pooledValuesRetainFewerCharsThanCopies() throws Exception {
+        List<Article> articleList = decodeArticles();
+        // the fields as decoded (pooled), and as they would be held with a copy per article
+        List<String> pooledValues = new ArrayList<String>();
+        List<String> copiedValues = new ArrayList<String>();
+        for (Article article : articleList) {
+            pooledValues.add(article.getSection());
+            pooledValues.add(article.getAuthor());
+            copiedValues.add(new String(article.getSection()));
+            copiedValues.add(new String(article.getAuthor()));
+        }
+        long pooledChars = retainedChars(pooledValues);
+        long copiedChars = retainedChars(copiedValues);
+        // a few dozen distinct instances are retained instead of two per article
+        assertTrue("pooled " + pooledChars + " chars, copied " + copiedChars + " chars",
+                pooledChars * 100 < copiedChars);
+    }
+
+    @Test
+    public void equalValuesShareOneInstance() {
+        String value = StringInternPool.intern(new String("by Guardian staff"));
+        assertSame(value, StringInternPool.intern(new String("by Guardian staff")));
+    }
+
+    @Test
+    public void poolStaysWithinItsBound() {
+        String recent = null;
+        int index;
+        for (index = 0; index < ARTICLE_COUNT; index++) {
+            recent = StringInternPool.intern(new String("by One-off Contributor " + index));
+        }
+        assertEquals(StringInternPool.POOL_SIZE, StringInternPool.size());
+
+        // the least recently used values have been dropped: an equal value is pooled anew
+        String dropped = new String("by One-off Contributor 0");
+        assertSame(dropped, StringInternPool.intern(dropped));
+        // the most recently used ones are still shared
+        assertSame(recent, StringInternPool.intern(new String("by One-off Contributor " + (ARTICLE_COUNT - 1))));
+        assertEquals(StringInternPool.POOL_SIZE, StringInternPool.size());
+    }
+
+    @Test
+    public void longAndNullValuesAreNotPooled() {
+        StringBuilder longValue = new StringBuilder();
+        while (longValue.length() <= StringInternPool.MAX_POOLED_LENGTH) {
+            longValue.append("long byline ");
+        }
+        String value = longValue.toString();
+        assertSame(value, StringInternPool.intern(value));
+        String copy = new String(value);
+        assertSame(copy, StringInternPool.intern(copy));
+        assertNull(StringInternPool.intern(null));
+    }
+
+    // decodes ARTICLE_COUNT articles page by page, as the app does
+    private static List<Article> decodeArticles() throws Exception {
+        GuardianJsonDecoder<Article> decoder = new GuardianJsonDecoder<Article>(TestPages.ARTICLE_FACTORY);
+        List<Article> articleList = new ArrayList<Article>();
+        int firstIndex;
+        for (firstIndex = 0; firstIndex < ARTICLE_COUNT; firstIndex += GuardianQueryBuilder.PAGE_SIZE) {
+            articleList.addAll(decoder.decodePage(new ByteArrayInputStream(
+                    TestPages.createPageBytes(firstIndex, GuardianQueryBuilder.PAGE_SIZE))));
+        }
+        return articleList;
+    }
+
+    // sums the chars held by the distinct instances among the values (an instance shared by several articles
+    // is counted once)
+    private static long retainedChars(List<String> values) {
+        Set<String> instances = Collections.newSetFromMap(new IdentityHashMap<String, Boolean>());
+        instances.addAll(values);
+        long chars = 0;
+        for (String instance : instances) {
+            chars += instance.length();
+        }
+        return chars;
+    }
+}
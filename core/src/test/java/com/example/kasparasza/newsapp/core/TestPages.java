@@ -0,0 +1,62 @@
+package com.example.kasparasza.newsapp.core;
+
+import java.nio.charset.Charset;
+
+/**
+ * Synthetic responses of the Guardian API and an ArticleFactory of plain Article objects, shared by the tests
+ * of the core module.
+ */
+final class TestPages {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    // publishing time of the first article of the synthetic pages (2017-07-17T23:01:03Z)
+    static final long NEWEST_PUBLISHED_MILLIS = 1500332463000L;
+    static final String[] SECTIONS = {"World news", "UK news", "Politics", "Sport", "Opinion", "Business"};
+    static final String[] BYLINES = {"Guardian staff", "Agencies", "Jane Smith", "John Doe"};
+
+    static final ArticleFactory<Article> ARTICLE_FACTORY = new ArticleFactory<Article>() {
+        @Override
+        public Article create(String headline, String author, String timePublished, long timePublishedMillis,
+                              String startText, String imageLink, String articleLink, String section) {
+            return new Article(headline, author, timePublished, timePublishedMillis, startText, imageLink, articleLink, section);
+        }
+    };
+
+    /**
+     * Create a private constructor because no one should ever create a {@link TestPages} object.
+     */
+    private TestPages() {
+    }
+
+    /**
+     * @param firstIndex index of the first article of the page (the articles are one minute apart)
+     * @param count number of articles of the page
+     * @return JSON response of a page query
+     */
+    static String createPageJson(int firstIndex, int count) {
+        StringBuilder json = new StringBuilder(count * 500);
+        json.append("{\"response\":{\"status\":\"ok\",\"total\":100000,\"results\":[");
+        int index;
+        for (index = firstIndex; index < firstIndex + count; index++) {
+            if (index > firstIndex) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"world/2017/jul/17/article-").append(index).append('"')
+                    .append(",\"sectionName\":\"").append(SECTIONS[index % SECTIONS.length]).append('"')
+                    .append(",\"webPublicationDate\":\"")
+                    .append(TimestampCodec.formatIsoTimestamp(NEWEST_PUBLISHED_MILLIS - index * 60000L)).append('"')
+                    .append(",\"webTitle\":\"Headline of article ").append(index).append(" | ")
+                    .append(BYLINES[index % BYLINES.length]).append('"')
+                    .append(",\"webUrl\":\"https://www.theguardian.com/world/2017/jul/17/article-").append(index).append('"')
+                    .append(",\"fields\":{\"trailText\":\"Trail text of article ").append(index)
+                    .append(" with <strong>some</strong> markup\",\"byline\":\"").append(BYLINES[index % BYLINES.length])
+                    .append("\",\"thumbnail\":\"https://media.guim.co.uk/").append(index).append("/500.jpg\"}}");
+        }
+        json.append("]}}");
+        return json.toString();
+    }
+
+    static byte[] createPageBytes(int firstIndex, int count) {
+        return createPageJson(firstIndex, count).getBytes(UTF_8);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.kasparasza.newsapp.core;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests of TimestampCodec: parsing and formatting of the ISO timestamps of the API (compared with
+ * SimpleDateFormat), the timestamps that are rejected, and the displayed format.
+ */
+public class TimestampCodecTest {
+
+    private static final TimeZone DEFAULT_TIME_ZONE = TimeZone.getDefault();
+    private static final Locale DEFAULT_LOCALE = Locale.getDefault();
+
+    @After
+    public void restoreDisplaySettings() {
+        TimeZone.setDefault(DEFAULT_TIME_ZONE);
+        Locale.setDefault(DEFAULT_LOCALE);
+        TimestampCodec.onDisplaySettingsChanged();
+    }
+
+    @Test
+    public void parsesTimestamps() {
+        assertEquals(0L, TimestampCodec.parseIsoTimestamp("1970-01-01T00:00:00Z"));
+        assertEquals(1500332463000L, TimestampCodec.parseIsoTimestamp("2017-07-17T23:01:03Z"));
+        assertEquals(951782400000L, TimestampCodec.parseIsoTimestamp("2000-02-29T00:00:00Z"));
+        assertEquals(-1000L, TimestampCodec.parseIsoTimestamp("1969-12-31T23:59:59Z"));
+    }
+
+    @Test
+    public void parsingMatchesSimpleDateFormat() throws Exception {
+        SimpleDateFormat reference = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.ROOT);
+        reference.setTimeZone(TimeZone.getTimeZone("UTC"));
+        long timeMillis;
+        // every 7 hours, 13 minutes and 17 seconds over 60 years (leap years and month ends included)
+        for (timeMillis = 0; timeMillis < 60 * 365 * 24 * 3600 * 1000L; timeMillis += ((7 * 60 + 13) * 60 + 17) * 1000L) {
+            String timestamp = reference.format(new Date(timeMillis));
+            assertEquals(timestamp, TimestampCodec.formatIsoTimestamp(timeMillis));
+            assertEquals(timeMillis, TimestampCodec.parseIsoTimestamp(timestamp));
+        }
+    }
+
+    @Test
+    public void formattingTruncatesMilliseconds() {
+        assertEquals("2017-07-17T23:01:03Z", TimestampCodec.formatIsoTimestamp(1500332463999L));
+        assertEquals("1969-12-31T23:59:59Z", TimestampCodec.formatIsoTimestamp(-1L));
+    }
+
+    @Test
+    public void rejectsOtherFormats() {
+        assertEquals(TimestampCodec.UNKNOWN_TIME, TimestampCodec.parseIsoTimestamp(null));
+        assertEquals(TimestampCodec.UNKNOWN_TIME, TimestampCodec.parseIsoTimestamp(""));
+        assertEquals(TimestampCodec.UNKNOWN_TIME, TimestampCodec.parseIsoTimestamp("2017-07-17"));
+        assertEquals(TimestampCodec.UNKNOWN_TIME, TimestampCodec.parseIsoTimestamp("2017-07-17T23:01:03.000Z"));
+        assertEquals(TimestampCodec.UNKNOWN_TIME, TimestampCodec.parseIsoTimestamp("2017-07-17 23:01:03Z"));
+        assertEquals(TimestampCodec.UNKNOWN_TIME, TimestampCodec.parseIsoTimestamp("2017-07-17T23:01:03+"));
+        assertEquals(TimestampCodec.UNKNOWN_TIME, TimestampCodec.parseIsoTimestamp("2017-13-17T23:01:03Z"));
+        assertEquals(TimestampCodec.UNKNOWN_TIME, TimestampCodec.parseIsoTimestamp("2017-07-00T23:01:03Z"));
+        assertEquals(TimestampCodec.UNKNOWN_TIME, TimestampCodec.parseIsoTimestamp("2017-07-17T24:01:03Z"));
+        assertEquals(TimestampCodec.UNKNOWN_TIME, TimestampCodec.parseIsoTimestamp("2017-07-17T23:60:03Z"));
+        assertEquals(TimestampCodec.UNKNOWN_TIME, TimestampCodec.parseIsoTimestamp("2017-0a-17T23:01:03Z"));
+    }
+
+    @Test
+    public void unknownTimeIsDisplayedEmpty() {
+        assertEquals("", TimestampCodec.formatForDisplay(TimestampCodec.UNKNOWN_TIME));
+        assertEquals("", TimestampCodec.formatIsoTimestampForDisplay("not a timestamp"));
+    }
+
+    @Test
+    public void displayedInDefaultTimeZone() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        TimestampCodec.onDisplaySettingsChanged();
+        String utc = TimestampCodec.formatIsoTimestampForDisplay("2017-07-17T23:01:03Z");
+        assertEquals(displayFormat("UTC").format(new Date(1500332463000L)), utc);
+
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Vilnius"));
+        TimestampCodec.onDisplaySettingsChanged();
+        String vilnius = TimestampCodec.formatIsoTimestampForDisplay("2017-07-17T23:01:03Z");
+        assertEquals(displayFormat("Europe/Vilnius").format(new Date(1500332463000L)), vilnius);
+        assertFalse(utc.equals(vilnius));
+    }
+
+    @Test
+    public void timeZoneIsKeptUntilChangeIsReported() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        TimestampCodec.onDisplaySettingsChanged();
+        String utc = TimestampCodec.formatForDisplay(1500332463000L);
+
+        // the zone is not read again on each call (also not for a time that is not cached yet)
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Vilnius"));
+        assertSame(utc, TimestampCodec.formatForDisplay(1500332463000L));
+        assertEquals(displayFormat("UTC").format(new Date(1500339663000L)), TimestampCodec.formatForDisplay(1500339663000L));
+    }
+
+    @Test
+    public void displayedInLocaleOfDevice() {
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        Locale.setDefault(Locale.US);
+        TimestampCodec.onDisplaySettingsChanged();
+        assertEquals("Jul 17, 23:01", TimestampCodec.formatForDisplay(1500332463000L));
+
+        Locale.setDefault(Locale.GERMANY);
+        TimestampCodec.onDisplaySettingsChanged();
+        assertEquals(displayFormat("UTC").format(new Date(1500332463000L)), TimestampCodec.formatForDisplay(1500332463000L));
+    }
+
+    @Test
+    public void articlesOfSameMinuteShareDisplayedString() {
+        assertSame(TimestampCodec.formatForDisplay(1500332460000L), TimestampCodec.formatForDisplay(1500332519999L));
+    }
+
+    private static SimpleDateFormat displayFormat(String timeZoneId) {
+        SimpleDateFormat format = new SimpleDateFormat("MMM dd, HH:mm", Locale.getDefault());
+        format.setTimeZone(TimeZone.getTimeZone(timeZoneId));
+        return format;
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.kasparasza.newsapp.loadtest;
+
+import com.example.kasparasza.newsapp.core.Article;
+import com.example.kasparasza.newsapp.core.ArticleFactory;
+import com.example.kasparasza.newsapp.core.ArticleMergeIndex;
+import com.example.kasparasza.newsapp.core.GuardianHttpClient;
+import com.example.kasparasza.newsapp.core.GuardianJsonDecoder;
+import com.example.kasparasza.newsapp.core.GuardianQueryBuilder;
+import com.example.kasparasza.newsapp.core.MetricsRegistry;
+import com.example.kasparasza.newsapp.core.PageClient;
+import com.example.kasparasza.newsapp.core.PageResponse;
+import com.example.kasparasza.newsapp.core.QueryBuilder;
+import com.example.kasparasza.newsapp.core.ResponseDecoder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test of the page-loading path against MockGuardianServer: M concurrent clients each load pages 1..N the way
+ * NewsArticleLoader.loadInBackground does over the network (query URL -> GuardianHttpClient -> decoder), and merge
+ * them into their own ArticleMergeIndex the way WindowedArticleList does. The stages are timed separately:
+ * - request: connection, query and response headers, plus draining of the body after it was decoded;
+ * - decode: reading the body from the connection while it is parsed into articles;
+ * - merge: merging the page into the index of the client;
+ * - page: the whole page, end to end.
+ * The breakdown of the request recorded by the client itself (MetricsRegistry) is printed after the stages.
+ * The local store of the app (SQLite) and the rendering of the trail text need Android, so they are not part of
+ * the measured path.
+ *
+ * Arguments (all optional): --pages=N --clients=M --warmup=pages --latency=ms --bandwidth=bytes/s --errors=rate
+ * --articles=per page --text=trail text length --gzip=true|false --recordings=directory --seed=number
+ * With --serve=true the server is only started (on --port) with the given faults, e.g. for a debug build of the app
+ * whose GUARDIAN_BASE_URL points at it; it runs until the process is stopped.
+ */
+
+public class LoadTestHarness {
+
+    // String constants used:
+    private static final String PRODUCTION_OFFICE = "uk";
+
+    /**
+     * Create a private constructor because no one should ever create a {@link LoadTestHarness} object.
+     */
+    private LoadTestHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int pages = Integer.parseInt(getOption(options, "pages", "20"));
+        int clients = Integer.parseInt(getOption(options, "clients", "4"));
+        int warmupPages = Integer.parseInt(getOption(options, "warmup", "50"));
+        String recordings = getOption(options, "recordings", null);
+
+        boolean serveOnly = Boolean.parseBoolean(getOption(options, "serve", "false"));
+        MockGuardianServer server = new MockGuardianServer(
+                Integer.parseInt(getOption(options, "port", serveOnly ? "8080" : "0")), recordings != null ? new File(recordings) : null,
+                Long.parseLong(getOption(options, "seed", "1")));
+        server.setArticlesPerPage(Integer.parseInt(getOption(options, "articles", "20")));
+        server.setTrailTextLength(Integer.parseInt(getOption(options, "text", "200")));
+        server.setGzipEnabled(Boolean.parseBoolean(getOption(options, "gzip", "true")));
+        server.start();
+        if (serveOnly) {
+            server.setLatencyMillis(Long.parseLong(getOption(options, "latency", "0")));
+            server.setBandwidthBytesPerSecond(Long.parseLong(getOption(options, "bandwidth", "0")));
+            server.setErrorRate(Double.parseDouble(getOption(options, "errors", "0")));
+            return;
+        }
+        try {
+            QueryBuilder queryBuilder = new GuardianQueryBuilder(server.getBaseUrl());
+            PageClient pageClient = GuardianHttpClient.getInstance();
+
+            // the warm-up runs without the injected faults, and its samples are discarded
+            if (warmupPages > 0) {
+                runClients(queryBuilder, pageClient, 1, warmupPages, new StageRecorder());
+            }
+            server.setLatencyMillis(Long.parseLong(getOption(options, "latency", "0")));
+            server.setBandwidthBytesPerSecond(Long.parseLong(getOption(options, "bandwidth", "0")));
+            server.setErrorRate(Double.parseDouble(getOption(options, "errors", "0")));
+            MetricsRegistry.getInstance().reset();
+
+            StageRecorder recorder = new StageRecorder();
+            long wireBytesBefore = GuardianHttpClient.getInstance().getWireBytes();
+            long startTime = System.nanoTime();
+            RunTotals totals = runClients(queryBuilder, pageClient, clients, pages, recorder);
+            long wallNanos = System.nanoTime() - startTime;
+            long wireBytes = GuardianHttpClient.getInstance().getWireBytes() - wireBytesBefore;
+
+            System.out.println(String.format(Locale.US, "%d clients x %d pages: %d loaded, %d failed in %.2f s",
+                    clients, pages, totals.loadedPages.get(), totals.failedPages.get(), wallNanos / 1e9));
+            System.out.println(String.format(Locale.US, "throughput: %.1f pages/s, %.1f articles/s, %.1f KB/s over the wire",
+                    totals.loadedPages.get() * 1e9 / wallNanos, totals.articles.get() * 1e9 / wallNanos,
+                    wireBytes / 1024.0 * 1e9 / wallNanos));
+            recorder.printReport(System.out, wallNanos);
+            System.out.println();
+            System.out.print(MetricsRegistry.getInstance().dump());
+        } finally {
+            server.stop();
+        }
+    }
+
+    // runs the clients at once, and waits for all of them to finish
+    private static RunTotals runClients(final QueryBuilder queryBuilder, final PageClient pageClient, int clients,
+                                        final int pages, final StageRecorder recorder) throws InterruptedException {
+        final RunTotals totals = new RunTotals();
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final CountDownLatch doneSignal = new CountDownLatch(clients);
+        List<Thread> threads = new ArrayList<Thread>(clients);
+        int client;
+        for (client = 0; client < clients; client++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startSignal.await();
+                        runClient(queryBuilder, pageClient, pages, recorder, totals);
+                    } catch (InterruptedException exc_01) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        doneSignal.countDown();
+                    }
+                }
+            }, "client-" + client);
+            thread.start();
+            threads.add(thread);
+        }
+        startSignal.countDown();
+        doneSignal.await();
+        return totals;
+    }
+
+    // loads the pages one after another, as the endless scrolling of a single list does
+    private static void runClient(QueryBuilder queryBuilder, PageClient pageClient, int pages,
+                                  StageRecorder recorder, RunTotals totals) {
+        TimingDecoder decoder = new TimingDecoder(new GuardianJsonDecoder<Article>(ARTICLE_FACTORY));
+        ArticleMergeIndex<Article> mergeIndex = new ArticleMergeIndex<Article>();
+        String fromDate = GuardianQueryBuilder.prepareFromDateParameter("last 30 days");
+        int page;
+        for (page = 1; page <= pages; page++) {
+            long pageStart = System.nanoTime();
+            PageResponse<Article> pageResponse;
+            try {
+                URL url = new URL(queryBuilder.createPageUrlString(PRODUCTION_OFFICE, fromDate,
+                        GuardianQueryBuilder.ORDER_BY_NEWEST, page));
+                decoder.decodeNanos = 0;
+                pageResponse = pageClient.performPageRequest(url, null, decoder);
+            } catch (IOException exc_02) {
+                pageResponse = null;
+            }
+            long fetchEnd = System.nanoTime();
+            if (pageResponse == null || pageResponse.isFailed()) {
+                totals.failedPages.incrementAndGet();
+                recorder.record("failed", fetchEnd - pageStart);
+                continue;
+            }
+            recorder.record("request", fetchEnd - pageStart - decoder.decodeNanos);
+            recorder.record("decode", decoder.decodeNanos);
+
+            long mergeStart = System.nanoTime();
+            List<Article> pageItems = mergeIndex.mergePage(page, pageResponse.getArticleList(), IGNORE_DUPLICATES);
+            long pageEnd = System.nanoTime();
+            recorder.record("merge", pageEnd - mergeStart);
+            recorder.record("page", pageEnd - pageStart);
+            totals.loadedPages.incrementAndGet();
+            totals.articles.addAndGet(pageItems.size());
+        }
+    }
+
+    private static final ArticleFactory<Article> ARTICLE_FACTORY = new ArticleFactory<Article>() {
+        @Override
+        public Article create(String headline, String author, String timePublished, long timePublishedMillis,
+                              String startText, String imageLink, String articleLink, String section) {
+            return new Article(headline, author, timePublished, timePublishedMillis,
+                    startText, imageLink, articleLink, section);
+        }
+    };
+
+    // the clients keep no list of their own, so there is no shown copy to reconcile
+    private static final ArticleMergeIndex.Reconciler<Article> IGNORE_DUPLICATES = new ArticleMergeIndex.Reconciler<Article>() {
+        @Override
+        public void onDuplicate(int page, int offset, Article article) {
+        }
+    };
+
+    // decoder that measures how long the decoding of the last page took (used by a single client thread)
+    private static class TimingDecoder implements ResponseDecoder<Article> {
+        private ResponseDecoder<Article> decoder;
+        private long decodeNanos;
+
+        private TimingDecoder(ResponseDecoder<Article> mDecoder) {
+            decoder = mDecoder;
+        }
+
+        @Override
+        public List<Article> decodePage(InputStream stream) throws IOException {
+            long startTime = System.nanoTime();
+            try {
+                return decoder.decodePage(stream);
+            } finally {
+                decodeNanos = System.nanoTime() - startTime;
+            }
+        }
+
+        @Override
+        public Map<String, String> decodeBodies(InputStream stream) throws IOException {
+            return decoder.decodeBodies(stream);
+        }
+    }
+
+    // totals of a run, shared by its clients
+    private static class RunTotals {
+        private final AtomicInteger loadedPages = new AtomicInteger();
+        private final AtomicInteger failedPages = new AtomicInteger();
+        private final AtomicLong articles = new AtomicLong();
+    }
+
+    // parses the arguments of the form --name=value
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<String, String>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static String getOption(Map<String, String> options, String name, String defaultValue) {
+        String value = options.get(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,380 @@
+package com.example.kasparasza.newsapp.loadtest;
+
+import com.example.kasparasza.newsapp.core.TimestampCodec;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Local stand-in of the "search" endpoint of the Guardian API, so that the page-loading path can be measured
+ * reproducibly (the real API is shared, rate limited and changes with every published article).
+ * - Page queries are answered with a recorded response, if there is one in the recordings directory
+ *   ("search-page-<page>.json", or "search.json" for any page), otherwise with a synthetic page of
+ *   articlesPerPage articles whose trail text is trailTextLength characters long.
+ * - Body queries ("ids" parameter) are answered with synthetic bodies of bodyLength characters.
+ * - Faults can be injected: a latency before the response headers (time to first byte), a bandwidth limit
+ *   of the response body, and a rate of 5xx errors.
+ * - Responses are gzipped when the client accepts it, and carry an ETag (a conditional query gets a 304).
+ * The settings can be changed while the server is running; the random faults are seeded, so a run can be repeated.
+ */
+
+public class MockGuardianServer {
+
+    // String constants used:
+    private static final Logger LOGGER = Logger.getLogger(MockGuardianServer.class.getSimpleName());
+    private static final String SEARCH_PATH = "/search";
+    private static final String ENCODING_GZIP = "gzip";
+    // publishing time of the newest synthetic article; the others are a minute older each
+    private static final long NEWEST_PUBLISHED_MILLIS = 1500332463000L;
+    private static final long MILLIS_PER_MINUTE = 60 * 1000L;
+    // size of the chunks in which a body is written when the bandwidth is limited
+    private static final int MIN_CHUNK_BYTES = 512;
+
+    // members of the class:
+    private HttpServer httpServer;
+    private ExecutorService executor;
+    private File recordingsDirectory;
+    private volatile long latencyMillis;
+    private volatile long bandwidthBytesPerSecond;
+    private volatile double errorRate;
+    private volatile int errorCode = HttpURLConnection.HTTP_UNAVAILABLE;
+    private volatile int articlesPerPage = 20;
+    private volatile int trailTextLength = 200;
+    private volatile int bodyLength = 8000;
+    private volatile boolean gzipEnabled = true;
+    private final Random random;
+    // responses by the query (path and parameters that select the content), uncompressed and gzipped
+    private final Map<String, byte[]> responses = new ConcurrentHashMap<String, byte[]>();
+    private final Map<String, byte[]> gzippedResponses = new ConcurrentHashMap<String, byte[]>();
+
+    /**
+     * @param mPort port to listen on (0 picks a free one)
+     * @param mRecordingsDirectory directory of the recorded responses, may be null
+     * @param seed seed of the random faults
+     */
+    public MockGuardianServer(int mPort, File mRecordingsDirectory, long seed) throws IOException {
+        recordingsDirectory = mRecordingsDirectory;
+        random = new Random(seed);
+        // without TCP_NODELAY, the headers and the body of a response go out in separate segments, and the
+        // second one waits for the delayed ACK of the client (~40 ms on localhost) - it would dwarf the measured path
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        httpServer = HttpServer.create(new InetSocketAddress(mPort), 64);
+        httpServer.createContext(SEARCH_PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    handleSearch(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        // each exchange gets its own thread, so that the injected latency of one does not delay the others
+        executor = Executors.newCachedThreadPool();
+        httpServer.setExecutor(executor);
+    }
+
+    public void start() {
+        httpServer.start();
+        LOGGER.info("Mock server listening on " + getBaseUrl());
+    }
+
+    public void stop() {
+        httpServer.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return base URL of the server, to be given to GuardianQueryBuilder
+     */
+    public String getBaseUrl() {
+        return "http://localhost:" + httpServer.getAddress().getPort() + "/";
+    }
+
+    // implementation of setter methods of the injected faults and of the payloads
+    public void setLatencyMillis(long mLatencyMillis) {
+        latencyMillis = mLatencyMillis;
+    }
+
+    // 0 means no limit
+    public void setBandwidthBytesPerSecond(long mBandwidthBytesPerSecond) {
+        bandwidthBytesPerSecond = mBandwidthBytesPerSecond;
+    }
+
+    // share of the queries (0..1) answered with errorCode
+    public void setErrorRate(double mErrorRate) {
+        errorRate = mErrorRate;
+    }
+
+    public void setErrorCode(int mErrorCode) {
+        errorCode = mErrorCode;
+    }
+
+    public void setArticlesPerPage(int mArticlesPerPage) {
+        articlesPerPage = mArticlesPerPage;
+        clearResponses();
+    }
+
+    public void setTrailTextLength(int mTrailTextLength) {
+        trailTextLength = mTrailTextLength;
+        clearResponses();
+    }
+
+    public void setBodyLength(int mBodyLength) {
+        bodyLength = mBodyLength;
+        clearResponses();
+    }
+
+    public void setGzipEnabled(boolean mGzipEnabled) {
+        gzipEnabled = mGzipEnabled;
+    }
+
+    // the payloads are created again with the changed settings
+    private void clearResponses() {
+        responses.clear();
+        gzippedResponses.clear();
+    }
+
+    // answers a single query of the "search" endpoint
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+        // the request body (if any) is read, so that the connection can be reused
+        drain(exchange.getRequestBody());
+
+        sleep(latencyMillis);
+        if (errorRate > 0 && nextDouble() < errorRate) {
+            byte[] errorBody = "{\"response\":{\"status\":\"error\"}}".getBytes("UTF-8");
+            exchange.sendResponseHeaders(errorCode, errorBody.length);
+            writeThrottled(exchange.getResponseBody(), errorBody);
+            return;
+        }
+
+        String key;
+        if (parameters.containsKey("ids")) {
+            key = "bodies:" + parameters.get("ids");
+        } else {
+            key = "page:" + parseInt(parameters.get("page"), 1);
+        }
+        byte[] body = getResponse(key, parameters);
+        String eTag = "\"" + Integer.toHexString(key.hashCode()) + "-" + body.length + "\"";
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.getResponseHeaders().set("ETag", eTag);
+        if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+            return;
+        }
+
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (gzipEnabled && acceptEncoding != null && acceptEncoding.contains(ENCODING_GZIP)) {
+            byte[] gzippedBody = gzippedResponses.get(key);
+            if (gzippedBody == null) {
+                gzippedBody = gzip(body);
+                gzippedResponses.put(key, gzippedBody);
+            }
+            body = gzippedBody;
+            exchange.getResponseHeaders().set("Content-Encoding", ENCODING_GZIP);
+        }
+        exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+        writeThrottled(exchange.getResponseBody(), body);
+    }
+
+    // returns the (cached) uncompressed response of a query
+    private byte[] getResponse(String key, Map<String, String> parameters) throws IOException {
+        byte[] body = responses.get(key);
+        if (body != null) {
+            return body;
+        }
+        if (parameters.containsKey("ids")) {
+            body = createBodiesResponse(parameters.get("ids").split(","));
+        } else {
+            int page = parseInt(parameters.get("page"), 1);
+            body = readRecording(page);
+            if (body == null) {
+                body = createPageResponse(page);
+            }
+        }
+        responses.put(key, body);
+        return body;
+    }
+
+    // reads the recorded response of a page, if there is one
+    private byte[] readRecording(int page) throws IOException {
+        if (recordingsDirectory == null) {
+            return null;
+        }
+        File recording = new File(recordingsDirectory, "search-page-" + page + ".json");
+        if (!recording.isFile()) {
+            recording = new File(recordingsDirectory, "search.json");
+        }
+        if (!recording.isFile()) {
+            return null;
+        }
+        InputStream inputStream = new FileInputStream(recording);
+        try {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) recording.length());
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    // creates a synthetic page in the format of the API (the fields that the app reads, and a few that it skips)
+    private byte[] createPageResponse(int page) throws UnsupportedEncodingException {
+        int pageSize = articlesPerPage;
+        StringBuilder json = new StringBuilder(pageSize * (trailTextLength + 400));
+        json.append("{\"response\":{\"status\":\"ok\",\"userTier\":\"developer\",\"pageSize\":").append(pageSize)
+                .append(",\"currentPage\":").append(page).append(",\"results\":[");
+        int index;
+        for (index = 0; index < pageSize; index++) {
+            int number = (page - 1) * pageSize + index;
+            String id = "mock/2017/jul/17/article-" + number;
+            if (index > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(id).append("\",\"type\":\"article\",\"sectionId\":\"section-")
+                    .append(number % 7).append("\",\"sectionName\":\"Section ").append(number % 7)
+                    .append("\",\"webPublicationDate\":\"")
+                    .append(TimestampCodec.formatIsoTimestamp(NEWEST_PUBLISHED_MILLIS - number * MILLIS_PER_MINUTE))
+                    .append("\",\"webTitle\":\"Headline of the mock article ").append(number)
+                    .append(" | Author ").append(number % 11)
+                    .append("\",\"webUrl\":\"https://www.theguardian.com/").append(id)
+                    .append("\",\"apiUrl\":\"https://content.guardianapis.com/").append(id)
+                    .append("\",\"fields\":{\"trailText\":\"");
+            appendText(json, trailTextLength, number);
+            json.append("\",\"byline\":\"Author ").append(number % 11)
+                    .append("\",\"thumbnail\":\"https://media.guim.co.uk/mock/").append(number).append(".jpg\"}")
+                    .append(",\"isHosted\":false,\"pillarName\":\"News\"}");
+        }
+        json.append("]}}");
+        return json.toString().getBytes("UTF-8");
+    }
+
+    // creates a synthetic response of a body query
+    private byte[] createBodiesResponse(String[] ids) throws UnsupportedEncodingException {
+        StringBuilder json = new StringBuilder(ids.length * (bodyLength + 200));
+        json.append("{\"response\":{\"status\":\"ok\",\"results\":[");
+        int index;
+        for (index = 0; index < ids.length; index++) {
+            if (index > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"").append(ids[index]).append("\",\"webUrl\":\"https://www.theguardian.com/")
+                    .append(ids[index]).append("\",\"fields\":{\"body\":\"");
+            appendText(json, bodyLength, index);
+            json.append("\"}}");
+        }
+        json.append("]}}");
+        return json.toString().getBytes("UTF-8");
+    }
+
+    // appends HTML text of the given length (words with an occasional tag), different for each seed
+    private static void appendText(StringBuilder json, int length, int seed) {
+        String[] words = {"the", "government", "said", "on", "<strong>Monday</strong>", "that", "new", "figures",
+                "showed", "a", "rise", "in", "<em>prices</em>", "across", "regions", "of", "country"};
+        int end = json.length() + length;
+        int index = seed;
+        while (json.length() < end) {
+            json.append(words[index % words.length]).append(' ');
+            index += 3;
+        }
+        json.setLength(end);
+    }
+
+    // writes a body in chunks, so that it does not go faster than the bandwidth limit
+    private void writeThrottled(OutputStream outputStream, byte[] body) throws IOException {
+        long limit = bandwidthBytesPerSecond;
+        if (limit <= 0) {
+            outputStream.write(body);
+            outputStream.flush();
+            return;
+        }
+        int chunkBytes = (int) Math.max(MIN_CHUNK_BYTES, limit / 50);
+        long startTime = System.nanoTime();
+        int offset;
+        for (offset = 0; offset < body.length; offset += chunkBytes) {
+            int count = Math.min(chunkBytes, body.length - offset);
+            outputStream.write(body, offset, count);
+            outputStream.flush();
+            // the time at which the bytes written so far are due at the given bandwidth
+            long dueNanos = (offset + count) * 1000000000L / limit;
+            sleep((dueNanos - (System.nanoTime() - startTime)) / 1000000);
+        }
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(body.length / 4);
+        GZIPOutputStream gzipStream = new GZIPOutputStream(outputStream);
+        gzipStream.write(body);
+        gzipStream.close();
+        return outputStream.toByteArray();
+    }
+
+    private synchronized double nextDouble() {
+        return random.nextDouble();
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<String, String>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException exc_01) {
+            return defaultValue;
+        }
+    }
+
+    private static void drain(InputStream stream) throws IOException {
+        byte[] buffer = new byte[1024];
+        while (stream.read(buffer) != -1) {
+            // the bytes are discarded
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exc_02) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.kasparasza.newsapp.loadtest;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Collects the durations of the stages of the page-loading path, and reports their percentiles.
+ * Every sample is kept (a load test records a few thousand of them), so the percentiles are exact.
+ * The methods are thread-safe.
+ */
+
+public class StageRecorder {
+
+    // members of the class:
+    // durations of each stage in nanoseconds, in the order the stages were first recorded
+    private final Map<String, LongList> samples = new LinkedHashMap<String, LongList>();
+
+    /**
+     * @param stage name of the stage
+     * @param durationNanos duration of a single pass through the stage
+     */
+    public synchronized void record(String stage, long durationNanos) {
+        LongList stageSamples = samples.get(stage);
+        if (stageSamples == null) {
+            stageSamples = new LongList();
+            samples.put(stage, stageSamples);
+        }
+        stageSamples.add(durationNanos);
+    }
+
+    /**
+     * @param stage name of the stage
+     * @return number of the samples of the stage
+     */
+    public synchronized int getCount(String stage) {
+        LongList stageSamples = samples.get(stage);
+        return stageSamples != null ? stageSamples.size : 0;
+    }
+
+    /**
+     * Prints a row for each stage: the number of samples, p50 / p95 / p99 / max latency, and the throughput
+     * of the stage (passes per second of the wall time of the run)
+     * @param out stream to print to
+     * @param wallNanos wall time of the run
+     */
+    public synchronized void printReport(PrintStream out, long wallNanos) {
+        out.println(String.format(Locale.US, "%-10s %8s %10s %10s %10s %10s %10s",
+                "stage", "count", "p50 ms", "p95 ms", "p99 ms", "max ms", "ops/s"));
+        List<String> stages = new ArrayList<String>(samples.keySet());
+        for (String stage : stages) {
+            long[] sorted = samples.get(stage).toSortedArray();
+            out.println(String.format(Locale.US, "%-10s %8d %10.2f %10.2f %10.2f %10.2f %10.1f",
+                    stage, sorted.length,
+                    toMillis(percentile(sorted, 50)), toMillis(percentile(sorted, 95)),
+                    toMillis(percentile(sorted, 99)), toMillis(sorted[sorted.length - 1]),
+                    sorted.length * 1e9 / wallNanos));
+        }
+    }
+
+    // nearest-rank percentile of sorted samples
+    private static long percentile(long[] sorted, int percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    // growable list of longs, without the boxing of List<Long>
+    private static class LongList {
+        private long[] values = new long[64];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}